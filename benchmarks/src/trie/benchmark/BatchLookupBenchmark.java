@@ -0,0 +1,122 @@
+package trie.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import trie.Trie;
+
+/**
+ * Benchmark of the batch searches of the trie against a loop searching the
+ * words one by one. Every batch mixes stored keys and keys that are not stored,
+ * and it is given either in random order or already sorted. The results are
+ * reported per searched word.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchLookupBenchmark {
+
+    /**
+     * Number of keys of the trie.
+     */
+    static final int KEYS = 1 << 17;
+    /**
+     * Number of words of a batch.
+     */
+    static final int BATCH = 1 << 16;
+
+    /**
+     * Distribution of the keys.
+     */
+    @Param({"SHARED_PREFIX", "RANDOM", "URL"})
+    public KeyDistribution distribution;
+    /**
+     * True to search batches already sorted.
+     */
+    @Param({"false", "true"})
+    public boolean sortedBatch;
+
+    /**
+     * Trie holding the keys.
+     */
+    Trie trie;
+    /**
+     * Words searched.
+     */
+    String[] batch;
+
+    /**
+     * Generates the keys and the batch and fills the trie.
+     */
+    @Setup
+    public void setUp() {
+        String[] generated = distribution.keys(2 * KEYS, 26, 1);
+        trie = new Trie();
+        for (int i = 0; i < KEYS; i++) {
+            trie.insert(generated[i]);
+        }
+        Random random = new Random(2);
+        batch = new String[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            batch[i] = generated[random.nextInt(generated.length)];
+        }
+        if (sortedBatch) {
+            Arrays.sort(batch);
+        }
+    }
+
+    /**
+     * Searches the words of the batch one by one.
+     *
+     * @return The results of the searches.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public boolean[] loop() {
+        boolean[] found = new boolean[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            found[i] = trie.search(batch[i]);
+        }
+        return found;
+    }
+
+    /**
+     * Searches the batch with a single batch search.
+     *
+     * @return The results of the searches.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public boolean[] searchAll() {
+        return trie.searchAll(batch);
+    }
+
+    /**
+     * Searches the batch with a parallel batch search in the common pool.
+     *
+     * @return The results of the searches.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public boolean[] parallelSearchAll() {
+        return trie.searchAll(batch, ForkJoinPool.commonPool());
+    }
+}
@@ -0,0 +1,164 @@
+package trie.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import trie.Trie;
+
+/**
+ * Benchmark of the fuzzy search of the trie against a brute force scan
+ * computing the edit distance to every key. The searched words are stored keys
+ * with one random letter replaced, so every search finds at least one word.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FuzzySearchBenchmark {
+
+    /**
+     * Number of keys of the trie.
+     */
+    static final int KEYS = 1 << 16;
+    /**
+     * Number of different searched words.
+     */
+    static final int QUERIES = 1 << 10;
+
+    /**
+     * Distribution of the keys.
+     */
+    @Param({"SHARED_PREFIX", "RANDOM"})
+    public KeyDistribution distribution;
+    /**
+     * Maximum edit distance of the words found.
+     */
+    @Param({"1", "2"})
+    public int distance;
+
+    /**
+     * Keys stored in the trie.
+     */
+    String[] keys;
+    /**
+     * Searched words.
+     */
+    String[] queries;
+    /**
+     * Trie holding all the keys.
+     */
+    Trie trie;
+    /**
+     * Rows of the distance table reused by the brute force scan.
+     */
+    int[][] rows;
+    /**
+     * Position of the next word to search.
+     */
+    int next;
+
+    /**
+     * Generates the keys and the searched words and fills the trie.
+     */
+    @Setup
+    public void setUp() {
+        keys = distribution.keys(KEYS, 26, 1);
+        trie = new Trie();
+        int longest = 0;
+        for (String key : keys) {
+            trie.insert(key);
+            longest = Math.max(longest, key.length());
+        }
+        Random random = new Random(2);
+        queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            char[] query = keys[random.nextInt(KEYS)].toCharArray();
+            query[random.nextInt(query.length)] = (char) ('a' + random.nextInt(26));
+            queries[i] = new String(query);
+        }
+        rows = new int[2][longest + 1];
+    }
+
+    /**
+     * Returns the next word to search.
+     *
+     * @return The next word to search.
+     */
+    private String nextQuery() {
+        String query = queries[next];
+        next = (next + 1) & (QUERIES - 1);
+        return query;
+    }
+
+    /**
+     * Searches a word with the fuzzy search of the trie.
+     *
+     * @return The words found.
+     */
+    @Benchmark
+    public List<String> trie() {
+        return trie.fuzzySearch(nextQuery(), distance);
+    }
+
+    /**
+     * Searches a word computing its edit distance to every key. Keys whose
+     * length differs from the length of the word by more than the distance are
+     * skipped without computing the distance.
+     *
+     * @return The words found.
+     */
+    @Benchmark
+    public List<String> bruteForce() {
+        String query = nextQuery();
+        List<String> found = new ArrayList<String>();
+        for (String key : keys) {
+            if (Math.abs(key.length() - query.length()) <= distance && distance(query, key) <= distance) {
+                found.add(key);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Computes the Levenshtein distance between two words keeping only two
+     * rows of the distance table.
+     *
+     * @param a First word.
+     * @param b Second word.
+     * @return The edit distance between the words.
+     */
+    private int distance(String a, String b) {
+        int[] previous = rows[0];
+        int[] current = rows[1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,104 @@
+package trie.benchmark;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Distributions of keys used by the benchmarks. Every distribution generates
+ * distinct keys over an alphabet of the given size starting at 'a'.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public enum KeyDistribution {
+
+    /**
+     * Dictionary-like words: a few thousand stems shared by many words, each
+     * followed by a short suffix, with lengths between 3 and 15 letters.
+     */
+    SHARED_PREFIX {
+        @Override
+        String key(Random random, int alphabetSize, String[] stems) {
+            StringBuilder key = new StringBuilder(stems[random.nextInt(stems.length)]);
+            appendRandom(key, random, alphabetSize, random.nextInt(6));
+            return key.toString();
+        }
+    },
+    /**
+     * Uniformly random strings with lengths between 1 and 20 letters.
+     */
+    RANDOM {
+        @Override
+        String key(Random random, int alphabetSize, String[] stems) {
+            StringBuilder key = new StringBuilder();
+            appendRandom(key, random, alphabetSize, 1 + random.nextInt(20));
+            return key.toString();
+        }
+    },
+    /**
+     * Long URLs with a common scheme, a limited set of hosts and random paths.
+     */
+    URL {
+        @Override
+        String key(Random random, int alphabetSize, String[] stems) {
+            StringBuilder key = new StringBuilder("https://www.");
+            key.append(stems[random.nextInt(Math.min(stems.length, 200))]).append(".com");
+            int segments = 1 + random.nextInt(5);
+            for (int i = 0; i < segments; i++) {
+                key.append('/');
+                appendRandom(key, random, alphabetSize, 2 + random.nextInt(12));
+            }
+            if (random.nextBoolean()) {
+                key.append("?id=").append(random.nextInt(1000000));
+            }
+            return key.toString();
+        }
+    };
+
+    /**
+     * Generates one key of the distribution.
+     *
+     * @param random Random generator.
+     * @param alphabetSize Number of different letters.
+     * @param stems Stems shared by the keys.
+     * @return A key.
+     */
+    abstract String key(Random random, int alphabetSize, String[] stems);
+
+    /**
+     * Generates distinct keys of the distribution.
+     *
+     * @param count Number of keys.
+     * @param alphabetSize Number of different letters.
+     * @param seed Seed of the random generator.
+     * @return The distinct keys, in random order.
+     */
+    public String[] keys(int count, int alphabetSize, long seed) {
+        Random random = new Random(seed);
+        String[] stems = new String[Math.max(16, count / 50)];
+        for (int i = 0; i < stems.length; i++) {
+            StringBuilder stem = new StringBuilder();
+            appendRandom(stem, random, alphabetSize, 3 + random.nextInt(8));
+            stems[i] = stem.toString();
+        }
+        Set<String> keys = new LinkedHashSet<String>();
+        while (keys.size() < count) {
+            keys.add(key(random, alphabetSize, stems));
+        }
+        return keys.toArray(new String[count]);
+    }
+
+    /**
+     * Appends random letters to a key.
+     *
+     * @param key Key being built.
+     * @param random Random generator.
+     * @param alphabetSize Number of different letters.
+     * @param length Number of letters to append.
+     */
+    static void appendRandom(StringBuilder key, Random random, int alphabetSize, int length) {
+        for (int i = 0; i < length; i++) {
+            key.append((char) ('a' + random.nextInt(alphabetSize)));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package trie.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.openjdk.jol.info.GraphLayout;
+import trie.ByteTrie;
+import trie.IntTrieMap;
+import trie.Trie;
+import trie.TrieMap;
+
+/**
+ * Program reporting the heap retained by a trie per stored key, for every key
+ * distribution and alphabet size used by the benchmarks, next to the heap
+ * retained by a byte trie holding the UTF-8 encoding of the keys. It also
+ * reports the heap retained by the trie maps against a hash map holding the
+ * same keys and values. The size of the keys themselves is not included for
+ * the tries, while the hash map retains them. The object graph is measured
+ * with JOL, so the figures follow the layout of the running JVM (compressed
+ * pointers, object alignment, etc). The estimation of {@link trie.TrieStats}
+ * is printed next to the measure.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class RetainedHeap {
+
+    /**
+     * Retained heap report program.
+     *
+     * @param args The first argument, if present, is the number of keys
+     * (131072 by default).
+     */
+    public static void main(String[] args) {
+        int count = (args.length >= 1 ? Integer.parseInt(args[0]) : TrieBenchmark.KEYS);
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Retained heap per key (" + count + " keys):");
+        System.out.println("-------------------------------------------------------");
+        for (KeyDistribution distribution : KeyDistribution.values()) {
+            for (int alphabetSize : new int[]{4, 26, 64}) {
+                String[] keys = distribution.keys(count, alphabetSize, 1);
+                Trie trie = new Trie();
+                ByteTrie byteTrie = new ByteTrie();
+                long keyChars = 0;
+                for (String key : keys) {
+                    trie.insert(key);
+                    byteTrie.insert(key);
+                    keyChars += key.length();
+                }
+                long bytes = GraphLayout.parseInstance(trie).totalSize();
+                System.out.println("  " + distribution + ", " + alphabetSize + " letters: "
+                        + String.format("%.1f", bytes / (double) count) + " bytes/key (average key length "
+                        + String.format("%.1f", keyChars / (double) count) + ", estimated "
+                        + String.format("%.1f", trie.stats().estimatedBytes() / (double) count) + ", byte trie "
+                        + String.format("%.1f", GraphLayout.parseInstance(byteTrie).totalSize() / (double) count) + ")");
+            }
+        }
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Retained heap of maps per key (" + count + " keys, 26 letters):");
+        System.out.println("-------------------------------------------------------");
+        for (KeyDistribution distribution : KeyDistribution.values()) {
+            String[] keys = distribution.keys(count, 26, 1);
+            Map<String, Integer> hashMap = new HashMap<String, Integer>();
+            TrieMap<Integer> trieMap = new TrieMap<Integer>();
+            IntTrieMap intTrieMap = new IntTrieMap();
+            for (int i = 0; i < count; i++) {
+                hashMap.put(keys[i], i);
+                trieMap.put(keys[i], i);
+                intTrieMap.put(keys[i], i);
+            }
+            System.out.println("  " + distribution + ": HashMap<String, Integer> "
+                    + String.format("%.1f", GraphLayout.parseInstance(hashMap).totalSize() / (double) count)
+                    + ", TrieMap<Integer> "
+                    + String.format("%.1f", GraphLayout.parseInstance(trieMap).totalSize() / (double) count)
+                    + ", IntTrieMap "
+                    + String.format("%.1f", GraphLayout.parseInstance(intTrieMap).totalSize() / (double) count)
+                    + " bytes/key");
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package trie.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import trie.Trie;
+
+/**
+ * Benchmark of the word searches of the trie with and without the filter in
+ * front of them, over workloads where most of the searched words are not
+ * stored. The results are reported per searched word.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchFilterBenchmark {
+
+    /**
+     * Number of keys of the trie.
+     */
+    static final int KEYS = 1 << 17;
+    /**
+     * Number of words searched per invocation.
+     */
+    static final int SEARCHES = 1 << 16;
+
+    /**
+     * Distribution of the keys.
+     */
+    @Param({"SHARED_PREFIX", "RANDOM", "URL"})
+    public KeyDistribution distribution;
+    /**
+     * Share of the searched words that are not stored.
+     */
+    @Param({"0.5", "0.9", "0.99"})
+    public double missRatio;
+    /**
+     * True to search with the filter enabled.
+     */
+    @Param({"false", "true"})
+    public boolean filter;
+
+    /**
+     * Trie holding the keys.
+     */
+    Trie trie;
+    /**
+     * Words searched.
+     */
+    String[] searches;
+
+    /**
+     * Generates the keys and the searched words, fills the trie and enables
+     * its filter if requested.
+     */
+    @Setup
+    public void setUp() {
+        String[] generated = distribution.keys(2 * KEYS, 26, 1);
+        trie = new Trie();
+        for (int i = 0; i < KEYS; i++) {
+            trie.insert(generated[i]);
+        }
+        if (filter) {
+            trie.enableFilter(KEYS, 0.01);
+        }
+        Random random = new Random(2);
+        searches = new String[SEARCHES];
+        for (int i = 0; i < SEARCHES; i++) {
+            searches[i] = generated[random.nextDouble() < missRatio ? KEYS + random.nextInt(KEYS) : random.nextInt(KEYS)];
+        }
+    }
+
+    /**
+     * Searches the words one by one.
+     *
+     * @return The number of words found.
+     */
+    @Benchmark
+    @OperationsPerInvocation(SEARCHES)
+    public int search() {
+        int found = 0;
+        for (int i = 0; i < SEARCHES; i++) {
+            if (trie.search(searches[i])) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,190 @@
+package trie.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import trie.Trie;
+
+/**
+ * Benchmarks of the four basic operations of the trie over different key
+ * distributions and alphabet sizes. Lookups are measured one key per
+ * operation, cycling over the keys; insertions and removals are measured
+ * filling and emptying a whole trie and reported per key.
+ *
+ * Run with the GC profiler to get the allocation rate, for example:
+ * java -jar target/benchmarks.jar TrieBenchmark -prof gc
+ *
+ * @author Alfonso Alhambra Moron
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrieBenchmark {
+
+    /**
+     * Number of keys of every trie.
+     */
+    static final int KEYS = 1 << 17;
+
+    /**
+     * Distribution of the keys.
+     */
+    @Param({"SHARED_PREFIX", "RANDOM", "URL"})
+    public KeyDistribution distribution;
+    /**
+     * Number of different letters of the keys.
+     */
+    @Param({"4", "26", "64"})
+    public int alphabetSize;
+
+    /**
+     * Keys stored in the trie.
+     */
+    String[] keys;
+    /**
+     * Keys not stored in the trie.
+     */
+    String[] missingKeys;
+    /**
+     * Prefixes of the stored keys.
+     */
+    String[] prefixes;
+    /**
+     * Trie holding all the keys.
+     */
+    Trie trie;
+    /**
+     * Position of the next key to look up.
+     */
+    int next;
+
+    /**
+     * Generates the keys and fills the trie.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] generated = distribution.keys(2 * KEYS, alphabetSize, 1);
+        keys = new String[KEYS];
+        missingKeys = new String[KEYS];
+        prefixes = new String[KEYS];
+        System.arraycopy(generated, 0, keys, 0, KEYS);
+        System.arraycopy(generated, KEYS, missingKeys, 0, KEYS);
+        trie = new Trie();
+        for (int i = 0; i < KEYS; i++) {
+            trie.insert(keys[i]);
+            prefixes[i] = keys[i].substring(0, (keys[i].length() + 1) / 2);
+        }
+    }
+
+    /**
+     * Returns the position of the next key to look up.
+     *
+     * @return The position of the next key to look up.
+     */
+    private int nextKey() {
+        int key = next;
+        next = (key + 1) & (KEYS - 1);
+        return key;
+    }
+
+    /**
+     * Searches a stored key.
+     *
+     * @return The result of the search.
+     */
+    @Benchmark
+    public boolean searchHit() {
+        return trie.search(keys[nextKey()]);
+    }
+
+    /**
+     * Searches a key that is not stored.
+     *
+     * @return The result of the search.
+     */
+    @Benchmark
+    public boolean searchMiss() {
+        return trie.search(missingKeys[nextKey()]);
+    }
+
+    /**
+     * Checks the prefix of a stored key.
+     *
+     * @return The result of the check.
+     */
+    @Benchmark
+    public boolean startsWith() {
+        return trie.startsWith(prefixes[nextKey()]);
+    }
+
+    /**
+     * Fills an empty trie with all the keys.
+     *
+     * @return The filled trie.
+     */
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public Trie insert() {
+        Trie filled = new Trie();
+        for (String key : keys) {
+            filled.insert(key);
+        }
+        return filled;
+    }
+
+    /**
+     * Removes all the keys from a filled trie.
+     *
+     * @param toEmpty State holding the trie to empty.
+     * @return The emptied trie.
+     */
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public Trie remove(TrieToEmpty toEmpty) {
+        for (String key : keys) {
+            toEmpty.trie.remove(key);
+        }
+        return toEmpty.trie;
+    }
+
+    /**
+     * Trie emptied by the removal benchmark. It is refilled before every
+     * invocation, so it lives in its own state: the other benchmarks do not
+     * take it and they are not slowed down by the refill.
+     */
+    @State(Scope.Thread)
+    public static class TrieToEmpty {
+
+        /**
+         * Trie holding all the keys before the invocation.
+         */
+        Trie trie;
+
+        /**
+         * Fills the trie with all the keys.
+         *
+         * @param benchmark State of the benchmark holding the keys.
+         */
+        @Setup(Level.Invocation)
+        public void fill(TrieBenchmark benchmark) {
+            trie = new Trie();
+            for (String key : benchmark.keys) {
+                trie.insert(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package trie.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import trie.Trie;
+
+/**
+ * Benchmark of the time needed to build a whole trie from sorted keys by
+ * repeated insertion, by the sequential bulk loader and by the parallel bulk
+ * loader in the common pool. The results are reported per build.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrieBuildBenchmark {
+
+    /**
+     * Number of keys of every trie.
+     */
+    static final int KEYS = 1 << 18;
+
+    /**
+     * Distribution of the keys.
+     */
+    @Param({"SHARED_PREFIX", "RANDOM", "URL"})
+    public KeyDistribution distribution;
+
+    /**
+     * Keys, sorted in ascending order.
+     */
+    String[] sortedKeys;
+
+    /**
+     * Generates and sorts the keys.
+     */
+    @Setup
+    public void setUp() {
+        sortedKeys = distribution.keys(KEYS, 26, 1);
+        Arrays.sort(sortedKeys);
+    }
+
+    /**
+     * Builds the trie inserting the keys one by one.
+     *
+     * @return The trie built.
+     */
+    @Benchmark
+    public Trie insert() {
+        Trie trie = new Trie();
+        for (String key : sortedKeys) {
+            trie.insert(key);
+        }
+        return trie;
+    }
+
+    /**
+     * Builds the trie with the sequential bulk loader.
+     *
+     * @return The trie built.
+     */
+    @Benchmark
+    public Trie bulkLoad() {
+        return Trie.bulkLoad(Arrays.asList(sortedKeys).iterator());
+    }
+
+    /**
+     * Builds the trie with the parallel bulk loader in the common pool.
+     *
+     * @return The trie built.
+     */
+    @Benchmark
+    public Trie parallelBulkLoad() {
+        return Trie.parallelBulkLoad(Arrays.asList(sortedKeys).iterator(), ForkJoinPool.commonPool());
+    }
+}
@@ -0,0 +1,179 @@
+package trie.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import trie.IntTrieMap;
+import trie.TrieMap;
+
+/**
+ * Benchmarks of the trie maps against a HashMap from strings to integers.
+ * Lookups are measured one key per operation, cycling over the keys; puts are
+ * measured filling a whole map and reported per key. The lookups use copies of
+ * the keys, so the hash map cannot short-circuit the comparison of the keys
+ * by identity and has to hash every key, as it would for keys read from
+ * the outside.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrieMapBenchmark {
+
+    /**
+     * Number of keys of every map.
+     */
+    static final int KEYS = 1 << 17;
+
+    /**
+     * Distribution of the keys.
+     */
+    @Param({"SHARED_PREFIX", "RANDOM", "URL"})
+    public KeyDistribution distribution;
+
+    /**
+     * Keys stored in the maps.
+     */
+    String[] keys;
+    /**
+     * Copies of the keys used for the lookups.
+     */
+    String[] lookups;
+    /**
+     * Hash map holding all the keys.
+     */
+    Map<String, Integer> hashMap;
+    /**
+     * Generic trie map holding all the keys.
+     */
+    TrieMap<Integer> trieMap;
+    /**
+     * Int trie map holding all the keys.
+     */
+    IntTrieMap intTrieMap;
+    /**
+     * Position of the next key to look up.
+     */
+    int next;
+
+    /**
+     * Generates the keys and fills the maps, mapping every key to its
+     * position.
+     */
+    @Setup
+    public void setUp() {
+        keys = distribution.keys(KEYS, 26, 1);
+        lookups = new String[KEYS];
+        hashMap = new HashMap<String, Integer>();
+        trieMap = new TrieMap<Integer>();
+        intTrieMap = new IntTrieMap(-1);
+        for (int i = 0; i < KEYS; i++) {
+            lookups[i] = new String(keys[i].toCharArray());
+            hashMap.put(keys[i], i);
+            trieMap.put(keys[i], i);
+            intTrieMap.put(keys[i], i);
+        }
+    }
+
+    /**
+     * Returns the next key to look up.
+     *
+     * @return The next key to look up.
+     */
+    private String nextKey() {
+        String key = lookups[next];
+        next = (next + 1) & (KEYS - 1);
+        return key;
+    }
+
+    /**
+     * Looks up a key in the hash map.
+     *
+     * @return The value of the key.
+     */
+    @Benchmark
+    public Integer hashMapGet() {
+        return hashMap.get(nextKey());
+    }
+
+    /**
+     * Looks up a key in the generic trie map.
+     *
+     * @return The value of the key.
+     */
+    @Benchmark
+    public Integer trieMapGet() {
+        return trieMap.get(nextKey());
+    }
+
+    /**
+     * Looks up a key in the int trie map.
+     *
+     * @return The value of the key.
+     */
+    @Benchmark
+    public int intTrieMapGet() {
+        return intTrieMap.get(nextKey());
+    }
+
+    /**
+     * Fills an empty hash map with all the keys.
+     *
+     * @return The filled map.
+     */
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public Map<String, Integer> hashMapPut() {
+        Map<String, Integer> filled = new HashMap<String, Integer>();
+        for (int i = 0; i < KEYS; i++) {
+            filled.put(keys[i], i);
+        }
+        return filled;
+    }
+
+    /**
+     * Fills an empty generic trie map with all the keys.
+     *
+     * @return The filled map.
+     */
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public TrieMap<Integer> trieMapPut() {
+        TrieMap<Integer> filled = new TrieMap<Integer>();
+        for (int i = 0; i < KEYS; i++) {
+            filled.put(keys[i], i);
+        }
+        return filled;
+    }
+
+    /**
+     * Fills an empty int trie map with all the keys.
+     *
+     * @return The filled map.
+     */
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public IntTrieMap intTrieMapPut() {
+        IntTrieMap filled = new IntTrieMap(-1);
+        for (int i = 0; i < KEYS; i++) {
+            filled.put(keys[i], i);
+        }
+        return filled;
+    }
+}
@@ -0,0 +1,128 @@
+package trie;
+
+import java.util.Iterator;
+
+/**
+ * Base of the maps from strings to values stored in a trie. It keeps the trie
+ * and the number of keys and walks the trie for the maps, which keep the
+ * values in a field of their own nodes.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+abstract class AbstractTrieMap {
+
+    /**
+     * Root node of the trie.
+     */
+    final TrieNode root;
+    /**
+     * Node taking the value of the last key removed, reused by every removal.
+     */
+    private final TrieNode removed;
+    /**
+     * Number of keys in the map.
+     */
+    private int size;
+
+    /**
+     * AbstractTrieMap constructor.
+     *
+     * @param root Root node of the trie, whose type is the one of all the
+     * nodes of the trie.
+     */
+    AbstractTrieMap(TrieNode root) {
+        this.root = root;
+        this.removed = root.newNode();
+    }
+
+    /**
+     * Returns the node in which a key ends.
+     *
+     * @param key Key.
+     * @return The node in which the key ends, null if the key is null or it is
+     * not in the map.
+     */
+    final TrieNode node(String key) {
+        return (key == null ? null : root.find(key, 0, key.length()));
+    }
+
+    /**
+     * Inserts a key.
+     *
+     * @param key Key, not null.
+     * @return The node in which the key ends if it has been added, null if it
+     * was already in the map.
+     */
+    final TrieNode insertKey(String key) {
+        TrieNode node = root.insert(key);
+        if (node != null) {
+            size++;
+        }
+        return node;
+    }
+
+    /**
+     * Removes a key in a single walk of the trie.
+     *
+     * @param key Key.
+     * @return A node holding the value the key had, only valid until the next
+     * removal, or null if the key was not in the map.
+     */
+    final TrieNode removeKey(String key) {
+        if (!root.remove(key, removed)) {
+            return null;
+        }
+        size--;
+        return removed;
+    }
+
+    /**
+     * Returns true if the key is in the map.
+     *
+     * @param key Key.
+     * @return True if the key is in the map, false otherwise.
+     */
+    public boolean containsKey(String key) {
+        return root.search(key);
+    }
+
+    /**
+     * Returns the number of keys in the map.
+     *
+     * @return The number of keys in the map.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if the map has no keys.
+     *
+     * @return True if the map has no keys, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns an iterator over the keys of the map that start with the given
+     * prefix, in lexicographic order. The map must not be modified while the
+     * iterator is in use.
+     *
+     * @param prefix Prefix of the keys to iterate.
+     * @return An iterator over the keys that start with the given prefix.
+     */
+    public Iterator<String> keysWithPrefix(String prefix) {
+        return new TrieKeyIterator(root, (prefix == null ? "" : prefix));
+    }
+
+    /**
+     * Computes a snapshot of the structure of the trie holding the keys. The
+     * estimated bytes do not include the values.
+     *
+     * @return The statistics of the current structure of the trie.
+     */
+    public TrieStats stats() {
+        return new TrieStats(root);
+    }
+}
@@ -0,0 +1,117 @@
+package trie;
+
+import java.util.Arrays;
+
+/**
+ * Node of the tries whose nodes keep their sons in a sorted char array with a
+ * parallel array of nodes, that is, the immutable nodes of
+ * {@link ImmutableTrieNode} and the copy on write nodes of
+ * {@link PersistentTrieNode}. It holds the searches and prefix checks shared
+ * by both, which only read the nodes.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+abstract class ArrayTrieNode {
+
+    /**
+     * Returns the buffer of content of the node.
+     *
+     * @return The buffer of content of the node.
+     */
+    abstract char[] content();
+
+    /**
+     * Returns the sorted letters of the edges leading to the sons.
+     *
+     * @return The sorted letters of the edges leading to the sons.
+     */
+    abstract char[] keys();
+
+    /**
+     * Returns the son in the given position, the one of the letter in the same
+     * position of the keys.
+     *
+     * @param position Position of the son.
+     * @return The son in the given position.
+     */
+    abstract ArrayTrieNode son(int position);
+
+    /**
+     * Returns true if a word ends in the node.
+     *
+     * @return True if a word ends in the node, false otherwise.
+     */
+    abstract boolean isEndNode();
+
+    /**
+     * Searches the end node in which the slice of the given sequence between
+     * from (inclusive) and to (exclusive) ends, walking the trie in a loop.
+     *
+     * @param word Sequence containing the word to search.
+     * @param from Index pointing to the first character of the word.
+     * @param to Index pointing to the position after the last character of
+     * the word.
+     * @return The end node in which the given word ends. It will return null if
+     * the word is not part of the trie.
+     */
+    final ArrayTrieNode find(CharSequence word, int from, int to) {
+        ArrayTrieNode node = this;
+        int idx = from;
+        while (true) {
+            char[] nodeContent = node.content();
+            if (to - idx < nodeContent.length) {
+                return null;
+            }
+            for (int i = 0; i < nodeContent.length; i++) {
+                if (nodeContent[i] != word.charAt(idx + i)) {
+                    return null;
+                }
+            }
+            idx += nodeContent.length;
+            if (idx == to) {
+                return (node.isEndNode() ? node : null);
+            }
+            int position = Arrays.binarySearch(node.keys(), word.charAt(idx));
+            if (position < 0) {
+                return null;
+            }
+            node = node.son(position);
+            idx++;
+        }
+    }
+
+    /**
+     * Checks whether if a word starting with the slice of the given sequence
+     * between from (inclusive) and to (exclusive) is part of the trie or not,
+     * walking the trie in a loop.
+     *
+     * @param prefix Sequence containing the prefix to be checked.
+     * @param from Index pointing to the first character of the prefix.
+     * @param to Index pointing to the position after the last character of
+     * the prefix.
+     * @return True if a word with the given prefix is found, false otherwise.
+     */
+    final boolean startsWith(CharSequence prefix, int from, int to) {
+        ArrayTrieNode node = this;
+        int idx = from;
+        while (true) {
+            char[] nodeContent = node.content();
+            int length = Math.min(nodeContent.length, to - idx);
+            for (int i = 0; i < length; i++) {
+                if (nodeContent[i] != prefix.charAt(idx + i)) {
+                    return false;
+                }
+            }
+            idx += length;
+            if (idx == to) {
+                return (node.isEndNode() || node.keys().length > 0);
+            }
+            int position = Arrays.binarySearch(node.keys(), prefix.charAt(idx));
+            if (position < 0) {
+                return false;
+            }
+            node = node.son(position);
+            idx++;
+        }
+    }
+}
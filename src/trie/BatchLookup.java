@@ -0,0 +1,307 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Lookup of a batch of words or prefixes in a trie descending every node once
+ * for all the keys that go through it. The keys that reach a node are compared
+ * with its content and the ones that go on are grouped by their next letter
+ * (sorting the letter and the position of the key packed in a long), so the
+ * son of every group is looked up once and the group goes on from it. The batch
+ * is thus walked like a depth first traversal of the part of the trie it
+ * touches, which keeps every node in cache while the keys going through it are
+ * compared, whatever the order of the batch. Groups of a single key go on with
+ * a plain lookup.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+final class BatchLookup {
+
+    /**
+     * Minimum number of keys of a group looked up in a task of its own in a
+     * parallel lookup.
+     */
+    static final int PARALLEL_THRESHOLD = 4096;
+
+    /**
+     * Root node of the trie.
+     */
+    private final TrieNode root;
+    /**
+     * Words or prefixes to look up.
+     */
+    private final String[] keys;
+    /**
+     * True to check prefixes, false to search words.
+     */
+    private final boolean prefix;
+    /**
+     * Position i tells whether keys[i] was found.
+     */
+    private final boolean[] found;
+    /**
+     * Positions of the keys, grouped by the node they have reached.
+     */
+    private final int[] order;
+    /**
+     * Next letter and position of the keys being grouped, packed in a long.
+     */
+    private final long[] groups;
+
+    /**
+     * BatchLookup constructor.
+     *
+     * @param root Root node of the trie.
+     * @param keys Words or prefixes to look up.
+     * @param prefix True to check prefixes, false to search words.
+     */
+    BatchLookup(TrieNode root, String[] keys, boolean prefix) {
+        this.root = root;
+        this.keys = keys;
+        this.prefix = prefix;
+        found = new boolean[keys.length];
+        order = new int[keys.length];
+        groups = new long[keys.length];
+    }
+
+    /**
+     * Looks up every key of the batch.
+     *
+     * @return An array whose position i tells whether keys[i] was found.
+     */
+    boolean[] lookup() {
+        lookup(root, 0, 0, collect());
+        return found;
+    }
+
+    /**
+     * Looks up every key of the batch, looking up large groups of keys in
+     * parallel in the given pool.
+     *
+     * @param pool Pool running the lookups.
+     * @return An array whose position i tells whether keys[i] was found.
+     */
+    boolean[] parallelLookup(ForkJoinPool pool) {
+        pool.invoke(new LookupTask(root, 0, 0, collect()));
+        return found;
+    }
+
+    /**
+     * Fills the positions with the keys that are not null.
+     *
+     * @return The number of keys that are not null.
+     */
+    private int collect() {
+        int count = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                order[count++] = i;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Looks up the keys of a group that has reached a node, and every group
+     * they split into under it, using an explicit stack.
+     *
+     * @param node Node reached by the group.
+     * @param start Index of the keys where the content of the node starts.
+     * @param from First position of the group in the order (inclusive).
+     * @param to Last position of the group in the order (exclusive).
+     */
+    private void lookup(TrieNode node, int start, int from, int to) {
+        TrieNode[] nodes = new TrieNode[16];
+        int[] starts = new int[16];
+        int[] froms = new int[16];
+        int[] tos = new int[16];
+        int size = 0;
+        nodes[size] = node;
+        starts[size] = start;
+        froms[size] = from;
+        tos[size++] = to;
+        while (size > 0) {
+            size--;
+            TrieNode current = nodes[size];
+            int currentStart = starts[size];
+            int groupStart = froms[size];
+            int end = group(current, currentStart, groupStart, tos[size]);
+            int sonStart = currentStart + current.content().length + 1;
+            while (groupStart < end) {
+                int groupEnd = groupEnd(groupStart, end);
+                TrieNode son = current.sons().get(letter(groupStart));
+                if (son != null && groupEnd - groupStart == 1) {
+                    single(son, sonStart, order[groupStart]);
+                } else if (son != null) {
+                    if (size == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, size * 2);
+                        starts = Arrays.copyOf(starts, size * 2);
+                        froms = Arrays.copyOf(froms, size * 2);
+                        tos = Arrays.copyOf(tos, size * 2);
+                    }
+                    nodes[size] = son;
+                    starts[size] = sonStart;
+                    froms[size] = groupStart;
+                    tos[size++] = groupEnd;
+                }
+                groupStart = groupEnd;
+            }
+        }
+    }
+
+    /**
+     * Compares the content of a node with the keys of a group that has
+     * reached it. The keys ending in the node get their result, and the rest
+     * are sorted by their next letter at the beginning of the group.
+     *
+     * @param node Node reached by the group.
+     * @param start Index of the keys where the content of the node starts.
+     * @param from First position of the group in the order (inclusive).
+     * @param to Last position of the group in the order (exclusive).
+     * @return The end (exclusive) of the keys that go on under the node,
+     * which take the positions from the beginning of the group.
+     */
+    private int group(TrieNode node, int start, int from, int to) {
+        char[] content = node.content();
+        int next = start + content.length;
+        boolean hasSons = (node.sons() != null);
+        int end = from;
+        boolean sorted = true;
+        for (int position = from; position < to; position++) {
+            int index = order[position];
+            String key = keys[index];
+            int length = Math.min(content.length, key.length() - start);
+            int i = 0;
+            while (i < length && content[i] == key.charAt(start + i)) {
+                i++;
+            }
+            if (i < length) {
+                continue;
+            }
+            if (key.length() < next) {
+                found[index] = prefix;
+            } else if (key.length() == next) {
+                found[index] = node.isEndNode() || (prefix && hasSons);
+            } else if (hasSons) {
+                groups[end] = ((long) key.charAt(next) << 32) | index;
+                sorted &= (end == from || groups[end - 1] <= groups[end]);
+                end++;
+            }
+        }
+        if (!sorted) {
+            Arrays.sort(groups, from, end);
+        }
+        for (int position = from; position < end; position++) {
+            order[position] = (int) groups[position];
+        }
+        return end;
+    }
+
+    /**
+     * Returns the end of the group of keys sharing the next letter.
+     *
+     * @param from First position of the group (inclusive).
+     * @param to End (exclusive) of the keys sorted by next letter.
+     * @return The end (exclusive) of the group of keys with the same next
+     * letter as the key at the first position.
+     */
+    private int groupEnd(int from, int to) {
+        long letter = groups[from] >>> 32;
+        int end = from + 1;
+        while (end < to && (groups[end] >>> 32) == letter) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Returns the next letter of the key at the given position, once the keys
+     * have been sorted by their next letter.
+     *
+     * @param position Position in the order.
+     * @return The next letter of the key at the position.
+     */
+    private char letter(int position) {
+        return (char) (groups[position] >>> 32);
+    }
+
+    /**
+     * Looks up a single key from the node it has reached.
+     *
+     * @param node Node reached by the key.
+     * @param start Index of the key where the content of the node starts.
+     * @param index Position of the key in the batch.
+     */
+    private void single(TrieNode node, int start, int index) {
+        String key = keys[index];
+        found[index] = (prefix ? node.startsWith(key, start, key.length()) : node.find(key, start, key.length()) != null);
+    }
+
+    /**
+     * Task looking up a group of keys that has reached a node. Large groups
+     * fork one task per son.
+     */
+    private final class LookupTask extends RecursiveAction {
+
+        /**
+         * Serial version UID.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Node reached by the group.
+         */
+        private final TrieNode node;
+        /**
+         * Index of the keys where the content of the node starts.
+         */
+        private final int start;
+        /**
+         * First position of the group in the order (inclusive).
+         */
+        private final int from;
+        /**
+         * Last position of the group in the order (exclusive).
+         */
+        private final int to;
+
+        /**
+         * LookupTask constructor.
+         *
+         * @param node Node reached by the group.
+         * @param start Index of the keys where the content of the node starts.
+         * @param from First position of the group in the order (inclusive).
+         * @param to Last position of the group in the order (exclusive).
+         */
+        LookupTask(TrieNode node, int start, int from, int to) {
+            this.node = node;
+            this.start = start;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < PARALLEL_THRESHOLD) {
+                lookup(node, start, from, to);
+                return;
+            }
+            int end = group(node, start, from, to);
+            int sonStart = start + node.content().length + 1;
+            List<LookupTask> tasks = new ArrayList<LookupTask>();
+            for (int groupStart = from; groupStart < end;) {
+                int groupEnd = groupEnd(groupStart, end);
+                TrieNode son = node.sons().get(letter(groupStart));
+                if (son != null) {
+                    tasks.add(new LookupTask(son, sonStart, groupStart, groupEnd));
+                }
+                groupStart = groupEnd;
+            }
+            invokeAll(tasks);
+        }
+    }
+}
@@ -0,0 +1,658 @@
+package trie;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Trie whose keys are sequences of bytes, meant for keys that arrive encoded in
+ * UTF-8 (or any other byte encoding) and that do not need to be decoded into
+ * strings. The keys are read in place from byte arrays or byte buffers, and
+ * the nodes store the bytes of their content in byte arrays, which takes half
+ * the memory of the char arrays of {@link Trie} for ASCII keys. The trie
+ * follows the same rules as {@link Trie}: nodes aggregate the bytes shared by a
+ * single branch, they are split when two keys diverge and fused back when a
+ * removal leaves a node with a single son.
+ *
+ * Key slices are given by an absolute offset and a length. For byte buffers
+ * the offset is an index of the buffer, regardless of its position, and the
+ * position and limit of the buffer are not modified.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class ByteTrie {
+
+    /**
+     * Root node of the trie, it never has content.
+     */
+    private final ByteTrieNode root = new ByteTrieNode(ByteTrieNode.EMPTY_CONTENT, false);
+
+    /**
+     * Inserts a key into the trie.
+     *
+     * @param key Array containing the key.
+     * @param offset Index of the first byte of the key.
+     * @param length Number of bytes of the key.
+     * @throws IndexOutOfBoundsException If the slice is out of the array.
+     */
+    public void insert(byte[] key, int offset, int length) {
+        checkSlice(key.length, offset, length);
+        root.insert(key, null, offset, offset + length);
+    }
+
+    /**
+     * Inserts a key into the trie.
+     *
+     * @param key Buffer containing the key.
+     * @param offset Index of the first byte of the key in the buffer.
+     * @param length Number of bytes of the key.
+     * @throws IndexOutOfBoundsException If the slice is out of the limit of the
+     * buffer.
+     */
+    public void insert(ByteBuffer key, int offset, int length) {
+        checkSlice(key.limit(), offset, length);
+        root.insert(null, key, offset, offset + length);
+    }
+
+    /**
+     * Inserts the UTF-8 encoding of a word into the trie.
+     *
+     * @param word Word to insert in the trie.
+     */
+    public void insert(String word) {
+        if (word != null) {
+            byte[] key = word.getBytes(StandardCharsets.UTF_8);
+            insert(key, 0, key.length);
+        }
+    }
+
+    /**
+     * Removes a key from the trie.
+     *
+     * @param key Array containing the key.
+     * @param offset Index of the first byte of the key.
+     * @param length Number of bytes of the key.
+     * @return True if the key was in the trie, false otherwise.
+     * @throws IndexOutOfBoundsException If the slice is out of the array.
+     */
+    public boolean remove(byte[] key, int offset, int length) {
+        checkSlice(key.length, offset, length);
+        return root.remove(key, null, offset, offset + length);
+    }
+
+    /**
+     * Removes a key from the trie.
+     *
+     * @param key Buffer containing the key.
+     * @param offset Index of the first byte of the key in the buffer.
+     * @param length Number of bytes of the key.
+     * @return True if the key was in the trie, false otherwise.
+     * @throws IndexOutOfBoundsException If the slice is out of the limit of the
+     * buffer.
+     */
+    public boolean remove(ByteBuffer key, int offset, int length) {
+        checkSlice(key.limit(), offset, length);
+        return root.remove(null, key, offset, offset + length);
+    }
+
+    /**
+     * Removes the UTF-8 encoding of a word from the trie.
+     *
+     * @param word Word to be removed from the trie.
+     * @return True if the word was in the trie, false otherwise.
+     */
+    public boolean remove(String word) {
+        if (word == null) {
+            return false;
+        }
+        byte[] key = word.getBytes(StandardCharsets.UTF_8);
+        return remove(key, 0, key.length);
+    }
+
+    /**
+     * Returns true if the key is in the trie, false otherwise.
+     *
+     * @param key Array containing the key.
+     * @param offset Index of the first byte of the key.
+     * @param length Number of bytes of the key.
+     * @return True if the key is in the trie, false otherwise.
+     * @throws IndexOutOfBoundsException If the slice is out of the array.
+     */
+    public boolean search(byte[] key, int offset, int length) {
+        checkSlice(key.length, offset, length);
+        return root.search(key, null, offset, offset + length, false);
+    }
+
+    /**
+     * Returns true if the key is in the trie, false otherwise.
+     *
+     * @param key Buffer containing the key.
+     * @param offset Index of the first byte of the key in the buffer.
+     * @param length Number of bytes of the key.
+     * @return True if the key is in the trie, false otherwise.
+     * @throws IndexOutOfBoundsException If the slice is out of the limit of the
+     * buffer.
+     */
+    public boolean search(ByteBuffer key, int offset, int length) {
+        checkSlice(key.limit(), offset, length);
+        return root.search(null, key, offset, offset + length, false);
+    }
+
+    /**
+     * Returns true if the UTF-8 encoding of a word is in the trie, false
+     * otherwise.
+     *
+     * @param word Word to search in the trie.
+     * @return True if the word is in the trie, false otherwise.
+     */
+    public boolean search(String word) {
+        if (word == null) {
+            return false;
+        }
+        byte[] key = word.getBytes(StandardCharsets.UTF_8);
+        return search(key, 0, key.length);
+    }
+
+    /**
+     * Returns true if there is any key in the trie that starts with the given
+     * prefix, false otherwise.
+     *
+     * @param prefix Array containing the prefix.
+     * @param offset Index of the first byte of the prefix.
+     * @param length Number of bytes of the prefix.
+     * @return True if there is any key in the trie that starts with the
+     * prefix, false otherwise.
+     * @throws IndexOutOfBoundsException If the slice is out of the array.
+     */
+    public boolean startsWith(byte[] prefix, int offset, int length) {
+        checkSlice(prefix.length, offset, length);
+        return root.search(prefix, null, offset, offset + length, true);
+    }
+
+    /**
+     * Returns true if there is any key in the trie that starts with the given
+     * prefix, false otherwise.
+     *
+     * @param prefix Buffer containing the prefix.
+     * @param offset Index of the first byte of the prefix in the buffer.
+     * @param length Number of bytes of the prefix.
+     * @return True if there is any key in the trie that starts with the
+     * prefix, false otherwise.
+     * @throws IndexOutOfBoundsException If the slice is out of the limit of the
+     * buffer.
+     */
+    public boolean startsWith(ByteBuffer prefix, int offset, int length) {
+        checkSlice(prefix.limit(), offset, length);
+        return root.search(null, prefix, offset, offset + length, true);
+    }
+
+    /**
+     * Returns true if there is any key in the trie that starts with the UTF-8
+     * encoding of the given prefix, false otherwise.
+     *
+     * @param prefix Prefix to check in the trie.
+     * @return True if there is any key in the trie that starts with the
+     * prefix, false otherwise.
+     */
+    public boolean startsWith(String prefix) {
+        if (prefix == null) {
+            return false;
+        }
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        return startsWith(key, 0, key.length);
+    }
+
+    /**
+     * Returns the number of nodes of the trie, the root included.
+     *
+     * @return The number of nodes of the trie.
+     */
+    public int nodeCount() {
+        return root.nodeCount();
+    }
+
+    /**
+     * Checks that the given offset and length delimit a valid slice.
+     *
+     * @param size Size of the array or limit of the buffer.
+     * @param offset Index of the first byte of the slice.
+     * @param length Number of bytes of the slice.
+     * @throws IndexOutOfBoundsException If the slice is not within the array
+     * or buffer.
+     */
+    private static void checkSlice(int size, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > size - length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length + ", size: " + size);
+        }
+    }
+}
+
+/**
+ * Node of a {@link ByteTrie}. The sons are indexed by the byte of the edge that
+ * leads to them: nodes with a few sons keep the bytes in a sorted array (in
+ * unsigned order) and search them with a binary search, nodes with many sons
+ * use an array of 256 positions indexed directly by the byte.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+final class ByteTrieNode {
+
+    /**
+     * Content shared by all the nodes without bytes in their content.
+     */
+    static final byte[] EMPTY_CONTENT = new byte[0];
+    /**
+     * Maximum number of sons kept in a sorted array before switching to an
+     * array indexed by byte.
+     */
+    static final int MAX_SORTED_SIZE = 48;
+
+    /**
+     * Bytes of the node (present if only one key of the trie contains them).
+     */
+    private byte[] content;
+    /**
+     * Sorted bytes of the edges leading to the sons, null if the sons are
+     * indexed directly by byte or the node is a leaf.
+     */
+    private byte[] keys;
+    /**
+     * Sons of the node, in the order of their bytes or indexed by byte. Null
+     * for leaves.
+     */
+    private ByteTrieNode[] sons;
+    /**
+     * Number of sons.
+     */
+    private int sonCount;
+    /**
+     * True if a key ends in the node.
+     */
+    private boolean endNode;
+
+    /**
+     * ByteTrieNode constructor for a leaf.
+     *
+     * @param content Bytes of the node.
+     * @param endNode True if a key ends in the node.
+     */
+    ByteTrieNode(byte[] content, boolean endNode) {
+        this.content = content;
+        this.endNode = endNode;
+    }
+
+    /**
+     * Inserts a key. This method should only be used in the root node of the
+     * trie.
+     *
+     * @param array Array containing the key, null to read it from the buffer.
+     * @param buffer Buffer containing the key, used if there is no array.
+     * @param from Index of the first byte of the key.
+     * @param to Index after the last byte of the key.
+     */
+    void insert(byte[] array, ByteBuffer buffer, int from, int to) {
+        ByteTrieNode node = this;
+        int idx = from;
+        while (true) {
+            byte[] nodeContent = node.content;
+            int common = 0;
+            while (common < nodeContent.length && idx + common < to && nodeContent[common] == byteAt(array, buffer, idx + common)) {
+                common++;
+            }
+            if (common < nodeContent.length) {
+                node.split(common);
+            }
+            idx += common;
+            if (idx == to) {
+                node.endNode = true;
+                return;
+            }
+            byte letter = byteAt(array, buffer, idx);
+            ByteTrieNode son = node.son(letter);
+            if (son == null) {
+                node.putSon(letter, new ByteTrieNode(copy(array, buffer, idx + 1, to), true));
+                return;
+            }
+            node = son;
+            idx++;
+        }
+    }
+
+    /**
+     * Removes a key. This method should only be used in the root node of the
+     * trie. The nodes left without keys are dropped and the nodes left with a
+     * single son and no key are fused with the son.
+     *
+     * @param array Array containing the key, null to read it from the buffer.
+     * @param buffer Buffer containing the key, used if there is no array.
+     * @param from Index of the first byte of the key.
+     * @param to Index after the last byte of the key.
+     * @return True if the key was in the trie, false otherwise.
+     */
+    boolean remove(byte[] array, ByteBuffer buffer, int from, int to) {
+        ByteTrieNode[] path = new ByteTrieNode[16];
+        byte[] letters = new byte[16];
+        int depth = 0;
+        ByteTrieNode node = this;
+        int idx = from;
+        while (true) {
+            if (depth + 1 == path.length) {
+                path = Arrays.copyOf(path, path.length * 2);
+                letters = Arrays.copyOf(letters, path.length);
+            }
+            path[depth] = node;
+            if (!node.matches(array, buffer, idx, to)) {
+                return false;
+            }
+            idx += node.content.length;
+            if (idx == to) {
+                break;
+            }
+            byte letter = byteAt(array, buffer, idx);
+            letters[++depth] = letter;
+            node = node.son(letter);
+            if (node == null) {
+                return false;
+            }
+            idx++;
+        }
+        if (!node.endNode) {
+            return false;
+        }
+        node.endNode = false;
+        while (depth > 0) {
+            node = path[depth];
+            if (node.endNode) {
+                break;
+            }
+            if (node.sonCount == 0) {
+                path[depth - 1].removeSon(letters[depth]);
+                depth--;
+                continue;
+            }
+            if (node.sonCount == 1) {
+                node.fuse();
+            }
+            break;
+        }
+        return true;
+    }
+
+    /**
+     * Searches a key or checks a prefix. This method should only be used in
+     * the root node of the trie.
+     *
+     * @param array Array containing the key or prefix, null to read it from
+     * the buffer.
+     * @param buffer Buffer containing the key or prefix, used if there is no
+     * array.
+     * @param from Index of the first byte of the key or prefix.
+     * @param to Index after the last byte of the key or prefix.
+     * @param prefix True to check a prefix, false to search a key.
+     * @return True if the key or prefix is found, false otherwise.
+     */
+    boolean search(byte[] array, ByteBuffer buffer, int from, int to, boolean prefix) {
+        ByteTrieNode node = this;
+        int idx = from;
+        while (true) {
+            byte[] nodeContent = node.content;
+            int length = Math.min(nodeContent.length, to - idx);
+            if (!prefix && length < nodeContent.length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (nodeContent[i] != byteAt(array, buffer, idx + i)) {
+                    return false;
+                }
+            }
+            idx += length;
+            if (idx == to) {
+                return node.endNode || (prefix && node.sonCount > 0);
+            }
+            node = node.son(byteAt(array, buffer, idx));
+            if (node == null) {
+                return false;
+            }
+            idx++;
+        }
+    }
+
+    /**
+     * Counts the nodes of the subtrie of this node.
+     *
+     * @return The number of nodes of the subtrie, this node included.
+     */
+    int nodeCount() {
+        int count = 0;
+        ArrayDeque<ByteTrieNode> pending = new ArrayDeque<ByteTrieNode>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            ByteTrieNode node = pending.pop();
+            count++;
+            for (int i = 0; node.sons != null && i < node.sons.length; i++) {
+                if (node.sons[i] != null) {
+                    pending.push(node.sons[i]);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether the content of the node matches the key from the given
+     * index.
+     *
+     * @param array Array containing the key, null to read it from the buffer.
+     * @param buffer Buffer containing the key, used if there is no array.
+     * @param idx Index of the key where the content should start.
+     * @param to Index after the last byte of the key.
+     * @return True if the whole content is found in the key at the index.
+     */
+    private boolean matches(byte[] array, ByteBuffer buffer, int idx, int to) {
+        if (to - idx < content.length) {
+            return false;
+        }
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] != byteAt(array, buffer, idx + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits the node: it keeps the first bytes of its content and a new son
+     * takes the rest of the content, the sons and the end node flag.
+     *
+     * @param length Number of bytes of content kept by the node.
+     */
+    private void split(int length) {
+        ByteTrieNode son = new ByteTrieNode(Arrays.copyOfRange(content, length + 1, content.length), endNode);
+        son.keys = keys;
+        son.sons = sons;
+        son.sonCount = sonCount;
+        byte letter = content[length];
+        content = (length == 0 ? EMPTY_CONTENT : Arrays.copyOf(content, length));
+        keys = new byte[]{letter};
+        sons = new ByteTrieNode[]{son};
+        sonCount = 1;
+        endNode = false;
+    }
+
+    /**
+     * Fuses the node with its only son: the node takes the byte of the edge,
+     * the content, the sons and the end node flag of the son.
+     */
+    private void fuse() {
+        byte letter = 0;
+        ByteTrieNode son = null;
+        for (int i = 0; i < sons.length; i++) {
+            if (sons[i] != null) {
+                son = sons[i];
+                letter = (keys == null ? (byte) i : keys[i]);
+                break;
+            }
+        }
+        byte[] fused = new byte[content.length + 1 + son.content.length];
+        System.arraycopy(content, 0, fused, 0, content.length);
+        fused[content.length] = letter;
+        System.arraycopy(son.content, 0, fused, content.length + 1, son.content.length);
+        content = fused;
+        keys = son.keys;
+        sons = son.sons;
+        sonCount = son.sonCount;
+        endNode = son.endNode;
+    }
+
+    /**
+     * Returns the son reached through the given byte.
+     *
+     * @param letter Byte of the edge.
+     * @return The son, null if there is no son for the given byte.
+     */
+    private ByteTrieNode son(byte letter) {
+        if (sons == null) {
+            return null;
+        }
+        if (keys == null) {
+            return sons[letter & 0xFF];
+        }
+        int position = position(letter);
+        return (position < 0 ? null : sons[position]);
+    }
+
+    /**
+     * Adds a son for a byte that has no son yet.
+     *
+     * @param letter Byte of the edge.
+     * @param son Son node.
+     */
+    private void putSon(byte letter, ByteTrieNode son) {
+        if (sons == null) {
+            keys = new byte[]{letter};
+            sons = new ByteTrieNode[]{son};
+        } else if (keys == null) {
+            sons[letter & 0xFF] = son;
+        } else if (sonCount == MAX_SORTED_SIZE) {
+            ByteTrieNode[] dense = new ByteTrieNode[256];
+            for (int i = 0; i < sonCount; i++) {
+                dense[keys[i] & 0xFF] = sons[i];
+            }
+            dense[letter & 0xFF] = son;
+            keys = null;
+            sons = dense;
+        } else {
+            int position = -position(letter) - 1;
+            byte[] newKeys = new byte[sonCount + 1];
+            ByteTrieNode[] newSons = new ByteTrieNode[sonCount + 1];
+            System.arraycopy(keys, 0, newKeys, 0, position);
+            System.arraycopy(sons, 0, newSons, 0, position);
+            newKeys[position] = letter;
+            newSons[position] = son;
+            System.arraycopy(keys, position, newKeys, position + 1, sonCount - position);
+            System.arraycopy(sons, position, newSons, position + 1, sonCount - position);
+            keys = newKeys;
+            sons = newSons;
+        }
+        sonCount++;
+    }
+
+    /**
+     * Removes the son reached through the given byte, which must exist.
+     *
+     * @param letter Byte of the edge.
+     */
+    private void removeSon(byte letter) {
+        sonCount--;
+        if (sonCount == 0) {
+            keys = null;
+            sons = null;
+        } else if (keys == null) {
+            sons[letter & 0xFF] = null;
+            if (sonCount <= MAX_SORTED_SIZE / 2) {
+                byte[] sortedKeys = new byte[sonCount];
+                ByteTrieNode[] sortedSons = new ByteTrieNode[sonCount];
+                int position = 0;
+                for (int i = 0; i < sons.length; i++) {
+                    if (sons[i] != null) {
+                        sortedKeys[position] = (byte) i;
+                        sortedSons[position++] = sons[i];
+                    }
+                }
+                keys = sortedKeys;
+                sons = sortedSons;
+            }
+        } else {
+            int position = position(letter);
+            byte[] newKeys = new byte[sonCount];
+            ByteTrieNode[] newSons = new ByteTrieNode[sonCount];
+            System.arraycopy(keys, 0, newKeys, 0, position);
+            System.arraycopy(sons, 0, newSons, 0, position);
+            System.arraycopy(keys, position + 1, newKeys, position, sonCount - position);
+            System.arraycopy(sons, position + 1, newSons, position, sonCount - position);
+            keys = newKeys;
+            sons = newSons;
+        }
+    }
+
+    /**
+     * Searches a byte in the sorted bytes of the edges.
+     *
+     * @param letter Byte to search.
+     * @return The position of the byte, or (-(insertion point) - 1) if it is
+     * not found, as {@link Arrays#binarySearch(byte[], byte)} does
+     * but in unsigned order.
+     */
+    private int position(byte letter) {
+        int target = letter & 0xFF;
+        int low = 0;
+        int high = keys.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleKey = keys[middle] & 0xFF;
+            if (middleKey < target) {
+                low = middle + 1;
+            } else if (middleKey > target) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Returns a byte of a key read in place from an array or from a buffer,
+     * so that the keys given as arrays are walked without wrapping them.
+     *
+     * @param array Array containing the key, null to read it from the buffer.
+     * @param buffer Buffer containing the key, used if there is no array.
+     * @param index Index of the byte.
+     * @return The byte at the given index.
+     */
+    private static byte byteAt(byte[] array, ByteBuffer buffer, int index) {
+        return (array != null ? array[index] : buffer.get(index));
+    }
+
+    /**
+     * Copies a slice of a key into a new array.
+     *
+     * @param array Array containing the slice, null to read it from the
+     * buffer.
+     * @param buffer Buffer containing the slice, used if there is no array.
+     * @param from Index of the first byte of the slice.
+     * @param to Index after the last byte of the slice.
+     * @return An array with the bytes of the slice.
+     */
+    private static byte[] copy(byte[] array, ByteBuffer buffer, int from, int to) {
+        if (from == to) {
+            return EMPTY_CONTENT;
+        }
+        byte[] copy = new byte[to - from];
+        for (int i = from; i < to; i++) {
+            copy[i - from] = byteAt(array, buffer, i);
+        }
+        return copy;
+    }
+}
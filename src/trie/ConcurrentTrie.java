@@ -0,0 +1,138 @@
+package trie;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Thread-safe version of the trie. The nodes are immutable: every insertion or
+ * removal builds a new version of the path of the word, copying only the nodes
+ * in that path, and publishes it by swapping the root with a compare-and-set.
+ * If another writer published a new root in the meantime, the operation is
+ * retried over the new root.
+ *
+ * Searches and prefix checks never block: they read the current root and walk
+ * a version of the trie that can no longer change, so they never see a node
+ * half split or half fused.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class ConcurrentTrie {
+
+    /**
+     * Root node of the current version of the trie.
+     */
+    private final AtomicReference<ImmutableTrieNode> root;
+
+    /**
+     * ConcurrentTrie constructor
+     */
+    public ConcurrentTrie() {
+        root = new AtomicReference<ImmutableTrieNode>(ImmutableTrieNode.EMPTY);
+    }
+
+    /**
+     * Inserts a word into the trie.
+     *
+     * @param word Word to insert in the trie.
+     */
+    public void insert(String word) {
+        if (word == null) {
+            return;
+        }
+        while (true) {
+            ImmutableTrieNode current = root.get();
+            ImmutableTrieNode updated = current.insert(word, 0);
+            if (updated == current || root.compareAndSet(current, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes a word from the trie.
+     *
+     * @param word Word to be removed from the trie.
+     */
+    public void remove(String word) {
+        if (word == null) {
+            return;
+        }
+        while (true) {
+            ImmutableTrieNode current = root.get();
+            ImmutableTrieNode updated = current.remove(word, 0);
+            if (updated == null) {
+                updated = ImmutableTrieNode.EMPTY;
+            }
+            if (updated == current || root.compareAndSet(current, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the word is in the trie, false otherwise.
+     *
+     * @param word Word to search in the trie.
+     * @return true if the word is in the trie, false otherwise.
+     */
+    public boolean search(String word) {
+        if (word == null) {
+            return false;
+        }
+        return !(root.get().find(word, 0, word.length()) == null);
+    }
+
+    /**
+     * Returns true if there is any word in the trie that starts with the given
+     * prefix, false otherwise.
+     *
+     * @param prefix Prefix to check in the trie.
+     * @return true if there is any word in the trie that starts with the given
+     * prefix, false otherwise.
+     */
+    public boolean startsWith(String prefix) {
+        if (prefix == null) {
+            return false;
+        }
+        return root.get().startsWith(prefix, 0, prefix.length());
+    }
+
+    /**
+     * Returns true if the slice of the given sequence between from (inclusive)
+     * and to (exclusive) is a word in the trie, false otherwise.
+     *
+     * @param word Sequence containing the word to search in the trie.
+     * @param from Index of the first character of the word.
+     * @param to Index after the last character of the word.
+     * @return true if the word is in the trie, false otherwise.
+     * @throws IndexOutOfBoundsException If from is negative, to is greater than
+     * the length of the sequence or from is greater than to.
+     */
+    public boolean search(CharSequence word, int from, int to) {
+        if (word == null) {
+            return false;
+        }
+        Trie.checkSlice(word, from, to);
+        return !(root.get().find(word, from, to) == null);
+    }
+
+    /**
+     * Returns true if there is any word in the trie that starts with the slice
+     * of the given sequence between from (inclusive) and to (exclusive), false
+     * otherwise.
+     *
+     * @param prefix Sequence containing the prefix to check in the trie.
+     * @param from Index of the first character of the prefix.
+     * @param to Index after the last character of the prefix.
+     * @return true if there is any word in the trie that starts with the given
+     * prefix, false otherwise.
+     * @throws IndexOutOfBoundsException If from is negative, to is greater than
+     * the length of the sequence or from is greater than to.
+     */
+    public boolean startsWith(CharSequence prefix, int from, int to) {
+        if (prefix == null) {
+            return false;
+        }
+        Trie.checkSlice(prefix, from, to);
+        return root.get().startsWith(prefix, from, to);
+    }
+}
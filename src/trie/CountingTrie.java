@@ -0,0 +1,175 @@
+package trie;
+
+/**
+ * Trie whose nodes keep the number of words of their subtrie, aimed at
+ * counting and paging through the words in lexicographic order. The counts
+ * are kept up to date by the insertions and removals, including the nodes
+ * split by an insertion and the nodes fused by a removal, so the number of
+ * words starting with a prefix, the position of a word among the words of the
+ * trie and the word at a given position are found walking a single path of
+ * the trie, visiting the sons of every node of the path at most once.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class CountingTrie extends Trie {
+
+    /**
+     * CountingTrie constructor
+     */
+    public CountingTrie() {
+        super(new CountingTrieNode());
+    }
+
+    /**
+     * Returns the number of words in the trie.
+     *
+     * @return The number of words in the trie.
+     */
+    public int size() {
+        return ((CountingTrieNode) root()).words;
+    }
+
+    /**
+     * Returns the number of words of the trie that start with the given
+     * prefix.
+     *
+     * @param prefix Prefix of the words to count.
+     * @return The number of words of the trie that start with the prefix.
+     */
+    public int countWithPrefix(String prefix) {
+        if (prefix == null) {
+            return 0;
+        }
+        TrieNode.PrefixEnd end = root().findPrefix(prefix, 0, prefix.length());
+        return (end == null ? 0 : ((CountingTrieNode) end.node).words);
+    }
+
+    /**
+     * Returns the number of words of the trie that are lower than the given
+     * word in lexicographic order (the order of
+     * {@link String#compareTo(String)}), which is the position of the word
+     * among the words of the trie if it is in the trie.
+     *
+     * @param word Word whose rank is wanted.
+     * @return The number of words of the trie lower than the word.
+     */
+    public int rank(String word) {
+        if (word == null) {
+            return 0;
+        }
+        TrieNode node = root();
+        int idx = 0;
+        int rank = 0;
+        while (true) {
+            char[] content = node.content();
+            for (int i = 0; i < content.length; i++) {
+                if (idx + i == word.length() || content[i] > word.charAt(idx + i)) {
+                    return rank;
+                } else if (content[i] < word.charAt(idx + i)) {
+                    return rank + ((CountingTrieNode) node).words;
+                }
+            }
+            idx += content.length;
+            if (idx == word.length()) {
+                return rank;
+            }
+            if (node.isEndNode()) {
+                rank++;
+            }
+            char letter = word.charAt(idx);
+            SonTable sons = node.sons();
+            TrieNode next = null;
+            for (int slot = 0; sons != null && slot < sons.slots() && sons.keyAt(slot) <= letter; slot++) {
+                TrieNode son = sons.sonAt(slot);
+                if (son == null) {
+                    continue;
+                } else if (sons.keyAt(slot) == letter) {
+                    next = son;
+                } else {
+                    rank += ((CountingTrieNode) son).words;
+                }
+            }
+            if (next == null) {
+                return rank;
+            }
+            node = next;
+            idx++;
+        }
+    }
+
+    /**
+     * Returns the word at the given position among the words of the trie in
+     * lexicographic order.
+     *
+     * @param index Position of the word, from 0 to the size of the trie
+     * (exclusive).
+     * @return The word at the given position.
+     * @throws IndexOutOfBoundsException If the position is negative or not
+     * lower than the size of the trie.
+     */
+    public String select(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+        }
+        StringBuilder word = new StringBuilder();
+        TrieNode node = root();
+        while (true) {
+            word.append(node.content());
+            if (node.isEndNode()) {
+                if (index == 0) {
+                    return word.toString();
+                }
+                index--;
+            }
+            SonTable sons = node.sons();
+            for (int slot = 0; slot < sons.slots(); slot++) {
+                TrieNode son = sons.sonAt(slot);
+                if (son == null) {
+                    continue;
+                }
+                int words = ((CountingTrieNode) son).words;
+                if (index < words) {
+                    word.append(sons.keyAt(slot));
+                    node = son;
+                    break;
+                }
+                index -= words;
+            }
+        }
+    }
+
+}
+
+/**
+ * Node of a counting trie. It keeps the number of words of its subtrie.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+class CountingTrieNode extends TrieNode {
+
+    /**
+     * Number of words in the subtrie of the node, including the word ending
+     * in it.
+     */
+    int words;
+
+    @Override
+    TrieNode newNode() {
+        return new CountingTrieNode();
+    }
+
+    @Override
+    void moveValueTo(TrieNode son) {
+        ((CountingTrieNode) son).words = words;
+    }
+
+    @Override
+    void takeValueFrom(TrieNode fusionNode) {
+        words = ((CountingTrieNode) fusionNode).words;
+    }
+
+    @Override
+    void countWord(int delta) {
+        words += delta;
+    }
+}
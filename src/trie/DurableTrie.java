@@ -0,0 +1,1201 @@
+package trie;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Trie whose words survive a restart of the process. Like a
+ * {@link ConcurrentTrie} it answers searches and prefix checks from an
+ * immutable version of the trie without ever blocking, and every insertion or
+ * removal that changes the trie is also appended to a log on disk before the
+ * call returns.
+ *
+ * Writers do not force the log to the storage device one by one: the records
+ * appended while a batch is being forced are written and forced together by a
+ * background thread (group commit), so concurrent writers share the cost of
+ * every fsync. The batches can be stretched with {@link Options#syncDelay(long)}
+ * and {@link Options#syncBatch(int)}, and {@link Options#waitForSync(boolean)}
+ * lets writers return before their record is forced, at the price of losing
+ * the last batch if the machine crashes.
+ *
+ * The log is split in numbered segments. Once
+ * {@link Options#snapshotThreshold(long)} records have been appended since
+ * the last snapshot, or when {@link #snapshot()} is called, the log moves to a
+ * new segment and a snapshot of the trie as it was at the end of the previous
+ * segment is written by another background thread. When the snapshot is
+ * complete the previous segments and snapshots are deleted. Opening the trie
+ * loads the latest snapshot, which rebuilds the nodes as they were without
+ * inserting any word, and replays only the segments written after it, so the
+ * work done by the recovery beyond reading the snapshot depends on the changes
+ * since the last snapshot and not on the size of the dictionary. A record torn
+ * by a crash at the end of the last segment is detected by its checksum and
+ * discarded.
+ *
+ * The directory holds the snapshots and the segments, named after their
+ * sequence number written as 16 hexadecimal digits, and a lock file held while
+ * the trie is open. The format of the snapshots is described in
+ * {@link TrieSnapshot} and the format of the segments (version 1) is, in
+ * big-endian byte order:
+ * <pre>
+ * int    magic number 0x54574C47 ("TWLG")
+ * int    version
+ * long   sequence number of the segment
+ * records, each one as:
+ *   byte   1 for an insertion, 2 for a removal
+ *   int    length of the word
+ *   char[] letters of the word
+ *   int    CRC-32 of the previous fields of the record
+ * </pre>
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public final class DurableTrie implements Closeable {
+
+    /**
+     * Magic number at the beginning of every log segment.
+     */
+    static final int MAGIC = 0x54574C47;
+    /**
+     * Version of the log segment format written by this class.
+     */
+    static final int VERSION = 1;
+    /**
+     * Size in bytes of the header of a log segment.
+     */
+    static final int HEADER_SIZE = 16;
+    /**
+     * Size in bytes of a log record without the letters of its word.
+     */
+    static final int RECORD_OVERHEAD = 9;
+    /**
+     * Operation code of the insertions in the log.
+     */
+    static final byte INSERT = 1;
+    /**
+     * Operation code of the removals in the log.
+     */
+    static final byte REMOVE = 2;
+    /**
+     * Prefix of the names of the log segments.
+     */
+    static final String LOG_PREFIX = "log-";
+    /**
+     * Suffix of the names of the log segments.
+     */
+    static final String LOG_SUFFIX = ".wal";
+    /**
+     * Prefix of the names of the snapshots.
+     */
+    static final String SNAPSHOT_PREFIX = "snapshot-";
+    /**
+     * Suffix of the names of the snapshots.
+     */
+    static final String SNAPSHOT_SUFFIX = ".snap";
+    /**
+     * Suffix of the snapshots that are still being written.
+     */
+    static final String TEMPORARY_SUFFIX = ".tmp";
+    /**
+     * Name of the lock file.
+     */
+    static final String LOCK_FILE = "lock";
+
+    /**
+     * Settings of a durable trie. Every setter returns the same object so they
+     * can be chained.
+     */
+    public static final class Options {
+
+        /**
+         * Number of records that force a delayed batch to be synced.
+         */
+        private int syncBatch = 1024;
+        /**
+         * Time in nanoseconds the first record of a batch waits for more
+         * records before the batch is synced.
+         */
+        private long syncDelay = 0;
+        /**
+         * True if writers wait for their record to be synced.
+         */
+        private boolean waitForSync = true;
+        /**
+         * Number of records after which a snapshot is taken, 0 to disable the
+         * automatic snapshots.
+         */
+        private long snapshotThreshold = 1 << 20;
+
+        /**
+         * Sets the number of records that make a batch to be synced without
+         * waiting for the rest of its delay (1024 by default). It has no effect
+         * while the delay is 0.
+         *
+         * @param records Number of records.
+         * @return These options.
+         * @throws IllegalArgumentException If the number of records is not
+         * positive.
+         */
+        public Options syncBatch(int records) {
+            if (records < 1) {
+                throw new IllegalArgumentException("Sync batch must be positive: " + records);
+            }
+            syncBatch = records;
+            return this;
+        }
+
+        /**
+         * Sets how long the first record of a batch waits for more records
+         * before the batch is synced (0 by default). With no delay, a batch
+         * is synced as soon as the previous one is done, so only the records
+         * appended during an fsync are batched together.
+         *
+         * @param millis Delay in milliseconds.
+         * @return These options.
+         * @throws IllegalArgumentException If the delay is negative.
+         */
+        public Options syncDelay(long millis) {
+            if (millis < 0) {
+                throw new IllegalArgumentException("Sync delay must not be negative: " + millis);
+            }
+            syncDelay = TimeUnit.MILLISECONDS.toNanos(millis);
+            return this;
+        }
+
+        /**
+         * Sets whether insertions and removals wait for their record to be
+         * synced before returning (true by default). If they do not, a crash
+         * of the machine loses the records not synced yet, but never leaves
+         * the log inconsistent.
+         *
+         * @param wait True to wait for the records to be synced.
+         * @return These options.
+         */
+        public Options waitForSync(boolean wait) {
+            waitForSync = wait;
+            return this;
+        }
+
+        /**
+         * Sets the number of records appended to the log after which a
+         * snapshot is taken in background (1048576 by default).
+         *
+         * @param records Number of records, 0 to take snapshots only when
+         * {@link DurableTrie#snapshot()} is called.
+         * @return These options.
+         * @throws IllegalArgumentException If the number of records is
+         * negative.
+         */
+        public Options snapshotThreshold(long records) {
+            if (records < 0) {
+                throw new IllegalArgumentException("Snapshot threshold must not be negative: " + records);
+            }
+            snapshotThreshold = records;
+            return this;
+        }
+    }
+
+    /**
+     * Directory holding the snapshots and the log.
+     */
+    private final Path directory;
+    /**
+     * Number of records that force a delayed batch to be synced.
+     */
+    private final int syncBatch;
+    /**
+     * Time in nanoseconds the first record of a batch waits for more records.
+     */
+    private final long syncDelay;
+    /**
+     * True if writers wait for their record to be synced.
+     */
+    private final boolean waitForSync;
+    /**
+     * Number of records after which a snapshot is taken, 0 if disabled.
+     */
+    private final long snapshotThreshold;
+    /**
+     * Channel of the lock file.
+     */
+    private final FileChannel lockChannel;
+    /**
+     * Lock preventing other processes from opening the same directory.
+     */
+    private final FileLock fileLock;
+    /**
+     * Number of records replayed when the trie was opened.
+     */
+    private final long replayedRecords;
+    /**
+     * Root node of the current version of the trie.
+     */
+    private volatile ImmutableTrieNode root;
+
+    /**
+     * Lock guarding the state shared by the writers and the background
+     * threads.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * Signaled when records are appended or a snapshot is requested.
+     */
+    private final Condition appendedCondition = lock.newCondition();
+    /**
+     * Signaled when a batch is synced or the log fails.
+     */
+    private final Condition syncedCondition = lock.newCondition();
+    /**
+     * Signaled when a snapshot completes.
+     */
+    private final Condition snapshotCondition = lock.newCondition();
+    /**
+     * Checksum used to encode the records.
+     */
+    private final CRC32 checksum = new CRC32();
+    /**
+     * Encoded records not written to the log yet.
+     */
+    private byte[] pending = new byte[1 << 12];
+    /**
+     * Buffer of the batch last written, reused as pending buffer.
+     */
+    private byte[] spare = new byte[1 << 12];
+    /**
+     * Number of bytes of the pending records.
+     */
+    private int pendingLength;
+    /**
+     * Number of pending records.
+     */
+    private int pendingRecords;
+    /**
+     * Time in nanoseconds at which the first pending record was appended.
+     */
+    private long firstPendingTime;
+    /**
+     * Number of records appended since the trie was opened.
+     */
+    private long appended;
+    /**
+     * Number of records appended since the trie was opened and already
+     * synced.
+     */
+    private long synced;
+    /**
+     * Number of fsyncs of the log since the trie was opened.
+     */
+    private long syncs;
+    /**
+     * Number of records appended since the last snapshot started.
+     */
+    private long recordsSinceSnapshot;
+    /**
+     * True if the log has to move to a new segment and take a snapshot.
+     */
+    private boolean rotationRequested;
+    /**
+     * Number of snapshots requested by {@link #snapshot()}.
+     */
+    private long snapshotRequests;
+    /**
+     * Greatest request number covered by a completed snapshot.
+     */
+    private long snapshotsDone;
+    /**
+     * Number of snapshots started and not completed.
+     */
+    private int snapshotsRunning;
+    /**
+     * Error of the log, null while it works.
+     */
+    private IOException failure;
+    /**
+     * Error of the last snapshot failed, null if none failed.
+     */
+    private IOException snapshotFailure;
+    /**
+     * True once the trie is closed.
+     */
+    private boolean closed;
+
+    /**
+     * Segment of the log the records are written to. Only used by the sync
+     * thread once the trie is open.
+     */
+    private FileChannel segment;
+    /**
+     * Sequence number of the current segment. Only used by the sync thread
+     * once the trie is open.
+     */
+    private long sequence;
+    /**
+     * Thread writing and syncing the batches of records.
+     */
+    private final Thread syncThread;
+    /**
+     * Executor writing the snapshots.
+     */
+    private final ExecutorService snapshotExecutor;
+
+    /**
+     * DurableTrie constructor. Locks the directory, recovers the trie and
+     * starts the background threads.
+     *
+     * @param directory Directory holding the snapshots and the log.
+     * @param options Settings of the trie.
+     * @throws IOException If the directory is already open or the trie cannot
+     * be recovered.
+     */
+    private DurableTrie(Path directory, Options options) throws IOException {
+        this.directory = directory;
+        syncBatch = options.syncBatch;
+        syncDelay = options.syncDelay;
+        waitForSync = options.waitForSync;
+        snapshotThreshold = options.snapshotThreshold;
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        boolean recovered = false;
+        try {
+            FileLock acquired;
+            try {
+                acquired = lockChannel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                acquired = null;
+            }
+            if (acquired == null) {
+                throw new IOException("Trie directory already open: " + directory);
+            }
+            fileLock = acquired;
+            replayedRecords = recover();
+            recovered = true;
+        } finally {
+            if (!recovered) {
+                if (segment != null) {
+                    segment.close();
+                }
+                lockChannel.close();
+            }
+        }
+        recordsSinceSnapshot = replayedRecords;
+        rotationRequested = (snapshotThreshold > 0 && replayedRecords >= snapshotThreshold);
+        snapshotExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "trie-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        syncThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                syncLoop();
+            }
+        }, "trie-log-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+    }
+
+    /**
+     * Opens the trie stored in the given directory with the default settings,
+     * creating an empty one if the directory does not hold any.
+     *
+     * @param directory Directory holding the snapshots and the log.
+     * @return The recovered trie.
+     * @throws IOException If the directory is already open, by this or by
+     * other process, or the trie cannot be recovered.
+     */
+    public static DurableTrie open(Path directory) throws IOException {
+        return new DurableTrie(directory, new Options());
+    }
+
+    /**
+     * Opens the trie stored in the given directory, creating an empty one if
+     * the directory does not hold any.
+     *
+     * @param directory Directory holding the snapshots and the log.
+     * @param options Settings of the trie.
+     * @return The recovered trie.
+     * @throws IOException If the directory is already open, by this or by
+     * other process, or the trie cannot be recovered.
+     */
+    public static DurableTrie open(Path directory, Options options) throws IOException {
+        return new DurableTrie(directory, options);
+    }
+
+    /**
+     * Inserts a word into the trie. The word can be searched as soon as it is
+     * inserted, even before its record is synced.
+     *
+     * @param word Word to insert in the trie.
+     * @throws IOException If the trie is closed or the log failed. If the
+     * failure happened while syncing the record of this same insertion, the
+     * word stays in memory but it may not survive a restart.
+     */
+    public void insert(String word) throws IOException {
+        if (word == null) {
+            return;
+        }
+        long ticket = append(INSERT, word);
+        if (waitForSync) {
+            awaitSync(ticket);
+        }
+    }
+
+    /**
+     * Removes a word from the trie. The word stops being found as soon as it
+     * is removed, even before its record is synced.
+     *
+     * @param word Word to be removed from the trie.
+     * @throws IOException If the trie is closed or the log failed. If the
+     * failure happened while syncing the record of this same removal, the word
+     * stays removed in memory but the removal may not survive a restart.
+     */
+    public void remove(String word) throws IOException {
+        if (word == null) {
+            return;
+        }
+        long ticket = append(REMOVE, word);
+        if (waitForSync) {
+            awaitSync(ticket);
+        }
+    }
+
+    /**
+     * Returns true if the word is in the trie, false otherwise.
+     *
+     * @param word Word to search in the trie.
+     * @return true if the word is in the trie, false otherwise.
+     */
+    public boolean search(String word) {
+        if (word == null) {
+            return false;
+        }
+        return !(root.find(word, 0, word.length()) == null);
+    }
+
+    /**
+     * Returns true if there is any word in the trie that starts with the given
+     * prefix, false otherwise.
+     *
+     * @param prefix Prefix to check in the trie.
+     * @return true if there is any word in the trie that starts with the given
+     * prefix, false otherwise.
+     */
+    public boolean startsWith(String prefix) {
+        if (prefix == null) {
+            return false;
+        }
+        return root.startsWith(prefix, 0, prefix.length());
+    }
+
+    /**
+     * Returns true if the slice of the given sequence between from (inclusive)
+     * and to (exclusive) is a word in the trie, false otherwise.
+     *
+     * @param word Sequence containing the word to search in the trie.
+     * @param from Index of the first character of the word.
+     * @param to Index after the last character of the word.
+     * @return true if the word is in the trie, false otherwise.
+     * @throws IndexOutOfBoundsException If from is negative, to is greater than
+     * the length of the sequence or from is greater than to.
+     */
+    public boolean search(CharSequence word, int from, int to) {
+        if (word == null) {
+            return false;
+        }
+        Trie.checkSlice(word, from, to);
+        return !(root.find(word, from, to) == null);
+    }
+
+    /**
+     * Returns true if there is any word in the trie that starts with the slice
+     * of the given sequence between from (inclusive) and to (exclusive), false
+     * otherwise.
+     *
+     * @param prefix Sequence containing the prefix to check in the trie.
+     * @param from Index of the first character of the prefix.
+     * @param to Index after the last character of the prefix.
+     * @return true if there is any word in the trie that starts with the given
+     * prefix, false otherwise.
+     * @throws IndexOutOfBoundsException If from is negative, to is greater than
+     * the length of the sequence or from is greater than to.
+     */
+    public boolean startsWith(CharSequence prefix, int from, int to) {
+        if (prefix == null) {
+            return false;
+        }
+        Trie.checkSlice(prefix, from, to);
+        return root.startsWith(prefix, from, to);
+    }
+
+    /**
+     * Waits until every record appended so far is synced. Useful when the
+     * writers do not wait for their own records.
+     *
+     * @throws IOException If the trie is closed or the log failed.
+     */
+    public void sync() throws IOException {
+        long ticket;
+        lock.lock();
+        try {
+            checkWritable();
+            ticket = appended;
+        } finally {
+            lock.unlock();
+        }
+        awaitSync(ticket);
+    }
+
+    /**
+     * Takes a snapshot of the trie and waits until it is complete, so that a
+     * recovery right after this call does not replay any record appended
+     * before it.
+     *
+     * @throws IOException If the trie is closed, the log failed or a snapshot
+     * failed to be written.
+     */
+    public void snapshot() throws IOException {
+        lock.lock();
+        try {
+            checkWritable();
+            long request = ++snapshotRequests;
+            rotationRequested = true;
+            appendedCondition.signal();
+            while (snapshotsDone < request) {
+                if (failure != null) {
+                    throw new IOException("Trie log failed", failure);
+                }
+                try {
+                    snapshotCondition.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the snapshot");
+                }
+            }
+            if (snapshotFailure != null) {
+                throw new IOException("Trie snapshot failed", snapshotFailure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of log records replayed when the trie was opened.
+     *
+     * @return The number of log records replayed when the trie was opened.
+     */
+    public long replayedRecords() {
+        return replayedRecords;
+    }
+
+    /**
+     * Returns the number of times the log was synced since the trie was
+     * opened.
+     *
+     * @return The number of fsyncs of the log.
+     */
+    long syncs() {
+        lock.lock();
+        try {
+            return syncs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the trie after syncing every record appended and waiting for the
+     * snapshot in progress, if any. Closing a closed trie has no effect.
+     *
+     * @throws IOException If the log or a snapshot failed.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            appendedCondition.signal();
+        } finally {
+            lock.unlock();
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                syncThread.join();
+                snapshotExecutor.shutdown();
+                snapshotExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        try {
+            segment.close();
+        } finally {
+            fileLock.release();
+            lockChannel.close();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new IOException("Trie log failed", failure);
+            }
+            if (snapshotFailure != null) {
+                throw new IOException("Trie snapshot failed", snapshotFailure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies an insertion or a removal to the trie and appends its record to
+     * the pending batch if the trie changed.
+     *
+     * @param operation Operation code.
+     * @param word Word inserted or removed.
+     * @return Number of records that have to be synced for the operation to be
+     * durable.
+     * @throws IOException If the trie is closed or the log failed.
+     */
+    private long append(byte operation, String word) throws IOException {
+        lock.lock();
+        try {
+            checkWritable();
+            ImmutableTrieNode current = root;
+            ImmutableTrieNode updated = apply(current, operation, word);
+            if (updated != current) {
+                encode(operation, word);
+                root = updated;
+            }
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Encodes a record at the end of the pending batch and wakes up the sync
+     * thread. It must be called holding the lock.
+     *
+     * @param operation Operation code.
+     * @param word Word inserted or removed.
+     */
+    private void encode(byte operation, String word) {
+        int length = word.length();
+        int size = RECORD_OVERHEAD + 2 * length;
+        if (pendingLength + size > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pendingLength + size, 2 * pending.length));
+        }
+        int position = pendingLength;
+        pending[position] = operation;
+        putInt(pending, position + 1, length);
+        for (int i = 0, idx = position + 5; i < length; i++, idx += 2) {
+            char letter = word.charAt(i);
+            pending[idx] = (byte) (letter >>> 8);
+            pending[idx + 1] = (byte) letter;
+        }
+        checksum.reset();
+        checksum.update(pending, position, size - 4);
+        putInt(pending, position + size - 4, (int) checksum.getValue());
+        if (pendingRecords == 0) {
+            firstPendingTime = System.nanoTime();
+        }
+        pendingLength += size;
+        pendingRecords++;
+        appended++;
+        recordsSinceSnapshot++;
+        if (snapshotThreshold > 0 && recordsSinceSnapshot >= snapshotThreshold && snapshotsRunning == 0) {
+            rotationRequested = true;
+        }
+        appendedCondition.signal();
+    }
+
+    /**
+     * Waits until the given number of records is synced.
+     *
+     * @param ticket Number of records appended since the trie was opened that
+     * have to be synced.
+     * @throws IOException If the log failed or the thread was interrupted.
+     */
+    private void awaitSync(long ticket) throws IOException {
+        lock.lock();
+        try {
+            while (synced < ticket) {
+                if (failure != null) {
+                    throw new IOException("Trie log failed", failure);
+                }
+                try {
+                    syncedCondition.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the log to be synced");
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks that the trie accepts changes. It must be called holding the
+     * lock.
+     *
+     * @throws IOException If the trie is closed or the log failed.
+     */
+    private void checkWritable() throws IOException {
+        if (closed) {
+            throw new IOException("Trie closed");
+        }
+        if (failure != null) {
+            throw new IOException("Trie log failed", failure);
+        }
+    }
+
+    /**
+     * Body of the sync thread. It takes the pending batch, writes and syncs
+     * it, and moves to a new segment and starts a snapshot when requested,
+     * until the trie is closed and no records are left.
+     */
+    private void syncLoop() {
+        while (true) {
+            byte[] batch;
+            int length;
+            long ticket;
+            ImmutableTrieNode snapshotRoot = null;
+            long request = 0;
+            lock.lock();
+            try {
+                while (pendingRecords == 0 && !rotationRequested && !closed) {
+                    appendedCondition.awaitUninterruptibly();
+                }
+                if (pendingRecords == 0 && !rotationRequested) {
+                    return;
+                }
+                if (syncDelay > 0) {
+                    long remaining = firstPendingTime + syncDelay - System.nanoTime();
+                    while (pendingRecords > 0 && pendingRecords < syncBatch && !rotationRequested && !closed && remaining > 0) {
+                        try {
+                            remaining = appendedCondition.awaitNanos(remaining);
+                        } catch (InterruptedException e) {
+                            remaining = firstPendingTime + syncDelay - System.nanoTime();
+                        }
+                    }
+                }
+                batch = pending;
+                length = pendingLength;
+                ticket = appended;
+                pending = spare;
+                pendingLength = 0;
+                pendingRecords = 0;
+                if (rotationRequested) {
+                    rotationRequested = false;
+                    snapshotRoot = root;
+                    request = snapshotRequests;
+                    recordsSinceSnapshot = 0;
+                    snapshotsRunning++;
+                }
+            } finally {
+                lock.unlock();
+            }
+            try {
+                if (length > 0) {
+                    writeFully(segment, ByteBuffer.wrap(batch, 0, length));
+                    segment.force(false);
+                }
+                if (snapshotRoot != null) {
+                    segment.close();
+                    sequence++;
+                    segment = createSegment(sequence);
+                    startSnapshot(snapshotRoot, sequence, request);
+                }
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    syncedCondition.signalAll();
+                    snapshotCondition.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+            lock.lock();
+            try {
+                synced = ticket;
+                syncs += (length > 0 ? 1 : 0);
+                spare = batch;
+                syncedCondition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Submits the writing of a snapshot to the snapshot executor.
+     *
+     * @param snapshotRoot Root of the trie to write.
+     * @param snapshotSequence Sequence number of the first segment not
+     * included in the snapshot.
+     * @param request Greatest request number covered by the snapshot.
+     */
+    private void startSnapshot(final ImmutableTrieNode snapshotRoot, final long snapshotSequence, final long request) {
+        snapshotExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                writeSnapshot(snapshotRoot, snapshotSequence, request);
+            }
+        });
+    }
+
+    /**
+     * Writes a snapshot into a temporary file, renames it once it is complete
+     * and deletes the segments and snapshots it makes obsolete.
+     *
+     * @param snapshotRoot Root of the trie to write.
+     * @param snapshotSequence Sequence number of the first segment not
+     * included in the snapshot.
+     * @param request Greatest request number covered by the snapshot.
+     */
+    private void writeSnapshot(ImmutableTrieNode snapshotRoot, long snapshotSequence, long request) {
+        IOException error = null;
+        try {
+            Path file = snapshotFile(snapshotSequence);
+            Path temporary = directory.resolve(file.getFileName() + TEMPORARY_SUFFIX);
+            TrieSnapshot.write(snapshotRoot, snapshotSequence, temporary);
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory(directory);
+            deleteObsolete(snapshotSequence);
+        } catch (IOException e) {
+            error = e;
+        }
+        lock.lock();
+        try {
+            snapshotsRunning--;
+            snapshotsDone = Math.max(snapshotsDone, request);
+            if (error != null) {
+                snapshotFailure = error;
+            } else if (snapshotThreshold > 0 && recordsSinceSnapshot >= snapshotThreshold) {
+                rotationRequested = true;
+                appendedCondition.signal();
+            }
+            snapshotCondition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Loads the latest snapshot and replays the segments written after it,
+     * leaving the last segment open to append new records.
+     *
+     * @return Number of records replayed.
+     * @throws IOException If the snapshot or a segment other than the last one
+     * is corrupted, or a segment is missing.
+     */
+    private long recover() throws IOException {
+        TreeMap<Long, Path> snapshots = new TreeMap<Long, Path>();
+        TreeMap<Long, Path> segments = new TreeMap<Long, Path>();
+        DirectoryStream<Path> files = Files.newDirectoryStream(directory);
+        try {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMPORARY_SUFFIX)) {
+                    Files.delete(file);
+                } else if (sequenceOf(name, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX) >= 0) {
+                    snapshots.put(sequenceOf(name, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX), file);
+                } else if (sequenceOf(name, LOG_PREFIX, LOG_SUFFIX) >= 0) {
+                    segments.put(sequenceOf(name, LOG_PREFIX, LOG_SUFFIX), file);
+                }
+            }
+        } finally {
+            files.close();
+        }
+        root = ImmutableTrieNode.EMPTY;
+        long first = 0;
+        if (!snapshots.isEmpty()) {
+            TrieSnapshot snapshot = TrieSnapshot.read(snapshots.lastEntry().getValue());
+            root = snapshot.root;
+            first = snapshot.sequence;
+        }
+        long records = 0;
+        sequence = first;
+        for (Map.Entry<Long, Path> entry : segments.tailMap(first, true).entrySet()) {
+            if (entry.getKey() != sequence) {
+                throw new IOException("Missing log segment " + segmentFile(sequence));
+            }
+            records += replay(entry.getValue(), sequence, entry.getKey().equals(segments.lastKey()));
+            sequence++;
+        }
+        if (sequence == first) {
+            segment = createSegment(first);
+        } else {
+            sequence--;
+        }
+        deleteObsolete(first);
+        return records;
+    }
+
+    /**
+     * Replays the records of a segment. The valid records at the beginning
+     * of the last segment are kept and the rest of it is discarded.
+     *
+     * @param file Path of the segment.
+     * @param expected Sequence number the segment must have.
+     * @param last True if it is the last segment, which is left open to append
+     * new records.
+     * @return Number of records replayed.
+     * @throws IOException If the segment cannot be read or, not being the last
+     * one, it is not complete.
+     */
+    private long replay(Path file, long expected, boolean last) throws IOException {
+        long size = Files.size(file);
+        if (last && size < HEADER_SIZE) {
+            segment = createSegment(expected);
+            return 0;
+        }
+        ImmutableTrieNode current = root;
+        long records = 0;
+        long valid = HEADER_SIZE;
+        DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+        try {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION || input.readLong() != expected) {
+                throw new IOException("Corrupted log segment header: " + file);
+            }
+            CRC32 recordChecksum = new CRC32();
+            byte[] record = new byte[1 << 8];
+            while (size - valid >= RECORD_OVERHEAD) {
+                input.readFully(record, 0, 5);
+                int length = getInt(record, 1);
+                if ((record[0] != INSERT && record[0] != REMOVE) || length < 0 || 2L * length > size - valid - RECORD_OVERHEAD) {
+                    break;
+                }
+                int recordSize = RECORD_OVERHEAD + 2 * length;
+                if (recordSize > record.length) {
+                    record = Arrays.copyOf(record, Math.max(recordSize, 2 * record.length));
+                }
+                input.readFully(record, 5, recordSize - 5);
+                recordChecksum.reset();
+                recordChecksum.update(record, 0, recordSize - 4);
+                if ((int) recordChecksum.getValue() != getInt(record, recordSize - 4)) {
+                    break;
+                }
+                char[] word = new char[length];
+                for (int i = 0, idx = 5; i < length; i++, idx += 2) {
+                    word[i] = (char) (((record[idx] & 0xFF) << 8) | (record[idx + 1] & 0xFF));
+                }
+                current = apply(current, record[0], new String(word));
+                valid += recordSize;
+                records++;
+            }
+        } finally {
+            input.close();
+        }
+        if (valid < size && !last) {
+            throw new IOException("Corrupted log segment " + file + " at byte " + valid);
+        }
+        root = current;
+        if (last) {
+            segment = FileChannel.open(file, StandardOpenOption.WRITE);
+            if (valid < size) {
+                segment.truncate(valid);
+                segment.force(false);
+            }
+            segment.position(valid);
+        }
+        return records;
+    }
+
+    /**
+     * Creates an empty segment and syncs it together with the directory.
+     *
+     * @param segmentSequence Sequence number of the segment.
+     * @return Channel to append records to the segment.
+     * @throws IOException In case there is a problem creating the segment.
+     */
+    private FileChannel createSegment(long segmentSequence) throws IOException {
+        FileChannel channel = FileChannel.open(segmentFile(segmentSequence), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(segmentSequence).flip();
+            writeFully(channel, header);
+            channel.force(true);
+            syncDirectory(directory);
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes the segments and snapshots older than the given sequence number.
+     *
+     * @param first Sequence number of the oldest segment still needed.
+     * @throws IOException In case there is a problem deleting the files.
+     */
+    private void deleteObsolete(long first) throws IOException {
+        DirectoryStream<Path> files = Files.newDirectoryStream(directory);
+        try {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long snapshotSequence = sequenceOf(name, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+                long segmentSequence = sequenceOf(name, LOG_PREFIX, LOG_SUFFIX);
+                if ((snapshotSequence >= 0 && snapshotSequence < first) || (segmentSequence >= 0 && segmentSequence < first)) {
+                    Files.delete(file);
+                }
+            }
+        } finally {
+            files.close();
+        }
+    }
+
+    /**
+     * Returns the path of the segment with the given sequence number.
+     *
+     * @param segmentSequence Sequence number of the segment.
+     * @return The path of the segment.
+     */
+    private Path segmentFile(long segmentSequence) {
+        return directory.resolve(String.format("%s%016x%s", LOG_PREFIX, segmentSequence, LOG_SUFFIX));
+    }
+
+    /**
+     * Returns the path of the snapshot with the given sequence number.
+     *
+     * @param snapshotSequence Sequence number of the first segment not
+     * included in the snapshot.
+     * @return The path of the snapshot.
+     */
+    private Path snapshotFile(long snapshotSequence) {
+        return directory.resolve(String.format("%s%016x%s", SNAPSHOT_PREFIX, snapshotSequence, SNAPSHOT_SUFFIX));
+    }
+
+    /**
+     * Applies an insertion or a removal to a version of the trie.
+     *
+     * @param node Root of the version of the trie.
+     * @param operation Operation code.
+     * @param word Word inserted or removed.
+     * @return Root of the resulting version, the same root if the trie did not
+     * change.
+     */
+    private static ImmutableTrieNode apply(ImmutableTrieNode node, byte operation, String word) {
+        if (operation == INSERT) {
+            return node.insert(word, 0);
+        }
+        ImmutableTrieNode updated = node.remove(word, 0);
+        return (updated == null ? ImmutableTrieNode.EMPTY : updated);
+    }
+
+    /**
+     * Extracts the sequence number from the name of a segment or a snapshot.
+     *
+     * @param name Name of the file.
+     * @param prefix Expected prefix of the name.
+     * @param suffix Expected suffix of the name.
+     * @return The sequence number, -1 if the name does not have the given
+     * prefix and suffix around 16 hexadecimal digits.
+     */
+    private static long sequenceOf(String name, String prefix, String suffix) {
+        if (name.length() != prefix.length() + 16 + suffix.length() || !name.startsWith(prefix) || !name.endsWith(suffix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(prefix.length(), prefix.length() + 16), 16);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Syncs a directory so that the files created or renamed in it survive a
+     * crash. Platforms that cannot open a directory (Windows) do not need it,
+     * so a failure to open it is ignored, but a failure to sync it is not.
+     *
+     * @param directory Directory to sync.
+     * @throws IOException In case the directory cannot be synced.
+     */
+    private static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes all the remaining bytes of a buffer into a channel.
+     *
+     * @param channel Channel to write to.
+     * @param buffer Buffer to write.
+     * @throws IOException In case there is a problem writing the bytes.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Writes an int in big-endian byte order into an array.
+     *
+     * @param bytes Array to write to.
+     * @param position Index of the first byte.
+     * @param value Value to write.
+     */
+    private static void putInt(byte[] bytes, int position, int value) {
+        bytes[position] = (byte) (value >>> 24);
+        bytes[position + 1] = (byte) (value >>> 16);
+        bytes[position + 2] = (byte) (value >>> 8);
+        bytes[position + 3] = (byte) value;
+    }
+
+    /**
+     * Reads an int in big-endian byte order from an array.
+     *
+     * @param bytes Array to read from.
+     * @param position Index of the first byte.
+     * @return The value read.
+     */
+    private static int getInt(byte[] bytes, int position) {
+        return ((bytes[position] & 0xFF) << 24) | ((bytes[position + 1] & 0xFF) << 16) | ((bytes[position + 2] & 0xFF) << 8) | (bytes[position + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,271 @@
+package trie;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Immutable, read-only version of a trie. The nodes of the trie are numbered
+ * in breadth-first order and packed into a few flat arrays: one pool with the
+ * content of all the nodes, one table of offsets into that pool, one table with
+ * the first son of every node (the sons of a node are consecutive in the
+ * numbering), the letters of the edges and a bit set with the end nodes. This
+ * avoids one object per node, per content buffer and per table of sons and
+ * keeps the nodes visited by a lookup close to each other in memory.
+ *
+ * Instances are built through {@link Trie#freeze()} and, being immutable, they
+ * can be shared between threads without any synchronization.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public final class FrozenTrie {
+
+    /**
+     * Content of all the nodes, one after the other.
+     */
+    final char[] contents;
+    /**
+     * The content of the node i is stored in contents between contentOffsets[i]
+     * (inclusive) and contentOffsets[i + 1] (exclusive).
+     */
+    final int[] contentOffsets;
+    /**
+     * The sons of the node i are the nodes between firstSons[i] (inclusive) and
+     * firstSons[i + 1] (exclusive), sorted by the letter of their edge.
+     */
+    final int[] firstSons;
+    /**
+     * Letter of the edge leading to each node. The letter of the root is not
+     * used.
+     */
+    final char[] letters;
+    /**
+     * Bit set flagging the nodes in which a word of the trie ends.
+     */
+    final long[] endNodes;
+
+    /**
+     * FrozenTrie constructor. Packs the trie hanging from the given root.
+     *
+     * @param root Root node of the trie to freeze.
+     */
+    FrozenTrie(TrieNode root) {
+        int nodeCount = 0;
+        int contentLength = 0;
+        Deque<TrieNode> pending = new ArrayDeque<TrieNode>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            TrieNode node = pending.pop();
+            nodeCount++;
+            contentLength += node.content().length;
+            SonTable sons = node.sons();
+            for (int slot = 0; sons != null && slot < sons.slots(); slot++) {
+                if (sons.sonAt(slot) != null) {
+                    pending.push(sons.sonAt(slot));
+                }
+            }
+        }
+        contents = new char[contentLength];
+        contentOffsets = new int[nodeCount + 1];
+        firstSons = new int[nodeCount + 1];
+        letters = new char[nodeCount];
+        endNodes = new long[(nodeCount + 63) >>> 6];
+        TrieNode[] nodes = new TrieNode[nodeCount];
+        nodes[0] = root;
+        int nextNode = 1;
+        for (int i = 0; i < nodeCount; i++) {
+            TrieNode node = nodes[i];
+            char[] content = node.content();
+            System.arraycopy(content, 0, contents, contentOffsets[i], content.length);
+            contentOffsets[i + 1] = contentOffsets[i] + content.length;
+            if (node.isEndNode()) {
+                endNodes[i >>> 6] |= 1L << i;
+            }
+            firstSons[i] = nextNode;
+            SonTable sons = node.sons();
+            for (int slot = 0; sons != null && slot < sons.slots(); slot++) {
+                if (sons.sonAt(slot) != null) {
+                    letters[nextNode] = sons.keyAt(slot);
+                    nodes[nextNode++] = sons.sonAt(slot);
+                }
+            }
+        }
+        firstSons[nodeCount] = nextNode;
+    }
+
+    /**
+     * Returns true if the word is in the trie, false otherwise.
+     *
+     * @param word Word to search in the trie.
+     * @return true if the word is in the trie, false otherwise.
+     */
+    public boolean search(String word) {
+        if (word == null) {
+            return false;
+        }
+        return find(word, 0, word.length());
+    }
+
+    /**
+     * Returns true if the slice of the given sequence between from (inclusive)
+     * and to (exclusive) is a word in the trie, false otherwise.
+     *
+     * @param word Sequence containing the word to search in the trie.
+     * @param from Index of the first character of the word.
+     * @param to Index after the last character of the word.
+     * @return true if the word is in the trie, false otherwise.
+     * @throws IndexOutOfBoundsException If from is negative, to is greater than
+     * the length of the sequence or from is greater than to.
+     */
+    public boolean search(CharSequence word, int from, int to) {
+        if (word == null) {
+            return false;
+        }
+        Trie.checkSlice(word, from, to);
+        return find(word, from, to);
+    }
+
+    /**
+     * Returns true if there is any word in the trie that starts with the given
+     * prefix, false otherwise.
+     *
+     * @param prefix Prefix to check in the trie.
+     * @return true if there is any word in the trie that starts with the given
+     * prefix, false otherwise.
+     */
+    public boolean startsWith(String prefix) {
+        if (prefix == null) {
+            return false;
+        }
+        return prefixed(prefix, 0, prefix.length());
+    }
+
+    /**
+     * Returns true if there is any word in the trie that starts with the slice
+     * of the given sequence between from (inclusive) and to (exclusive), false
+     * otherwise.
+     *
+     * @param prefix Sequence containing the prefix to check in the trie.
+     * @param from Index of the first character of the prefix.
+     * @param to Index after the last character of the prefix.
+     * @return true if there is any word in the trie that starts with the given
+     * prefix, false otherwise.
+     * @throws IndexOutOfBoundsException If from is negative, to is greater than
+     * the length of the sequence or from is greater than to.
+     */
+    public boolean startsWith(CharSequence prefix, int from, int to) {
+        if (prefix == null) {
+            return false;
+        }
+        Trie.checkSlice(prefix, from, to);
+        return prefixed(prefix, from, to);
+    }
+
+    /**
+     * Returns the number of nodes of the trie.
+     *
+     * @return The number of nodes of the trie.
+     */
+    public int nodeCount() {
+        return letters.length;
+    }
+
+    /**
+     * Checks whether if the given slice is a word of the trie.
+     *
+     * @param word Sequence containing the word.
+     * @param from Index of the first character of the word.
+     * @param to Index after the last character of the word.
+     * @return True if the word is in the trie, false otherwise.
+     */
+    private boolean find(CharSequence word, int from, int to) {
+        int node = 0;
+        int idx = from;
+        while (true) {
+            int start = contentOffsets[node];
+            int length = contentOffsets[node + 1] - start;
+            if (to - idx < length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (contents[start + i] != word.charAt(idx + i)) {
+                    return false;
+                }
+            }
+            idx += length;
+            if (idx == to) {
+                return isEndNode(node);
+            }
+            node = son(node, word.charAt(idx));
+            if (node < 0) {
+                return false;
+            }
+            idx++;
+        }
+    }
+
+    /**
+     * Checks whether if any word of the trie starts with the given slice.
+     *
+     * @param prefix Sequence containing the prefix.
+     * @param from Index of the first character of the prefix.
+     * @param to Index after the last character of the prefix.
+     * @return True if a word with the given prefix is found, false otherwise.
+     */
+    private boolean prefixed(CharSequence prefix, int from, int to) {
+        int node = 0;
+        int idx = from;
+        while (true) {
+            int start = contentOffsets[node];
+            int length = Math.min(contentOffsets[node + 1] - start, to - idx);
+            for (int i = 0; i < length; i++) {
+                if (contents[start + i] != prefix.charAt(idx + i)) {
+                    return false;
+                }
+            }
+            idx += length;
+            if (idx == to) {
+                return isEndNode(node) || firstSons[node] < firstSons[node + 1];
+            }
+            node = son(node, prefix.charAt(idx));
+            if (node < 0) {
+                return false;
+            }
+            idx++;
+        }
+    }
+
+    /**
+     * Returns true if a word of the trie ends in the given node.
+     *
+     * @param node Node number.
+     * @return True if a word of the trie ends in the given node.
+     */
+    boolean isEndNode(int node) {
+        return (endNodes[node >>> 6] & (1L << node)) != 0;
+    }
+
+    /**
+     * Searches the son of a node reached through the given letter.
+     *
+     * @param node Node number.
+     * @param letter Letter of the edge.
+     * @return The number of the son, or a negative number if there is no son
+     * for the given letter.
+     */
+    int son(int node, char letter) {
+        int low = firstSons[node];
+        int high = firstSons[node + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char middleLetter = letters[middle];
+            if (middleLetter < letter) {
+                low = middle + 1;
+            } else if (middleLetter > letter) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,156 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bounded edit distance search over a trie. The nodes are walked depth first
+ * and, for every letter of the current path, a row of the Levenshtein distance
+ * table between the path and the searched word is computed from the row of the
+ * previous letter. The rows of the path are kept in a single array, so the
+ * letters of the content of a node are processed in a plain loop and sibling
+ * subtrees reuse the rows of their common ancestors. Only the cells within the
+ * distance bound of the diagonal are computed, and a subtree is pruned as soon
+ * as every cell of a row exceeds the bound, since the distance can only grow
+ * further down the path.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+final class FuzzySearch {
+
+    /**
+     * Searched word.
+     */
+    private final CharSequence word;
+    /**
+     * Maximum edit distance of the words found.
+     */
+    private final int maxDistance;
+    /**
+     * Number of cells of a row (length of the searched word plus one).
+     */
+    private final int width;
+    /**
+     * Letters of the current path.
+     */
+    private char[] path;
+    /**
+     * Rows of the distance table, one per letter of the current path plus the
+     * initial row, stored one after the other. Cells beyond the bound hold
+     * maxDistance + 1.
+     */
+    private int[] rows;
+
+    /**
+     * FuzzySearch constructor.
+     *
+     * @param word Searched word.
+     * @param maxDistance Maximum edit distance of the words found.
+     */
+    FuzzySearch(CharSequence word, int maxDistance) {
+        this.word = word;
+        this.maxDistance = maxDistance;
+        width = word.length() + 1;
+        path = new char[Math.max(16, width + maxDistance)];
+        rows = new int[path.length * width + width];
+        for (int j = 0; j < width; j++) {
+            rows[j] = Math.min(j, maxDistance + 1);
+        }
+    }
+
+    /**
+     * Finds the words of the trie hanging from the given root whose edit
+     * distance to the searched word is within the bound.
+     *
+     * @param root Root node of the trie.
+     * @return The words found, in lexicographic order.
+     */
+    List<String> search(TrieNode root) {
+        List<String> found = new ArrayList<String>();
+        TrieNode[] nodes = new TrieNode[16];
+        char[] letters = new char[16];
+        int[] depths = new int[16];
+        int size = 0;
+        nodes[size] = root;
+        depths[size++] = 0;
+        while (size > 0) {
+            TrieNode node = nodes[--size];
+            int depth = depths[size];
+            if (node != root) {
+                if (!advance(depth++, letters[size])) {
+                    continue;
+                }
+            }
+            char[] content = node.content();
+            boolean alive = true;
+            for (int i = 0; i < content.length && alive; i++) {
+                alive = advance(depth++, content[i]);
+            }
+            if (!alive) {
+                continue;
+            }
+            if (node.isEndNode() && depth + maxDistance >= width - 1 && rows[depth * width + width - 1] <= maxDistance) {
+                found.add(new String(path, 0, depth));
+            }
+            SonTable sons = node.sons();
+            if (sons == null) {
+                continue;
+            }
+            for (int slot = sons.slots() - 1; slot >= 0; slot--) {
+                TrieNode son = sons.sonAt(slot);
+                if (son != null) {
+                    if (size == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, size * 2);
+                        letters = Arrays.copyOf(letters, size * 2);
+                        depths = Arrays.copyOf(depths, size * 2);
+                    }
+                    nodes[size] = son;
+                    letters[size] = sons.keyAt(slot);
+                    depths[size++] = depth;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Appends a letter to the current path and computes the row of the
+     * distance table for the new path length from the row of the previous one.
+     *
+     * @param depth Length of the path before appending the letter.
+     * @param letter Letter to append.
+     * @return False if every cell of the new row exceeds the bound, so no word
+     * under the new path can be within the bound.
+     */
+    private boolean advance(int depth, char letter) {
+        if (depth == path.length) {
+            path = Arrays.copyOf(path, depth * 2);
+            rows = Arrays.copyOf(rows, path.length * width + width);
+        }
+        path[depth] = letter;
+        int length = depth + 1;
+        int limit = maxDistance + 1;
+        int previous = depth * width;
+        int current = previous + width;
+        int low = Math.max(1, length - maxDistance);
+        int high = Math.min(width - 1, length + maxDistance);
+        rows[current] = Math.min(length, limit);
+        if (low > 1) {
+            rows[current + low - 1] = limit;
+        }
+        int minimum = rows[current];
+        for (int j = low; j <= high; j++) {
+            int distance = rows[previous + j - 1] + (word.charAt(j - 1) == letter ? 0 : 1);
+            distance = Math.min(distance, rows[previous + j] + 1);
+            distance = Math.min(distance, rows[current + j - 1] + 1);
+            distance = Math.min(distance, limit);
+            rows[current + j] = distance;
+            minimum = Math.min(minimum, distance);
+        }
+        if (high + 1 < width) {
+            rows[current + high + 1] = limit;
+        }
+        return minimum <= maxDistance;
+    }
+}
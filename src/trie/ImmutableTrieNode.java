@@ -0,0 +1,256 @@
+package trie;
+
+import java.util.Arrays;
+
+/**
+ * Immutable node of a trie. Like {@link TrieNode} it aggregates in its content
+ * the letters shared by only one branch of words, but it is never modified
+ * once built: insertions and removals return a new node which copies only the
+ * nodes in the path of the word (including the nodes split or fused along the
+ * way) and shares the rest of the subtrie with the original node. A reader
+ * holding a node therefore always sees a complete and consistent subtrie.
+ *
+ * The sons are kept in a sorted char array with a parallel array of nodes.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+final class ImmutableTrieNode extends ArrayTrieNode {
+
+    /**
+     * Letters shared by the nodes without content or without sons.
+     */
+    static final char[] NO_LETTERS = new char[0];
+    /**
+     * Sons shared by the leaves.
+     */
+    static final ImmutableTrieNode[] NO_SONS = new ImmutableTrieNode[0];
+    /**
+     * Node representing a trie without words.
+     */
+    static final ImmutableTrieNode EMPTY = new ImmutableTrieNode(NO_LETTERS, NO_LETTERS, NO_SONS, false);
+
+    /**
+     * Buffer of content in the current node.
+     */
+    final char[] content;
+    /**
+     * Sorted letters of the edges leading to the sons.
+     */
+    final char[] keys;
+    /**
+     * Sons, in the same order as the letters of their edges.
+     */
+    final ImmutableTrieNode[] sons;
+    /**
+     * Flag to determine wether if the node reach the end of a word in the trie
+     * or not.
+     */
+    final boolean endNode;
+
+    /**
+     * ImmutableTrieNode constructor.
+     *
+     * @param content Buffer of content of the node.
+     * @param keys Sorted letters of the edges leading to the sons.
+     * @param sons Sons, in the same order as the letters of their edges.
+     * @param endNode True if a word ends in the node.
+     */
+    ImmutableTrieNode(char[] content, char[] keys, ImmutableTrieNode[] sons, boolean endNode) {
+        this.content = content;
+        this.keys = keys;
+        this.sons = sons;
+        this.endNode = endNode;
+    }
+
+    /**
+     * Returns a node with the given word inserted in the subtrie of the
+     * current node. The current node is not modified.
+     *
+     * @param word Word to insert.
+     * @param idx Index pointing to the first character of the word visible for
+     * the current node.
+     * @return The node with the word inserted, the current node itself if the
+     * word was already present.
+     */
+    ImmutableTrieNode insert(CharSequence word, int idx) {
+        if (content.length == 0 && sons.length == 0 && !endNode) {
+            return leaf(word, idx);
+        }
+        int i = 0;
+        while (i < content.length && i + idx < word.length() && content[i] == word.charAt(i + idx)) {
+            i++;
+        }
+        idx += i;
+        if (i < content.length) {
+            ImmutableTrieNode son = new ImmutableTrieNode(copy(content, i + 1, content.length), keys, sons, endNode);
+            char[] prefix = copy(content, 0, i);
+            if (idx == word.length()) {
+                return new ImmutableTrieNode(prefix, new char[]{content[i]}, new ImmutableTrieNode[]{son}, true);
+            }
+            ImmutableTrieNode wordInsertionPoint = leaf(word, idx + 1);
+            char wordMidPoint = word.charAt(idx);
+            if (wordMidPoint < content[i]) {
+                return new ImmutableTrieNode(prefix, new char[]{wordMidPoint, content[i]}, new ImmutableTrieNode[]{wordInsertionPoint, son}, false);
+            } else {
+                return new ImmutableTrieNode(prefix, new char[]{content[i], wordMidPoint}, new ImmutableTrieNode[]{son, wordInsertionPoint}, false);
+            }
+        }
+        if (idx == word.length()) {
+            return (endNode ? this : new ImmutableTrieNode(content, keys, sons, true));
+        }
+        char wordMidPoint = word.charAt(idx);
+        int position = Arrays.binarySearch(keys, wordMidPoint);
+        if (position >= 0) {
+            ImmutableTrieNode son = sons[position].insert(word, idx + 1);
+            return (son == sons[position] ? this : withSon(position, son));
+        }
+        position = -position - 1;
+        char[] newKeys = new char[keys.length + 1];
+        ImmutableTrieNode[] newSons = new ImmutableTrieNode[sons.length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, position);
+        System.arraycopy(sons, 0, newSons, 0, position);
+        newKeys[position] = wordMidPoint;
+        newSons[position] = leaf(word, idx + 1);
+        System.arraycopy(keys, position, newKeys, position + 1, keys.length - position);
+        System.arraycopy(sons, position, newSons, position + 1, sons.length - position);
+        return new ImmutableTrieNode(content, newKeys, newSons, endNode);
+    }
+
+    /**
+     * Returns a node with the given word removed from the subtrie of the
+     * current node. The current node is not modified. Nodes in the path that
+     * are left without words are discarded and nodes that are not the end of
+     * any word and have only one son are fused with their son.
+     *
+     * @param word Word to remove.
+     * @param idx Index pointing to the first character of the word visible for
+     * the current node.
+     * @return The node with the word removed, the current node itself if the
+     * word was not present, or null if the subtrie does not contain any word
+     * after the removal.
+     */
+    ImmutableTrieNode remove(CharSequence word, int idx) {
+        int i = 0;
+        while (i < content.length && i + idx < word.length() && content[i] == word.charAt(i + idx)) {
+            i++;
+        }
+        idx += i;
+        if (i < content.length) {
+            return this;
+        }
+        if (idx == word.length()) {
+            if (!endNode) {
+                return this;
+            } else if (sons.length == 0) {
+                return null;
+            } else if (sons.length == 1) {
+                return fuse(content, keys[0], sons[0]);
+            } else {
+                return new ImmutableTrieNode(content, keys, sons, false);
+            }
+        }
+        int position = Arrays.binarySearch(keys, word.charAt(idx));
+        if (position < 0) {
+            return this;
+        }
+        ImmutableTrieNode son = sons[position].remove(word, idx + 1);
+        if (son == sons[position]) {
+            return this;
+        } else if (son != null) {
+            return withSon(position, son);
+        } else if (sons.length == 1) {
+            return (endNode ? new ImmutableTrieNode(content, NO_LETTERS, NO_SONS, true) : null);
+        } else if (sons.length == 2 && !endNode) {
+            return fuse(content, keys[1 - position], sons[1 - position]);
+        }
+        char[] newKeys = new char[keys.length - 1];
+        ImmutableTrieNode[] newSons = new ImmutableTrieNode[sons.length - 1];
+        System.arraycopy(keys, 0, newKeys, 0, position);
+        System.arraycopy(sons, 0, newSons, 0, position);
+        System.arraycopy(keys, position + 1, newKeys, position, newKeys.length - position);
+        System.arraycopy(sons, position + 1, newSons, position, newSons.length - position);
+        return new ImmutableTrieNode(content, newKeys, newSons, endNode);
+    }
+
+    @Override
+    char[] content() {
+        return content;
+    }
+
+    @Override
+    char[] keys() {
+        return keys;
+    }
+
+    @Override
+    ImmutableTrieNode son(int position) {
+        return sons[position];
+    }
+
+    @Override
+    boolean isEndNode() {
+        return endNode;
+    }
+
+    /**
+     * Returns a copy of the current node with the son in the given position
+     * replaced.
+     *
+     * @param position Position of the son to replace.
+     * @param son New son.
+     * @return A copy of the current node with the son replaced.
+     */
+    private ImmutableTrieNode withSon(int position, ImmutableTrieNode son) {
+        ImmutableTrieNode[] newSons = sons.clone();
+        newSons[position] = son;
+        return new ImmutableTrieNode(content, keys, newSons, endNode);
+    }
+
+    /**
+     * Builds a leaf holding the suffix of a word.
+     *
+     * @param word Word.
+     * @param idx Index pointing to the first character of the suffix.
+     * @return A leaf holding the suffix of the word.
+     */
+    private static ImmutableTrieNode leaf(CharSequence word, int idx) {
+        char[] leafContent = NO_LETTERS;
+        if (idx < word.length()) {
+            leafContent = new char[word.length() - idx];
+            for (int i = 0; i < leafContent.length; i++) {
+                leafContent[i] = word.charAt(idx + i);
+            }
+        }
+        return new ImmutableTrieNode(leafContent, NO_LETTERS, NO_SONS, true);
+    }
+
+    /**
+     * Builds the node resulting of fusing a content with the only son that
+     * follows it.
+     *
+     * @param content Content of the fused node.
+     * @param key Letter of the edge leading to the son.
+     * @param son Son to fuse.
+     * @return A node with the content, the letter and the content of the son
+     * and the sons and end node flag of the son.
+     */
+    private static ImmutableTrieNode fuse(char[] content, char key, ImmutableTrieNode son) {
+        char[] fusionedContent = new char[content.length + 1 + son.content.length];
+        System.arraycopy(content, 0, fusionedContent, 0, content.length);
+        fusionedContent[content.length] = key;
+        System.arraycopy(son.content, 0, fusionedContent, content.length + 1, son.content.length);
+        return new ImmutableTrieNode(fusionedContent, son.keys, son.sons, son.endNode);
+    }
+
+    /**
+     * Copies a range of a content.
+     *
+     * @param content Content to copy.
+     * @param from Index of the first letter to copy.
+     * @param to Index after the last letter to copy.
+     * @return A copy of the range, shared empty array if the range is empty.
+     */
+    private static char[] copy(char[] content, int from, int to) {
+        return (from == to ? NO_LETTERS : Arrays.copyOfRange(content, from, to));
+    }
+}
@@ -0,0 +1,137 @@
+package trie;
+
+/**
+ * Map from strings to int values stored in a trie. It works like
+ * {@link TrieMap} but the values are kept in a primitive field of the nodes,
+ * so they are never boxed. Lookups of missing keys return a configurable
+ * value meaning that there is no entry.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class IntTrieMap extends AbstractTrieMap {
+
+    /**
+     * Value returned for the keys that are not in the map.
+     */
+    private final int noEntryValue;
+
+    /**
+     * IntTrieMap constructor. Missing keys are reported with the value 0.
+     */
+    public IntTrieMap() {
+        this(0);
+    }
+
+    /**
+     * IntTrieMap constructor.
+     *
+     * @param noEntryValue Value returned for the keys that are not in the map.
+     */
+    public IntTrieMap(int noEntryValue) {
+        super(new IntTrieMapNode());
+        this.noEntryValue = noEntryValue;
+    }
+
+    /**
+     * Returns the value returned for the keys that are not in the map.
+     *
+     * @return The value returned for the keys that are not in the map.
+     */
+    public int noEntryValue() {
+        return noEntryValue;
+    }
+
+    /**
+     * Associates a value with a key, replacing the previous value of the key
+     * if it was already in the map.
+     *
+     * @param key Key.
+     * @param value Value of the key.
+     * @return The previous value of the key, the no entry value if the key was
+     * not in the map.
+     * @throws NullPointerException If the key is null.
+     */
+    public int put(String key, int value) {
+        if (key == null) {
+            throw new NullPointerException("Null key");
+        }
+        IntTrieMapNode node = (IntTrieMapNode) insertKey(key);
+        int previous = noEntryValue;
+        if (node == null) {
+            node = (IntTrieMapNode) node(key);
+            previous = node.value;
+        }
+        node.value = value;
+        return previous;
+    }
+
+    /**
+     * Returns the value of a key.
+     *
+     * @param key Key.
+     * @return The value of the key, the no entry value if the key is not in
+     * the map.
+     */
+    public int get(String key) {
+        return getOrDefault(key, noEntryValue);
+    }
+
+    /**
+     * Returns the value of a key, or the given default value if the key is not
+     * in the map.
+     *
+     * @param key Key.
+     * @param defaultValue Value returned if the key is not in the map.
+     * @return The value of the key, defaultValue if the key is not in the map.
+     */
+    public int getOrDefault(String key, int defaultValue) {
+        IntTrieMapNode node = (IntTrieMapNode) node(key);
+        return (node == null ? defaultValue : node.value);
+    }
+
+    /**
+     * Removes a key and its value from the map.
+     *
+     * @param key Key.
+     * @return The value the key had, the no entry value if the key was not in
+     * the map.
+     */
+    public int remove(String key) {
+        IntTrieMapNode node = (IntTrieMapNode) removeKey(key);
+        return (node == null ? noEntryValue : node.value);
+    }
+}
+
+/**
+ * Node of an {@link IntTrieMap}, holding the value of the key ending in it.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+class IntTrieMapNode extends TrieNode {
+
+    /**
+     * Value of the key ending in the node (meaningless if the node is not an
+     * end node).
+     */
+    int value;
+
+    @Override
+    TrieNode newNode() {
+        return new IntTrieMapNode();
+    }
+
+    @Override
+    void moveValueTo(TrieNode son) {
+        ((IntTrieMapNode) son).value = value;
+    }
+
+    @Override
+    void takeValueFrom(TrieNode fusionNode) {
+        value = ((IntTrieMapNode) fusionNode).value;
+    }
+
+    @Override
+    void clearValue() {
+        value = 0;
+    }
+}
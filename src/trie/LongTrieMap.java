@@ -0,0 +1,137 @@
+package trie;
+
+/**
+ * Map from strings to long values stored in a trie. It works like
+ * {@link TrieMap} but the values are kept in a primitive field of the nodes,
+ * so they are never boxed. Lookups of missing keys return a configurable
+ * value meaning that there is no entry.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class LongTrieMap extends AbstractTrieMap {
+
+    /**
+     * Value returned for the keys that are not in the map.
+     */
+    private final long noEntryValue;
+
+    /**
+     * LongTrieMap constructor. Missing keys are reported with the value 0.
+     */
+    public LongTrieMap() {
+        this(0L);
+    }
+
+    /**
+     * LongTrieMap constructor.
+     *
+     * @param noEntryValue Value returned for the keys that are not in the map.
+     */
+    public LongTrieMap(long noEntryValue) {
+        super(new LongTrieMapNode());
+        this.noEntryValue = noEntryValue;
+    }
+
+    /**
+     * Returns the value returned for the keys that are not in the map.
+     *
+     * @return The value returned for the keys that are not in the map.
+     */
+    public long noEntryValue() {
+        return noEntryValue;
+    }
+
+    /**
+     * Associates a value with a key, replacing the previous value of the key
+     * if it was already in the map.
+     *
+     * @param key Key.
+     * @param value Value of the key.
+     * @return The previous value of the key, the no entry value if the key was
+     * not in the map.
+     * @throws NullPointerException If the key is null.
+     */
+    public long put(String key, long value) {
+        if (key == null) {
+            throw new NullPointerException("Null key");
+        }
+        LongTrieMapNode node = (LongTrieMapNode) insertKey(key);
+        long previous = noEntryValue;
+        if (node == null) {
+            node = (LongTrieMapNode) node(key);
+            previous = node.value;
+        }
+        node.value = value;
+        return previous;
+    }
+
+    /**
+     * Returns the value of a key.
+     *
+     * @param key Key.
+     * @return The value of the key, the no entry value if the key is not in
+     * the map.
+     */
+    public long get(String key) {
+        return getOrDefault(key, noEntryValue);
+    }
+
+    /**
+     * Returns the value of a key, or the given default value if the key is not
+     * in the map.
+     *
+     * @param key Key.
+     * @param defaultValue Value returned if the key is not in the map.
+     * @return The value of the key, defaultValue if the key is not in the map.
+     */
+    public long getOrDefault(String key, long defaultValue) {
+        LongTrieMapNode node = (LongTrieMapNode) node(key);
+        return (node == null ? defaultValue : node.value);
+    }
+
+    /**
+     * Removes a key and its value from the map.
+     *
+     * @param key Key.
+     * @return The value the key had, the no entry value if the key was not in
+     * the map.
+     */
+    public long remove(String key) {
+        LongTrieMapNode node = (LongTrieMapNode) removeKey(key);
+        return (node == null ? noEntryValue : node.value);
+    }
+}
+
+/**
+ * Node of a {@link LongTrieMap}, holding the value of the key ending in it.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+class LongTrieMapNode extends TrieNode {
+
+    /**
+     * Value of the key ending in the node (meaningless if the node is not an
+     * end node).
+     */
+    long value;
+
+    @Override
+    TrieNode newNode() {
+        return new LongTrieMapNode();
+    }
+
+    @Override
+    void moveValueTo(TrieNode son) {
+        ((LongTrieMapNode) son).value = value;
+    }
+
+    @Override
+    void takeValueFrom(TrieNode fusionNode) {
+        value = ((LongTrieMapNode) fusionNode).value;
+    }
+
+    @Override
+    void clearValue() {
+        value = 0;
+    }
+}
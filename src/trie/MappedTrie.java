@@ -0,0 +1,380 @@
+package trie;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only trie answering searches and prefix checks directly from a memory
+ * mapped file. The file is written by {@link #write(Trie, Path)} and holds the
+ * same flat arrays as a {@link FrozenTrie}, so opening it does not need to
+ * deserialize anything: the operating system loads the pages touched by the
+ * lookups and they can be shared by every process mapping the same file.
+ *
+ * The file format (version 1) is, in big-endian byte order:
+ * <pre>
+ * int    magic number 0x54524945 ("TRIE")
+ * int    version
+ * int    number of nodes (n)
+ * int    total length of the contents (c)
+ * long[] end node bit set, (n + 63) / 64 words
+ * int[]  content offsets, n + 1 entries
+ * int[]  first sons, n + 1 entries
+ * char[] letters of the edges, n entries
+ * char[] contents, c entries
+ * </pre>
+ * A single mapping is limited to 2 GiB, which bounds the size of the file.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public final class MappedTrie {
+
+    /**
+     * Magic number at the beginning of every trie file.
+     */
+    static final int MAGIC = 0x54524945;
+    /**
+     * Version of the file format written by this class.
+     */
+    static final int VERSION = 1;
+    /**
+     * Size in bytes of the header of the file.
+     */
+    static final int HEADER_SIZE = 16;
+
+    /**
+     * Mapped content of the file.
+     */
+    private final MappedByteBuffer buffer;
+    /**
+     * Number of nodes of the trie.
+     */
+    private final int nodeCount;
+    /**
+     * Position of the end node bit set in the file.
+     */
+    private final int endNodesPosition;
+    /**
+     * Position of the content offsets in the file.
+     */
+    private final int contentOffsetsPosition;
+    /**
+     * Position of the first sons in the file.
+     */
+    private final int firstSonsPosition;
+    /**
+     * Position of the letters of the edges in the file.
+     */
+    private final int lettersPosition;
+    /**
+     * Position of the contents in the file.
+     */
+    private final int contentsPosition;
+
+    /**
+     * MappedTrie constructor. Validates the header of the mapped file and
+     * computes the position of each section.
+     *
+     * @param buffer Mapped content of the file.
+     * @throws IOException If the content is not a valid trie file.
+     */
+    private MappedTrie(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a trie file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported trie file version: " + buffer.getInt(4));
+        }
+        nodeCount = buffer.getInt(8);
+        long contentLength = buffer.getInt(12);
+        if (nodeCount < 1 || contentLength < 0) {
+            throw new IOException("Corrupted trie file header");
+        }
+        long offsetsPosition = HEADER_SIZE + 8L * ((nodeCount + 63L) >>> 6);
+        long sonsPosition = offsetsPosition + 4L * (nodeCount + 1);
+        long edgesPosition = sonsPosition + 4L * (nodeCount + 1);
+        long contentPosition = edgesPosition + 2L * nodeCount;
+        if (contentPosition + 2L * contentLength != buffer.capacity()) {
+            throw new IOException("Truncated or corrupted trie file");
+        }
+        endNodesPosition = HEADER_SIZE;
+        contentOffsetsPosition = (int) offsetsPosition;
+        firstSonsPosition = (int) sonsPosition;
+        lettersPosition = (int) edgesPosition;
+        contentsPosition = (int) contentPosition;
+    }
+
+    /**
+     * Writes the given trie into a file with the format read by this class.
+     *
+     * @param trie Trie to write.
+     * @param file Path of the file. It is replaced if it already exists.
+     * @throws IOException In case there is a problem writing the file.
+     */
+    public static void write(Trie trie, Path file) throws IOException {
+        write(trie.freeze(), file);
+    }
+
+    /**
+     * Writes the given frozen trie into a file with the format read by this
+     * class.
+     *
+     * @param trie Frozen trie to write.
+     * @param file Path of the file. It is replaced if it already exists.
+     * @throws IOException In case there is a problem writing the file.
+     */
+    public static void write(FrozenTrie trie, Path file) throws IOException {
+        OutputStream fileStream = Files.newOutputStream(file);
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileStream, 1 << 16));
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(trie.letters.length);
+            output.writeInt(trie.contents.length);
+            for (long word : trie.endNodes) {
+                output.writeLong(word);
+            }
+            for (int offset : trie.contentOffsets) {
+                output.writeInt(offset);
+            }
+            for (int firstSon : trie.firstSons) {
+                output.writeInt(firstSon);
+            }
+            for (char letter : trie.letters) {
+                output.writeChar(letter);
+            }
+            for (char letter : trie.contents) {
+                output.writeChar(letter);
+            }
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Opens a trie file. The file is mapped in memory and it is not read until
+     * the lookups need it.
+     *
+     * @param file Path of the file.
+     * @return A trie answering lookups from the mapped file.
+     * @throws IOException If the file cannot be mapped or it is not a valid
+     * trie file.
+     */
+    public static MappedTrie open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Trie file too big to be mapped: " + channel.size() + " bytes");
+            }
+            return new MappedTrie(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Returns true if the word is in the trie, false otherwise.
+     *
+     * @param word Word to search in the trie.
+     * @return true if the word is in the trie, false otherwise.
+     */
+    public boolean search(String word) {
+        if (word == null) {
+            return false;
+        }
+        return find(word, 0, word.length());
+    }
+
+    /**
+     * Returns true if the slice of the given sequence between from (inclusive)
+     * and to (exclusive) is a word in the trie, false otherwise.
+     *
+     * @param word Sequence containing the word to search in the trie.
+     * @param from Index of the first character of the word.
+     * @param to Index after the last character of the word.
+     * @return true if the word is in the trie, false otherwise.
+     * @throws IndexOutOfBoundsException If from is negative, to is greater than
+     * the length of the sequence or from is greater than to.
+     */
+    public boolean search(CharSequence word, int from, int to) {
+        if (word == null) {
+            return false;
+        }
+        Trie.checkSlice(word, from, to);
+        return find(word, from, to);
+    }
+
+    /**
+     * Returns true if there is any word in the trie that starts with the given
+     * prefix, false otherwise.
+     *
+     * @param prefix Prefix to check in the trie.
+     * @return true if there is any word in the trie that starts with the given
+     * prefix, false otherwise.
+     */
+    public boolean startsWith(String prefix) {
+        if (prefix == null) {
+            return false;
+        }
+        return prefixed(prefix, 0, prefix.length());
+    }
+
+    /**
+     * Returns true if there is any word in the trie that starts with the slice
+     * of the given sequence between from (inclusive) and to (exclusive), false
+     * otherwise.
+     *
+     * @param prefix Sequence containing the prefix to check in the trie.
+     * @param from Index of the first character of the prefix.
+     * @param to Index after the last character of the prefix.
+     * @return true if there is any word in the trie that starts with the given
+     * prefix, false otherwise.
+     * @throws IndexOutOfBoundsException If from is negative, to is greater than
+     * the length of the sequence or from is greater than to.
+     */
+    public boolean startsWith(CharSequence prefix, int from, int to) {
+        if (prefix == null) {
+            return false;
+        }
+        Trie.checkSlice(prefix, from, to);
+        return prefixed(prefix, from, to);
+    }
+
+    /**
+     * Returns the number of nodes of the trie.
+     *
+     * @return The number of nodes of the trie.
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Checks whether if the given slice is a word of the trie.
+     *
+     * @param word Sequence containing the word.
+     * @param from Index of the first character of the word.
+     * @param to Index after the last character of the word.
+     * @return True if the word is in the trie, false otherwise.
+     */
+    private boolean find(CharSequence word, int from, int to) {
+        int node = 0;
+        int idx = from;
+        while (true) {
+            int start = contentOffset(node);
+            int length = contentOffset(node + 1) - start;
+            if (to - idx < length) {
+                return false;
+            }
+            int position = contentsPosition + 2 * start;
+            for (int i = 0; i < length; i++) {
+                if (buffer.getChar(position + 2 * i) != word.charAt(idx + i)) {
+                    return false;
+                }
+            }
+            idx += length;
+            if (idx == to) {
+                return isEndNode(node);
+            }
+            node = son(node, word.charAt(idx));
+            if (node < 0) {
+                return false;
+            }
+            idx++;
+        }
+    }
+
+    /**
+     * Checks whether if any word of the trie starts with the given slice.
+     *
+     * @param prefix Sequence containing the prefix.
+     * @param from Index of the first character of the prefix.
+     * @param to Index after the last character of the prefix.
+     * @return True if a word with the given prefix is found, false otherwise.
+     */
+    private boolean prefixed(CharSequence prefix, int from, int to) {
+        int node = 0;
+        int idx = from;
+        while (true) {
+            int start = contentOffset(node);
+            int length = Math.min(contentOffset(node + 1) - start, to - idx);
+            int position = contentsPosition + 2 * start;
+            for (int i = 0; i < length; i++) {
+                if (buffer.getChar(position + 2 * i) != prefix.charAt(idx + i)) {
+                    return false;
+                }
+            }
+            idx += length;
+            if (idx == to) {
+                return isEndNode(node) || firstSon(node) < firstSon(node + 1);
+            }
+            node = son(node, prefix.charAt(idx));
+            if (node < 0) {
+                return false;
+            }
+            idx++;
+        }
+    }
+
+    /**
+     * Returns the offset of the content of the given node.
+     *
+     * @param node Node number.
+     * @return The offset of the content of the given node.
+     */
+    private int contentOffset(int node) {
+        return buffer.getInt(contentOffsetsPosition + 4 * node);
+    }
+
+    /**
+     * Returns the number of the first son of the given node.
+     *
+     * @param node Node number.
+     * @return The number of the first son of the given node.
+     */
+    private int firstSon(int node) {
+        return buffer.getInt(firstSonsPosition + 4 * node);
+    }
+
+    /**
+     * Returns true if a word of the trie ends in the given node.
+     *
+     * @param node Node number.
+     * @return True if a word of the trie ends in the given node.
+     */
+    private boolean isEndNode(int node) {
+        return (buffer.getLong(endNodesPosition + 8 * (node >>> 6)) & (1L << node)) != 0;
+    }
+
+    /**
+     * Searches the son of a node reached through the given letter.
+     *
+     * @param node Node number.
+     * @param letter Letter of the edge.
+     * @return The number of the son, or a negative number if there is no son
+     * for the given letter.
+     */
+    private int son(int node, char letter) {
+        int low = firstSon(node);
+        int high = firstSon(node + 1) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char middleLetter = buffer.getChar(lettersPosition + 2 * middle);
+            if (middleLetter < letter) {
+                low = middle + 1;
+            } else if (middleLetter > letter) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+}
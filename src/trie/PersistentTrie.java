@@ -0,0 +1,559 @@
+package trie;
+
+import java.util.Arrays;
+
+/**
+ * Trie whose versions can be kept at no cost. Insertions and removals never
+ * modify a node that belongs to a snapshot: they copy only the nodes in the
+ * path of the word, including the nodes split or fused along the way, and
+ * share the rest of the trie with the previous version. {@link #snapshot()}
+ * therefore only has to hand out the current root, and the snapshot keeps
+ * answering as the trie was at that moment however many changes follow.
+ *
+ * Copying a path on every change would make a batch of changes between two
+ * snapshots allocate a new copy of the top nodes of the trie for every word.
+ * To avoid it, the nodes created since the last snapshot are owned by the
+ * trie, which modifies them in place, and only the nodes shared with a
+ * snapshot are copied, once per snapshot. Taking a snapshot hands the owned
+ * nodes over to it by starting a new owner.
+ *
+ * The trie itself is not thread safe: it must be changed and snapshotted by
+ * one thread at a time. The snapshots are immutable and can be queried from
+ * any thread, even if they are handed over without synchronization.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class PersistentTrie {
+
+    /**
+     * Immutable version of a persistent trie.
+     */
+    public static final class Snapshot {
+
+        /**
+         * Root node of the version. Being final, every node reachable from it
+         * is visible to any thread as it was when the snapshot was built.
+         */
+        private final PersistentTrieNode root;
+
+        /**
+         * Snapshot constructor.
+         *
+         * @param root Root node of the version.
+         */
+        private Snapshot(PersistentTrieNode root) {
+            this.root = root;
+        }
+
+        /**
+         * Returns true if the word is in this version of the trie, false
+         * otherwise.
+         *
+         * @param word Word to search in the trie.
+         * @return true if the word is in the trie, false otherwise.
+         */
+        public boolean search(String word) {
+            if (word == null) {
+                return false;
+            }
+            return !(root.find(word, 0, word.length()) == null);
+        }
+
+        /**
+         * Returns true if there is any word in this version of the trie that
+         * starts with the given prefix, false otherwise.
+         *
+         * @param prefix Prefix to check in the trie.
+         * @return true if there is any word in the trie that starts with the
+         * given prefix, false otherwise.
+         */
+        public boolean startsWith(String prefix) {
+            if (prefix == null) {
+                return false;
+            }
+            return root.startsWith(prefix, 0, prefix.length());
+        }
+
+        /**
+         * Returns true if the slice of the given sequence between from
+         * (inclusive) and to (exclusive) is a word in this version of the
+         * trie, false otherwise.
+         *
+         * @param word Sequence containing the word to search in the trie.
+         * @param from Index of the first character of the word.
+         * @param to Index after the last character of the word.
+         * @return true if the word is in the trie, false otherwise.
+         * @throws IndexOutOfBoundsException If from is negative, to is greater
+         * than the length of the sequence or from is greater than to.
+         */
+        public boolean search(CharSequence word, int from, int to) {
+            if (word == null) {
+                return false;
+            }
+            Trie.checkSlice(word, from, to);
+            return !(root.find(word, from, to) == null);
+        }
+
+        /**
+         * Returns true if there is any word in this version of the trie that
+         * starts with the slice of the given sequence between from (inclusive)
+         * and to (exclusive), false otherwise.
+         *
+         * @param prefix Sequence containing the prefix to check in the trie.
+         * @param from Index of the first character of the prefix.
+         * @param to Index after the last character of the prefix.
+         * @return true if there is any word in the trie that starts with the
+         * given prefix, false otherwise.
+         * @throws IndexOutOfBoundsException If from is negative, to is greater
+         * than the length of the sequence or from is greater than to.
+         */
+        public boolean startsWith(CharSequence prefix, int from, int to) {
+            if (prefix == null) {
+                return false;
+            }
+            Trie.checkSlice(prefix, from, to);
+            return root.startsWith(prefix, from, to);
+        }
+    }
+
+    /**
+     * View of the current version of the trie, answering the queries of the
+     * trie. Its nodes owned by the trie are modified in place, so it is
+     * replaced by a new view before being handed out by {@link #snapshot()}.
+     */
+    private Snapshot current = new Snapshot(PersistentTrieNode.EMPTY);
+    /**
+     * Owner of the nodes created since the last snapshot, which can be
+     * modified in place.
+     */
+    private Object owner = new Object();
+
+    /**
+     * Inserts a word into the trie. The snapshots taken before are not
+     * affected.
+     *
+     * @param word Word to insert in the trie.
+     */
+    public void insert(String word) {
+        if (word != null) {
+            update(current.root.insert(word, 0, owner));
+        }
+    }
+
+    /**
+     * Removes a word from the trie. The snapshots taken before are not
+     * affected.
+     *
+     * @param word Word to be removed from the trie.
+     */
+    public void remove(String word) {
+        if (word != null) {
+            PersistentTrieNode updated = current.root.remove(word, 0, owner);
+            update(updated == null ? PersistentTrieNode.EMPTY : updated);
+        }
+    }
+
+    /**
+     * Returns true if the word is in the trie, false otherwise.
+     *
+     * @param word Word to search in the trie.
+     * @return true if the word is in the trie, false otherwise.
+     */
+    public boolean search(String word) {
+        return current.search(word);
+    }
+
+    /**
+     * Returns true if there is any word in the trie that starts with the given
+     * prefix, false otherwise.
+     *
+     * @param prefix Prefix to check in the trie.
+     * @return true if there is any word in the trie that starts with the given
+     * prefix, false otherwise.
+     */
+    public boolean startsWith(String prefix) {
+        return current.startsWith(prefix);
+    }
+
+    /**
+     * Returns true if the slice of the given sequence between from (inclusive)
+     * and to (exclusive) is a word in the trie, false otherwise.
+     *
+     * @param word Sequence containing the word to search in the trie.
+     * @param from Index of the first character of the word.
+     * @param to Index after the last character of the word.
+     * @return true if the word is in the trie, false otherwise.
+     * @throws IndexOutOfBoundsException If from is negative, to is greater than
+     * the length of the sequence or from is greater than to.
+     */
+    public boolean search(CharSequence word, int from, int to) {
+        return current.search(word, from, to);
+    }
+
+    /**
+     * Returns true if there is any word in the trie that starts with the slice
+     * of the given sequence between from (inclusive) and to (exclusive), false
+     * otherwise.
+     *
+     * @param prefix Sequence containing the prefix to check in the trie.
+     * @param from Index of the first character of the prefix.
+     * @param to Index after the last character of the prefix.
+     * @return true if there is any word in the trie that starts with the given
+     * prefix, false otherwise.
+     * @throws IndexOutOfBoundsException If from is negative, to is greater than
+     * the length of the sequence or from is greater than to.
+     */
+    public boolean startsWith(CharSequence prefix, int from, int to) {
+        return current.startsWith(prefix, from, to);
+    }
+
+    /**
+     * Returns an immutable view of the current version of the trie in
+     * constant time. Later changes of the trie copy the nodes they touch
+     * instead of modifying the ones seen by the snapshot.
+     *
+     * @return An immutable view of the current version of the trie.
+     */
+    public Snapshot snapshot() {
+        owner = new Object();
+        current = new Snapshot(current.root);
+        return current;
+    }
+
+    /**
+     * Replaces the content of the trie with the given version, in constant
+     * time. The snapshot is not affected by later changes of the trie.
+     *
+     * @param snapshot Version of the trie to go back to.
+     */
+    public void restore(Snapshot snapshot) {
+        owner = new Object();
+        current = snapshot;
+    }
+
+    /**
+     * Makes the given node the root of the current version of the trie,
+     * replacing the view of the current version if the root has changed.
+     *
+     * @param root Root node after a change of the trie.
+     */
+    private void update(PersistentTrieNode root) {
+        if (root != current.root) {
+            current = new Snapshot(root);
+        }
+    }
+}
+
+/**
+ * Node of a persistent trie. Like {@link ImmutableTrieNode} it is copied
+ * instead of modified when it may be seen by a snapshot, but it is modified in
+ * place when it is owned by the trie changing it, that is, when it was created
+ * by the trie after its last snapshot. A node owned by the trie also owns its
+ * array of sons, which it is the only array modified in place; contents and
+ * letters of the edges are always replaced and can be shared by any node.
+ *
+ * The sons are kept in a sorted char array with a parallel array of nodes.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+final class PersistentTrieNode extends ArrayTrieNode {
+
+    /**
+     * Letters shared by the nodes without content or without sons.
+     */
+    static final char[] NO_LETTERS = new char[0];
+    /**
+     * Sons shared by the leaves.
+     */
+    static final PersistentTrieNode[] NO_SONS = new PersistentTrieNode[0];
+    /**
+     * Node representing a trie without words, not owned by any trie.
+     */
+    static final PersistentTrieNode EMPTY = new PersistentTrieNode(NO_LETTERS, NO_LETTERS, NO_SONS, false, null);
+
+    /**
+     * Buffer of content in the current node.
+     */
+    private char[] content;
+    /**
+     * Sorted letters of the edges leading to the sons.
+     */
+    private char[] keys;
+    /**
+     * Sons, in the same order as the letters of their edges.
+     */
+    private PersistentTrieNode[] sons;
+    /**
+     * Flag to determine wether if the node reach the end of a word in the trie
+     * or not.
+     */
+    private boolean endNode;
+    /**
+     * Owner of the node, which is allowed to modify it in place.
+     */
+    private final Object owner;
+
+    /**
+     * PersistentTrieNode constructor.
+     *
+     * @param content Buffer of content of the node.
+     * @param keys Sorted letters of the edges leading to the sons.
+     * @param sons Sons, in the same order as the letters of their edges.
+     * @param endNode True if a word ends in the node.
+     * @param owner Owner of the node. The array of sons must not be shared
+     * with other nodes unless the owner is one that no trie uses anymore.
+     */
+    PersistentTrieNode(char[] content, char[] keys, PersistentTrieNode[] sons, boolean endNode, Object owner) {
+        this.content = content;
+        this.keys = keys;
+        this.sons = sons;
+        this.endNode = endNode;
+        this.owner = owner;
+    }
+
+    /**
+     * Inserts a word in the subtrie of the current node. The node is modified
+     * in place if it is owned by the given owner and copied otherwise.
+     *
+     * @param word Word to insert.
+     * @param idx Index pointing to the first character of the word visible for
+     * the current node.
+     * @param editor Owner of the trie doing the insertion.
+     * @return The node with the word inserted, which is the current node if it
+     * was modified in place or the word was already present.
+     */
+    PersistentTrieNode insert(CharSequence word, int idx, Object editor) {
+        if (content.length == 0 && sons.length == 0 && !endNode) {
+            return leaf(word, idx, editor);
+        }
+        int i = 0;
+        while (i < content.length && i + idx < word.length() && content[i] == word.charAt(i + idx)) {
+            i++;
+        }
+        idx += i;
+        if (i < content.length) {
+            char contentMidPoint = content[i];
+            char[] prefix = copy(content, 0, i);
+            PersistentTrieNode son;
+            if (owner == editor) {
+                content = copy(content, i + 1, content.length);
+                son = this;
+            } else {
+                son = new PersistentTrieNode(copy(content, i + 1, content.length), keys, sons, endNode, owner);
+            }
+            if (idx == word.length()) {
+                return new PersistentTrieNode(prefix, new char[]{contentMidPoint}, new PersistentTrieNode[]{son}, true, editor);
+            }
+            PersistentTrieNode wordInsertionPoint = leaf(word, idx + 1, editor);
+            char wordMidPoint = word.charAt(idx);
+            if (wordMidPoint < contentMidPoint) {
+                return new PersistentTrieNode(prefix, new char[]{wordMidPoint, contentMidPoint}, new PersistentTrieNode[]{wordInsertionPoint, son}, false, editor);
+            } else {
+                return new PersistentTrieNode(prefix, new char[]{contentMidPoint, wordMidPoint}, new PersistentTrieNode[]{son, wordInsertionPoint}, false, editor);
+            }
+        }
+        if (idx == word.length()) {
+            if (endNode) {
+                return this;
+            }
+            PersistentTrieNode node = editable(editor);
+            node.endNode = true;
+            return node;
+        }
+        char wordMidPoint = word.charAt(idx);
+        int position = Arrays.binarySearch(keys, wordMidPoint);
+        if (position >= 0) {
+            PersistentTrieNode son = sons[position].insert(word, idx + 1, editor);
+            if (son == sons[position]) {
+                return this;
+            }
+            PersistentTrieNode node = editable(editor);
+            node.sons[position] = son;
+            return node;
+        }
+        position = -position - 1;
+        char[] newKeys = new char[keys.length + 1];
+        PersistentTrieNode[] newSons = new PersistentTrieNode[sons.length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, position);
+        System.arraycopy(sons, 0, newSons, 0, position);
+        newKeys[position] = wordMidPoint;
+        newSons[position] = leaf(word, idx + 1, editor);
+        System.arraycopy(keys, position, newKeys, position + 1, keys.length - position);
+        System.arraycopy(sons, position, newSons, position + 1, sons.length - position);
+        return withSons(newKeys, newSons, endNode, editor);
+    }
+
+    /**
+     * Removes a word from the subtrie of the current node. The node is
+     * modified in place if it is owned by the given owner and copied
+     * otherwise. Nodes in the path that are left without words are discarded
+     * and nodes that are not the end of any word and have only one son are
+     * fused with their son.
+     *
+     * @param word Word to remove.
+     * @param idx Index pointing to the first character of the word visible for
+     * the current node.
+     * @param editor Owner of the trie doing the removal.
+     * @return The node with the word removed, the current node itself if it
+     * was modified in place or the word was not present, or null if the
+     * subtrie does not contain any word after the removal.
+     */
+    PersistentTrieNode remove(CharSequence word, int idx, Object editor) {
+        int i = 0;
+        while (i < content.length && i + idx < word.length() && content[i] == word.charAt(i + idx)) {
+            i++;
+        }
+        idx += i;
+        if (i < content.length) {
+            return this;
+        }
+        if (idx == word.length()) {
+            if (!endNode) {
+                return this;
+            } else if (sons.length == 0) {
+                return null;
+            } else if (sons.length == 1) {
+                return fuse(content, keys[0], sons[0], editor);
+            }
+            PersistentTrieNode node = editable(editor);
+            node.endNode = false;
+            return node;
+        }
+        int position = Arrays.binarySearch(keys, word.charAt(idx));
+        if (position < 0) {
+            return this;
+        }
+        PersistentTrieNode son = sons[position].remove(word, idx + 1, editor);
+        if (son == sons[position]) {
+            return this;
+        } else if (son != null) {
+            PersistentTrieNode node = editable(editor);
+            node.sons[position] = son;
+            return node;
+        } else if (sons.length == 1) {
+            return (endNode ? withSons(NO_LETTERS, NO_SONS, true, editor) : null);
+        } else if (sons.length == 2 && !endNode) {
+            return fuse(content, keys[1 - position], sons[1 - position], editor);
+        }
+        char[] newKeys = new char[keys.length - 1];
+        PersistentTrieNode[] newSons = new PersistentTrieNode[sons.length - 1];
+        System.arraycopy(keys, 0, newKeys, 0, position);
+        System.arraycopy(sons, 0, newSons, 0, position);
+        System.arraycopy(keys, position + 1, newKeys, position, newKeys.length - position);
+        System.arraycopy(sons, position + 1, newSons, position, newSons.length - position);
+        return withSons(newKeys, newSons, endNode, editor);
+    }
+
+    @Override
+    char[] content() {
+        return content;
+    }
+
+    @Override
+    char[] keys() {
+        return keys;
+    }
+
+    @Override
+    PersistentTrieNode son(int position) {
+        return sons[position];
+    }
+
+    @Override
+    boolean isEndNode() {
+        return endNode;
+    }
+
+    /**
+     * Returns a node that the given owner can modify in place with the same
+     * content, sons and end node flag as the current node: the current node
+     * itself if it is owned by the given owner, or a copy with its own array
+     * of sons otherwise.
+     *
+     * @param editor Owner of the trie doing the change.
+     * @return A node equivalent to the current one that can be modified in
+     * place.
+     */
+    private PersistentTrieNode editable(Object editor) {
+        if (owner == editor) {
+            return this;
+        }
+        return new PersistentTrieNode(content, keys, (sons.length == 0 ? NO_SONS : sons.clone()), endNode, editor);
+    }
+
+    /**
+     * Returns a node with the content of the current node and the given sons
+     * and end node flag, modifying the current node in place if it is owned
+     * by the given owner.
+     *
+     * @param newKeys Sorted letters of the edges leading to the sons.
+     * @param newSons Sons, in a new array not shared with other nodes.
+     * @param newEndNode True if a word ends in the node.
+     * @param editor Owner of the trie doing the change.
+     * @return The node with the given sons.
+     */
+    private PersistentTrieNode withSons(char[] newKeys, PersistentTrieNode[] newSons, boolean newEndNode, Object editor) {
+        if (owner != editor) {
+            return new PersistentTrieNode(content, newKeys, newSons, newEndNode, editor);
+        }
+        keys = newKeys;
+        sons = newSons;
+        endNode = newEndNode;
+        return this;
+    }
+
+    /**
+     * Builds the node resulting of fusing a content with the only son that
+     * follows it, modifying the son in place if it is owned by the given
+     * owner.
+     *
+     * @param content Content of the fused node.
+     * @param key Letter of the edge leading to the son.
+     * @param son Son to fuse.
+     * @param editor Owner of the trie doing the change.
+     * @return A node with the content, the letter and the content of the son
+     * and the sons and end node flag of the son.
+     */
+    private static PersistentTrieNode fuse(char[] content, char key, PersistentTrieNode son, Object editor) {
+        char[] fusionedContent = new char[content.length + 1 + son.content.length];
+        System.arraycopy(content, 0, fusionedContent, 0, content.length);
+        fusionedContent[content.length] = key;
+        System.arraycopy(son.content, 0, fusionedContent, content.length + 1, son.content.length);
+        if (son.owner == editor) {
+            son.content = fusionedContent;
+            return son;
+        }
+        return new PersistentTrieNode(fusionedContent, son.keys, son.sons, son.endNode, son.owner);
+    }
+
+    /**
+     * Builds a leaf holding the suffix of a word.
+     *
+     * @param word Word.
+     * @param idx Index pointing to the first character of the suffix.
+     * @param editor Owner of the trie creating the leaf.
+     * @return A leaf holding the suffix of the word.
+     */
+    private static PersistentTrieNode leaf(CharSequence word, int idx, Object editor) {
+        char[] leafContent = NO_LETTERS;
+        if (idx < word.length()) {
+            leafContent = new char[word.length() - idx];
+            for (int i = 0; i < leafContent.length; i++) {
+                leafContent[i] = word.charAt(idx + i);
+            }
+        }
+        return new PersistentTrieNode(leafContent, NO_LETTERS, NO_SONS, true, editor);
+    }
+
+    /**
+     * Copies a range of a content.
+     *
+     * @param content Content to copy.
+     * @param from Index of the first letter to copy.
+     * @param to Index after the last letter to copy.
+     * @return A copy of the range, shared empty array if the range is empty.
+     */
+    private static char[] copy(char[] content, int from, int to) {
+        return (from == to ? NO_LETTERS : Arrays.copyOfRange(content, from, to));
+    }
+}
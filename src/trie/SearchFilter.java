@@ -0,0 +1,226 @@
+package trie;
+
+/**
+ * Counting Bloom filter kept in front of the searches of a trie. Every word of
+ * the trie increments a few counters chosen by hashing its characters, so a
+ * word whose counters are not all set is known to be absent without walking
+ * the trie, and removing a word decrements them again. The counters take 4
+ * bits each, packed in a flat array of longs, so a lookup is a single pass
+ * over the characters of the word and a few array reads.
+ *
+ * A counter that reaches 15 sticks there and is never decremented, so words
+ * are never rejected by mistake; such counters only make the filter a bit
+ * less selective. The filter is maintained by the trie it belongs to and it
+ * is not thread safe: it can be read by concurrent searches as long as the
+ * trie is not modified.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public final class SearchFilter {
+
+    /**
+     * Value at which a counter sticks.
+     */
+    static final int SATURATED = 15;
+    /**
+     * Maximum number of hashes of a word.
+     */
+    static final int MAX_HASHES = 16;
+
+    /**
+     * Counters, 16 in every long.
+     */
+    private final long[] counters;
+    /**
+     * Mask of the index of a counter (the number of counters is a power of
+     * two).
+     */
+    private final int mask;
+    /**
+     * Number of counters incremented by every word.
+     */
+    private final int hashes;
+    /**
+     * Number of counters different from 0.
+     */
+    private int used;
+    /**
+     * Number of words in the filter.
+     */
+    private long words;
+
+    /**
+     * SearchFilter constructor. The number of counters and hashes are the
+     * ones giving the requested false positive rate with the expected number
+     * of words, the number of counters rounded up to a power of two.
+     *
+     * @param expectedWords Number of words the filter is sized for.
+     * @param falsePositiveRate False positive rate expected with that number
+     * of words, between 0 and 1 (exclusive).
+     * @throws IllegalArgumentException If the number of words is negative or
+     * the false positive rate is out of range.
+     */
+    SearchFilter(long expectedWords, double falsePositiveRate) {
+        if (expectedWords < 0) {
+            throw new IllegalArgumentException("Negative number of words: " + expectedWords);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate out of range: " + falsePositiveRate);
+        }
+        long words = Math.max(expectedWords, 1);
+        double bits = -words * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        int size = 64;
+        while (size < bits && size < (1 << 30)) {
+            size <<= 1;
+        }
+        counters = new long[size / 16];
+        mask = size - 1;
+        hashes = (int) Math.max(1, Math.min(MAX_HASHES, Math.round(Math.log(2) * bits / words)));
+    }
+
+    /**
+     * Adds a word. The word must not be in the filter yet.
+     *
+     * @param word Sequence containing the word.
+     * @param from Index of the first character of the word.
+     * @param to Index after the last character of the word.
+     */
+    void add(CharSequence word, int from, int to) {
+        long hash = hash(word, from, to);
+        int index = (int) hash;
+        int step = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++, index += step) {
+            int counter = index & mask;
+            int shift = (counter & 15) << 2;
+            int value = (int) (counters[counter >>> 4] >>> shift) & 15;
+            if (value == 0) {
+                used++;
+            }
+            if (value < SATURATED) {
+                counters[counter >>> 4] += 1L << shift;
+            }
+        }
+        words++;
+    }
+
+    /**
+     * Removes a word. The word must be in the filter.
+     *
+     * @param word Sequence containing the word.
+     * @param from Index of the first character of the word.
+     * @param to Index after the last character of the word.
+     */
+    void remove(CharSequence word, int from, int to) {
+        long hash = hash(word, from, to);
+        int index = (int) hash;
+        int step = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++, index += step) {
+            int counter = index & mask;
+            int shift = (counter & 15) << 2;
+            int value = (int) (counters[counter >>> 4] >>> shift) & 15;
+            if (value > 0 && value < SATURATED) {
+                counters[counter >>> 4] -= 1L << shift;
+                if (value == 1) {
+                    used--;
+                }
+            }
+        }
+        words--;
+    }
+
+    /**
+     * Returns false if the word is certainly not in the filter, true if it
+     * may be.
+     *
+     * @param word Sequence containing the word.
+     * @param from Index of the first character of the word.
+     * @param to Index after the last character of the word.
+     * @return False if the word is not in the filter, true if it may be.
+     */
+    boolean mightContain(CharSequence word, int from, int to) {
+        long hash = hash(word, from, to);
+        int index = (int) hash;
+        int step = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++, index += step) {
+            int counter = index & mask;
+            if ((counters[counter >>> 4] & (15L << ((counter & 15) << 2))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hashes the characters of a word into 64 bits. The low half chooses the
+     * first counter and the high half, made odd, the distance between the
+     * counters of the word, so the counters of a word are all different.
+     *
+     * @param word Sequence containing the word.
+     * @param from Index of the first character of the word.
+     * @param to Index after the last character of the word.
+     * @return The hash of the word.
+     */
+    static long hash(CharSequence word, int from, int to) {
+        long hash = 0x9E3779B97F4A7C15L ^ (to - from);
+        for (int i = from; i < to; i++) {
+            hash = Long.rotateLeft((hash ^ word.charAt(i)) * 0x9E3779B97F4A7C15L, 27);
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * Returns the number of words in the filter.
+     *
+     * @return The number of words in the filter.
+     */
+    public long words() {
+        return words;
+    }
+
+    /**
+     * Returns the number of counters of the filter.
+     *
+     * @return The number of counters of the filter.
+     */
+    public int size() {
+        return mask + 1;
+    }
+
+    /**
+     * Returns the number of counters incremented by every word.
+     *
+     * @return The number of hashes of a word.
+     */
+    public int hashes() {
+        return hashes;
+    }
+
+    /**
+     * Returns the memory taken by the counters of the filter.
+     *
+     * @return The size of the counters in bytes.
+     */
+    public long memoryBytes() {
+        return 8L * counters.length;
+    }
+
+    /**
+     * Estimates the probability that a word that is not in the filter is not
+     * rejected, from the fraction of counters currently set.
+     *
+     * @return The current false positive rate of the filter.
+     */
+    public double falsePositiveRate() {
+        return Math.pow((double) used / size(), hashes);
+    }
+
+    @Override
+    public String toString() {
+        return "SearchFilter[words=" + words + ", size=" + size() + ", hashes=" + hashes
+                + ", memoryBytes=" + memoryBytes() + ", falsePositiveRate=" + falsePositiveRate() + "]";
+    }
+}
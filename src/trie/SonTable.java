@@ -0,0 +1,340 @@
+package trie;
+
+import java.util.Arrays;
+
+/**
+ * Table of sons of a trie node indexed by the letter stored in the edge that
+ * leads to each son. Leaves do not have a table at all, nodes with a small
+ * fan-out keep their letters in a sorted char array and wide nodes whose
+ * letters fall in a narrow range switch to a dense table indexed directly by
+ * the letter. In every representation the sons are visited in ascending order
+ * of their letters when iterating the slots of the table.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+abstract class SonTable {
+
+    /**
+     * Maximum number of sons kept in a sorted table before trying to switch
+     * to a dense table.
+     */
+    static final int MAX_SORTED_SIZE = 16;
+    /**
+     * Maximum span of letters (distance between the highest and the lowest
+     * letter plus one) that a dense table is allowed to cover.
+     */
+    static final int MAX_DENSE_SPAN = 256;
+
+    /**
+     * Creates a table holding a single son.
+     *
+     * @param key Letter of the edge leading to the son.
+     * @param son Son node.
+     * @return A table holding only the given son.
+     */
+    static SonTable of(char key, TrieNode son) {
+        return new SortedSonTable(new char[]{key}, new TrieNode[]{son});
+    }
+
+    /**
+     * Creates a table holding the given sons.
+     *
+     * @param keys Letters of the edges leading to the sons, sorted in ascending
+     * order and without repetitions.
+     * @param sons Sons, in the same order as their letters.
+     * @return A table holding the given sons, with the representation that
+     * better fits their number and letters.
+     */
+    static SonTable of(char[] keys, TrieNode[] sons) {
+        SortedSonTable sorted = new SortedSonTable(keys, sons);
+        char lowest = keys[0];
+        char highest = keys[keys.length - 1];
+        if (keys.length > MAX_SORTED_SIZE && highest - lowest < MAX_DENSE_SPAN) {
+            return new DenseSonTable(sorted, lowest, highest);
+        }
+        return sorted;
+    }
+
+    /**
+     * Returns the number of sons in the table.
+     *
+     * @return The number of sons in the table.
+     */
+    abstract int size();
+
+    /**
+     * Returns the son reached through the given letter.
+     *
+     * @param key Letter of the edge.
+     * @return The son reached through the given letter, null if there is no
+     * such son.
+     */
+    abstract TrieNode get(char key);
+
+    /**
+     * Adds or replaces the son reached through the given letter.
+     *
+     * @param key Letter of the edge.
+     * @param son Son node.
+     * @return The table to be used from now on by the owner node (it may be
+     * this same table or a table with a different representation).
+     */
+    abstract SonTable put(char key, TrieNode son);
+
+    /**
+     * Removes the son reached through the given letter.
+     *
+     * @param key Letter of the edge.
+     * @return The table to be used from now on by the owner node, null if the
+     * table became empty.
+     */
+    abstract SonTable remove(char key);
+
+    /**
+     * Returns the number of slots of the table. Slots are numbered from 0 and
+     * are ordered by ascending letter. Some of them may be empty.
+     *
+     * @return The number of slots of the table.
+     */
+    abstract int slots();
+
+    /**
+     * Returns the letter of the given slot.
+     *
+     * @param slot Slot index.
+     * @return The letter of the given slot.
+     */
+    abstract char keyAt(int slot);
+
+    /**
+     * Returns the son stored in the given slot.
+     *
+     * @param slot Slot index.
+     * @return The son stored in the given slot, null if the slot is empty.
+     */
+    abstract TrieNode sonAt(int slot);
+}
+
+/**
+ * Son table storing the letters in a sorted char array and the sons in a
+ * parallel array. Lookups use a binary search over the letters.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+final class SortedSonTable extends SonTable {
+
+    /**
+     * Sorted letters of the edges.
+     */
+    private char[] keys;
+    /**
+     * Sons, in the same order as their letters.
+     */
+    private TrieNode[] sons;
+
+    /**
+     * SortedSonTable constructor.
+     *
+     * @param keys Sorted letters of the edges.
+     * @param sons Sons, in the same order as their letters.
+     */
+    SortedSonTable(char[] keys, TrieNode[] sons) {
+        this.keys = keys;
+        this.sons = sons;
+    }
+
+    @Override
+    int size() {
+        return keys.length;
+    }
+
+    @Override
+    TrieNode get(char key) {
+        int position = Arrays.binarySearch(keys, key);
+        return (position < 0 ? null : sons[position]);
+    }
+
+    @Override
+    SonTable put(char key, TrieNode son) {
+        int position = Arrays.binarySearch(keys, key);
+        if (position >= 0) {
+            sons[position] = son;
+            return this;
+        }
+        position = -position - 1;
+        if (keys.length >= MAX_SORTED_SIZE) {
+            char lowest = (position == 0 ? key : keys[0]);
+            char highest = (position == keys.length ? key : keys[keys.length - 1]);
+            if (highest - lowest < MAX_DENSE_SPAN) {
+                return new DenseSonTable(this, lowest, highest).put(key, son);
+            }
+        }
+        char[] newKeys = new char[keys.length + 1];
+        TrieNode[] newSons = new TrieNode[sons.length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, position);
+        System.arraycopy(sons, 0, newSons, 0, position);
+        newKeys[position] = key;
+        newSons[position] = son;
+        System.arraycopy(keys, position, newKeys, position + 1, keys.length - position);
+        System.arraycopy(sons, position, newSons, position + 1, sons.length - position);
+        keys = newKeys;
+        sons = newSons;
+        return this;
+    }
+
+    @Override
+    SonTable remove(char key) {
+        int position = Arrays.binarySearch(keys, key);
+        if (position < 0) {
+            return this;
+        }
+        if (keys.length == 1) {
+            return null;
+        }
+        char[] newKeys = new char[keys.length - 1];
+        TrieNode[] newSons = new TrieNode[sons.length - 1];
+        System.arraycopy(keys, 0, newKeys, 0, position);
+        System.arraycopy(sons, 0, newSons, 0, position);
+        System.arraycopy(keys, position + 1, newKeys, position, newKeys.length - position);
+        System.arraycopy(sons, position + 1, newSons, position, newSons.length - position);
+        keys = newKeys;
+        sons = newSons;
+        return this;
+    }
+
+    @Override
+    int slots() {
+        return keys.length;
+    }
+
+    @Override
+    char keyAt(int slot) {
+        return keys[slot];
+    }
+
+    @Override
+    TrieNode sonAt(int slot) {
+        return sons[slot];
+    }
+}
+
+/**
+ * Son table for wide nodes whose letters fall in a narrow range. The sons are
+ * stored in an array indexed by the distance between their letter and the
+ * lowest letter covered by the table, so lookups do not need any comparison.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+final class DenseSonTable extends SonTable {
+
+    /**
+     * Number of sons below which a dense table goes back to a sorted table.
+     */
+    static final int MIN_DENSE_SIZE = MAX_SORTED_SIZE / 2;
+
+    /**
+     * Lowest letter covered by the table.
+     */
+    private char base;
+    /**
+     * Sons indexed by the distance between their letter and the base.
+     */
+    private TrieNode[] sons;
+    /**
+     * Number of non empty slots.
+     */
+    private int size;
+
+    /**
+     * Creates a dense table with the sons of a sorted table.
+     *
+     * @param sorted Table whose sons are moved to the new table.
+     * @param lowest Lowest letter the new table has to cover.
+     * @param highest Highest letter the new table has to cover.
+     */
+    DenseSonTable(SortedSonTable sorted, char lowest, char highest) {
+        base = lowest;
+        sons = new TrieNode[highest - lowest + 1];
+        for (int slot = 0; slot < sorted.slots(); slot++) {
+            sons[sorted.keyAt(slot) - base] = sorted.sonAt(slot);
+        }
+        size = sorted.size();
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    TrieNode get(char key) {
+        int slot = key - base;
+        return (slot < 0 || slot >= sons.length ? null : sons[slot]);
+    }
+
+    @Override
+    SonTable put(char key, TrieNode son) {
+        int slot = key - base;
+        if (slot < 0 || slot >= sons.length) {
+            char lowest = (slot < 0 ? key : base);
+            char highest = (slot < 0 ? (char) (base + sons.length - 1) : key);
+            if (highest - lowest >= MAX_DENSE_SPAN) {
+                return toSorted().put(key, son);
+            }
+            TrieNode[] newSons = new TrieNode[highest - lowest + 1];
+            System.arraycopy(sons, 0, newSons, base - lowest, sons.length);
+            sons = newSons;
+            base = lowest;
+            slot = key - base;
+        }
+        if (sons[slot] == null) {
+            size++;
+        }
+        sons[slot] = son;
+        return this;
+    }
+
+    @Override
+    SonTable remove(char key) {
+        int slot = key - base;
+        if (slot < 0 || slot >= sons.length || sons[slot] == null) {
+            return this;
+        }
+        sons[slot] = null;
+        size--;
+        return (size < MIN_DENSE_SIZE ? toSorted() : this);
+    }
+
+    @Override
+    int slots() {
+        return sons.length;
+    }
+
+    @Override
+    char keyAt(int slot) {
+        return (char) (base + slot);
+    }
+
+    @Override
+    TrieNode sonAt(int slot) {
+        return sons[slot];
+    }
+
+    /**
+     * Builds a sorted table with the sons of this table.
+     *
+     * @return A sorted table with the same sons as this table.
+     */
+    private SortedSonTable toSorted() {
+        char[] keys = new char[size];
+        TrieNode[] sorted = new TrieNode[size];
+        int position = 0;
+        for (int slot = 0; slot < sons.length; slot++) {
+            if (sons[slot] != null) {
+                keys[position] = keyAt(slot);
+                sorted[position++] = sons[slot];
+            }
+        }
+        return new SortedSonTable(keys, sorted);
+    }
+}
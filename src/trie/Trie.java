@@ -1,9 +1,10 @@
 package trie;
 
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Optimized implementation of a trie aiming to minimize the amount of nodes by
@@ -17,6 +18,15 @@ public class Trie {
      * Root node of the trie.
      */
     private final TrieNode root;
+    /**
+     * Counters of the operations, null while they are disabled.
+     */
+    private TrieCounters counters;
+    /**
+     * Filter rejecting the searches of absent words, null while it is
+     * disabled.
+     */
+    private SearchFilter filter;
 
     /**
      * Trie constructor
@@ -25,13 +35,86 @@ public class Trie {
         root = new TrieNode();
     }
 
+    /**
+     * Trie constructor for tries whose nodes carry extra information.
+     *
+     * @param root Empty root node of the trie.
+     */
+    Trie(TrieNode root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns the root node of the trie.
+     *
+     * @return The root node of the trie.
+     */
+    TrieNode root() {
+        return root;
+    }
+
+    /**
+     * Builds a trie from words sorted in ascending order (the order of
+     * {@link String#compareTo(String)}). Every node is created once with its
+     * final content and sons in a single pass over the words, instead of
+     * splitting nodes again and again as repeated insertions do. The words are
+     * streamed: besides the trie, only the nodes in the path of the last word
+     * are held while loading. Duplicated and null words are ignored.
+     *
+     * @param sortedWords Iterator over the words, sorted in ascending order.
+     * @return A trie holding the given words.
+     * @throws IllegalArgumentException If the words are not sorted.
+     */
+    public static Trie bulkLoad(Iterator<String> sortedWords) {
+        return new Trie(TrieBuilder.build(sortedWords));
+    }
+
+    /**
+     * Builds a trie from words sorted in ascending order like
+     * {@link #bulkLoad(Iterator)}, building the subtries of the different
+     * leading letters in parallel in the given pool. Splitting the words in
+     * ranges needs random access, so unlike the sequential load the words are
+     * first collected in an array, which holds one reference per distinct
+     * word (besides the words themselves) until the trie is built.
+     *
+     * @param sortedWords Iterator over the words, sorted in ascending order.
+     * @param pool Pool in which the subtries are built.
+     * @return A trie holding the given words.
+     * @throws IllegalArgumentException If the words are not sorted.
+     */
+    public static Trie parallelBulkLoad(Iterator<String> sortedWords, ForkJoinPool pool) {
+        return new Trie(TrieBuilder.parallelBuild(TrieBuilder.collect(sortedWords), pool));
+    }
+
     /**
      * Inserts a word into the trie.
      *
      * @param word Word to insert in the trie.
      */
     public void insert(String word) {
-        root.insert(word);
+        add(word);
+    }
+
+    /**
+     * Inserts a word into the trie, recording the insertion in the counters
+     * and adding the word to the filter if it was not in the trie. Subclasses
+     * attaching information to the words use it to reach the node of the word.
+     *
+     * @param word Word to insert in the trie.
+     * @return The end node of the word, whether it has been added or it was
+     * already in the trie, null if the word is null.
+     */
+    TrieNode add(String word) {
+        TrieCounters counters = this.counters;
+        if (counters != null) {
+            counters.insert();
+        }
+        boolean[] added = new boolean[1];
+        TrieNode node = root.insert(word, added);
+        if (added[0] && filter != null) {
+            filter.add(word, 0, word.length());
+        }
+        return node;
     }
 
     /**
@@ -40,7 +123,13 @@ public class Trie {
      * @param word Word to be removed from the trie.
      */
     public void remove(String word) {
-        root.remove(word);
+        TrieCounters counters = this.counters;
+        if (counters != null) {
+            counters.remove();
+        }
+        if (root.remove(word) && filter != null) {
+            filter.remove(word, 0, word.length());
+        }
     }
 
     /**
@@ -50,6 +139,13 @@ public class Trie {
      * @return true if the word is in the trie, false otherwise.
      */
     public boolean search(String word) {
+        if (filter != null && word != null && rejected(word, 0, word.length())) {
+            return false;
+        }
+        TrieCounters counters = this.counters;
+        if (counters != null && word != null) {
+            return countedLookup(counters, word, 0, word.length(), false);
+        }
         return root.search(word);
     }
 
@@ -62,8 +158,362 @@ public class Trie {
      * prefix, false otherwise.
      */
     public boolean startsWith(String prefix) {
+        TrieCounters counters = this.counters;
+        if (counters != null && prefix != null) {
+            return countedLookup(counters, prefix, 0, prefix.length(), true);
+        }
         return root.startsWith(prefix);
     }
+
+    /**
+     * Returns true if the slice of the given sequence between from (inclusive)
+     * and to (exclusive) is a word in the trie, false otherwise. No substring
+     * or copy of the sequence is built.
+     *
+     * @param word Sequence containing the word to search in the trie.
+     * @param from Index of the first character of the word.
+     * @param to Index after the last character of the word.
+     * @return true if the word is in the trie, false otherwise.
+     * @throws IndexOutOfBoundsException If from is negative, to is greater than
+     * the length of the sequence or from is greater than to.
+     */
+    public boolean search(CharSequence word, int from, int to) {
+        if (word == null) {
+            return false;
+        }
+        checkSlice(word, from, to);
+        if (filter != null && rejected(word, from, to)) {
+            return false;
+        }
+        TrieCounters counters = this.counters;
+        if (counters != null) {
+            return countedLookup(counters, word, from, to, false);
+        }
+        return !(root.find(word, from, to) == null);
+    }
+
+    /**
+     * Returns true if there is any word in the trie that starts with the slice
+     * of the given sequence between from (inclusive) and to (exclusive), false
+     * otherwise. No substring or copy of the sequence is built.
+     *
+     * @param prefix Sequence containing the prefix to check in the trie.
+     * @param from Index of the first character of the prefix.
+     * @param to Index after the last character of the prefix.
+     * @return true if there is any word in the trie that starts with the given
+     * prefix, false otherwise.
+     * @throws IndexOutOfBoundsException If from is negative, to is greater than
+     * the length of the sequence or from is greater than to.
+     */
+    public boolean startsWith(CharSequence prefix, int from, int to) {
+        if (prefix == null) {
+            return false;
+        }
+        checkSlice(prefix, from, to);
+        TrieCounters counters = this.counters;
+        if (counters != null) {
+            return countedLookup(counters, prefix, from, to, true);
+        }
+        return root.startsWith(prefix, from, to);
+    }
+
+    /**
+     * Checks a word against the filter of the trie, recording the rejected
+     * searches in the counters as misses without visiting any node.
+     *
+     * @param word Sequence containing the word.
+     * @param from Index of the first character of the word.
+     * @param to Index after the last character of the word.
+     * @return True if the filter rejects the word, false if the trie has to
+     * be searched.
+     */
+    private boolean rejected(CharSequence word, int from, int to) {
+        if (filter.mightContain(word, from, to)) {
+            return false;
+        }
+        TrieCounters counters = this.counters;
+        if (counters != null) {
+            counters.search(false, 0);
+        }
+        return true;
+    }
+
+    /**
+     * Searches a word or checks a prefix recording the operation and the
+     * number of nodes visited in the given counters.
+     *
+     * @param counters Counters recording the operation.
+     * @param key Sequence containing the word or prefix.
+     * @param from Index of the first character of the word or prefix.
+     * @param to Index after the last character of the word or prefix.
+     * @param prefix True to check a prefix, false to search a word.
+     * @return True if the word or prefix is in the trie, false otherwise.
+     */
+    private boolean countedLookup(TrieCounters counters, CharSequence key, int from, int to, boolean prefix) {
+        int visits = root.walk(key, from, to, prefix);
+        if (prefix) {
+            counters.prefixCheck(visits > 0, Math.abs(visits));
+        } else {
+            counters.search(visits > 0, Math.abs(visits));
+        }
+        return visits > 0;
+    }
+
+    /**
+     * Searches a batch of words. The words are not searched one by one from
+     * the root: the batch descends the trie as a whole, grouping the words by
+     * the son they go on to, so every node is entered once for all the words
+     * going through it, whatever the order of the batch. Searches in a batch
+     * are not recorded by the counters of the trie.
+     *
+     * @param words Words to search in the trie (null words are not found).
+     * @return An array whose position i is true if words[i] is in the trie.
+     */
+    public boolean[] searchAll(String[] words) {
+        return new BatchLookup(root, words, false).lookup();
+    }
+
+    /**
+     * Searches a batch of words like {@link #searchAll(String[])}, splitting
+     * large batches in slices searched in parallel in the given pool. The trie
+     * must not be modified during the search.
+     *
+     * @param words Words to search in the trie (null words are not found).
+     * @param pool Pool in which the slices are searched.
+     * @return An array whose position i is true if words[i] is in the trie.
+     */
+    public boolean[] searchAll(String[] words, ForkJoinPool pool) {
+        return new BatchLookup(root, words, false).parallelLookup(pool);
+    }
+
+    /**
+     * Checks a batch of prefixes like {@link #searchAll(String[])} searches a
+     * batch of words.
+     *
+     * @param prefixes Prefixes to check in the trie (null prefixes are not
+     * found).
+     * @return An array whose position i is true if there is any word in the
+     * trie that starts with prefixes[i].
+     */
+    public boolean[] startsWithAll(String[] prefixes) {
+        return new BatchLookup(root, prefixes, true).lookup();
+    }
+
+    /**
+     * Checks a batch of prefixes like {@link #startsWithAll(String[])},
+     * splitting large batches in slices checked in parallel in the given pool.
+     * The trie must not be modified during the check.
+     *
+     * @param prefixes Prefixes to check in the trie (null prefixes are not
+     * found).
+     * @param pool Pool in which the slices are checked.
+     * @return An array whose position i is true if there is any word in the
+     * trie that starts with prefixes[i].
+     */
+    public boolean[] startsWithAll(String[] prefixes, ForkJoinPool pool) {
+        return new BatchLookup(root, prefixes, true).parallelLookup(pool);
+    }
+
+    /**
+     * Returns an iterator over the words of the trie that start with the given
+     * prefix, in lexicographic order. The words are built one by one while
+     * iterating, walking the nodes under the prefix, so the words that are not
+     * visited are never materialized. The trie must not be modified while the
+     * iterator is in use.
+     *
+     * @param prefix Prefix of the words to iterate.
+     * @return An iterator over the words of the trie that start with the given
+     * prefix.
+     */
+    public Iterator<String> keysWithPrefix(String prefix) {
+        return new TrieKeyIterator(root, (prefix == null ? "" : prefix));
+    }
+
+    /**
+     * Returns an iterator over the words of the trie between two bounds, in
+     * lexicographic order. The iterator starts walking down to the first word
+     * not below the lower bound, so the words below it are never visited, and
+     * it stops at the first word not below the upper bound. The trie must not
+     * be modified while the iterator is in use.
+     *
+     * @param from Lowest word to return (inclusive), null for no lower bound.
+     * @param to Upper bound of the words to return (exclusive), null for no
+     * upper bound.
+     * @return An iterator over the words w of the trie such that from &lt;= w
+     * &lt; to.
+     */
+    public Iterator<String> range(String from, final String to) {
+        final Iterator<String> words = TrieKeyIterator.seek(root, (from == null ? "" : from));
+        return new Iterator<String>() {
+
+            /**
+             * Next word to return, null if it has not been looked for yet.
+             */
+            private String next;
+            /**
+             * True once the upper bound or the end of the trie is reached.
+             */
+            private boolean finished;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !finished) {
+                    next = (words.hasNext() ? words.next() : null);
+                    if (next == null || (to != null && next.compareTo(to) >= 0)) {
+                        next = null;
+                        finished = true;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String word = next;
+                next = null;
+                return word;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Finds the words of the trie within the given Levenshtein distance of a
+     * word (the minimum number of single letter insertions, removals and
+     * substitutions turning one into the other). Subtrees are discarded as soon
+     * as no word under them can be within the distance.
+     *
+     * @param word Word to look for.
+     * @param maxDistance Maximum distance of the words found.
+     * @return The words of the trie within the given distance of the word, in
+     * lexicographic order.
+     * @throws IllegalArgumentException If the distance is negative.
+     */
+    public List<String> fuzzySearch(String word, int maxDistance) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("Negative distance: " + maxDistance);
+        }
+        return new FuzzySearch(word, maxDistance).search(root);
+    }
+
+    /**
+     * Builds an immutable copy of the trie packed into a few flat arrays. The
+     * copy answers searches and prefix checks like this trie but it is much
+     * more compact and it is not affected by later changes of this trie.
+     *
+     * @return An immutable, compact copy of the trie.
+     */
+    public FrozenTrie freeze() {
+        return new FrozenTrie(root);
+    }
+
+    /**
+     * Computes a snapshot of the structure of the trie. Every node is visited,
+     * so the cost is linear in the size of the trie.
+     *
+     * @return The statistics of the current structure of the trie.
+     */
+    public TrieStats stats() {
+        return new TrieStats(root);
+    }
+
+    /**
+     * Starts counting the operations run on the trie and the nodes visited by
+     * its searches and prefix checks. The counters are striped so concurrent
+     * readers do not contend on them. Counting has to be enabled before the
+     * trie is shared with other threads.
+     *
+     * @return The counters of the trie, the existing ones if counting was
+     * already enabled.
+     */
+    public TrieCounters enableCounters() {
+        if (counters == null) {
+            counters = new TrieCounters();
+        }
+        return counters;
+    }
+
+    /**
+     * Stops counting the operations run on the trie. Enabling the counters
+     * again starts new counters from zero.
+     */
+    public void disableCounters() {
+        counters = null;
+    }
+
+    /**
+     * Returns the counters of the operations run on the trie.
+     *
+     * @return The counters of the trie, null if counting is disabled.
+     */
+    public TrieCounters counters() {
+        return counters;
+    }
+
+    /**
+     * Puts a counting Bloom filter in front of the word searches, sized for
+     * the given number of words and false positive rate and filled with the
+     * words of the trie. Most searches of absent words are then rejected with
+     * a few hashes of their characters instead of walking the trie, at the
+     * cost of hashing every inserted and removed word. Prefix checks and
+     * batch searches do not use the filter. A filter that was already enabled
+     * is replaced, which is the way to resize it when the trie outgrows it.
+     *
+     * @param expectedWords Number of words the filter is sized for.
+     * @param falsePositiveRate False positive rate expected with that number
+     * of words, between 0 and 1 (exclusive).
+     * @return The new filter of the trie.
+     * @throws IllegalArgumentException If the number of words is negative or
+     * the false positive rate is out of range.
+     */
+    public SearchFilter enableFilter(long expectedWords, double falsePositiveRate) {
+        SearchFilter filter = new SearchFilter(expectedWords, falsePositiveRate);
+        Iterator<String> words = keysWithPrefix("");
+        while (words.hasNext()) {
+            String word = words.next();
+            filter.add(word, 0, word.length());
+        }
+        this.filter = filter;
+        return filter;
+    }
+
+    /**
+     * Removes the filter in front of the word searches.
+     */
+    public void disableFilter() {
+        filter = null;
+    }
+
+    /**
+     * Returns the filter in front of the word searches.
+     *
+     * @return The filter of the trie, null if it is disabled.
+     */
+    public SearchFilter filter() {
+        return filter;
+    }
+
+    /**
+     * Checks that the given indexes delimit a valid slice of the sequence.
+     *
+     * @param sequence Sequence to slice.
+     * @param from Index of the first character of the slice.
+     * @param to Index after the last character of the slice.
+     * @throws IndexOutOfBoundsException If from is negative, to is greater than
+     * the length of the sequence or from is greater than to.
+     */
+    static void checkSlice(CharSequence sequence, int from, int to) {
+        if (from < 0 || to > sequence.length() || from > to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + sequence.length());
+        }
+    }
 }
 
 /**
@@ -74,17 +524,22 @@ public class Trie {
  */
 class TrieNode {
 
+    /**
+     * Content shared by all the nodes without letters in their buffer.
+     */
+    static final char[] EMPTY_CONTENT = new char[0];
+
     /**
      * Buffer of content in the current node (the letters in content are present
      * if only one word in the trie contains them).
      */
     private char[] content;
     /**
-     * Onse son by letter (for a production setup this structure can be further
-     * improved using a balanced tree or something similar to optimise memory
-     * usage)
+     * One son by letter. Leaves do not have any table (null), the rest of the
+     * nodes use the representation of {@link SonTable} that better fits their
+     * fan-out.
      */
-    private Map<Character, TrieNode> sons;
+    private SonTable sons;
     /**
      * Flag to determine wether if the node reach the end of a word in the trie
      * or not.
@@ -93,25 +548,137 @@ class TrieNode {
 
     /**
      * TrieNode constructor. The content is initialized by default as an empty
-     * char array, the sons is an empty hash map and by default, the constructed
-     * node is not and end node.
+     * char array, the node has no sons and by default, the constructed node is
+     * not and end node.
      */
     public TrieNode() {
-        content = new char[0];
-        sons = new HashMap<Character, TrieNode>();
+        content = EMPTY_CONTENT;
+        sons = null;
         endNode = false;
     }
 
+    /**
+     * TrieNode constructor for nodes built directly in their final shape.
+     *
+     * @param content Buffer of content of the node.
+     * @param sons Table of sons of the node, null for a leaf.
+     * @param endNode True if a word ends in the node.
+     */
+    TrieNode(char[] content, SonTable sons, boolean endNode) {
+        this.content = content;
+        this.sons = sons;
+        this.endNode = endNode;
+    }
+
+    /**
+     * Returns the buffer of content of the node. It must not be modified.
+     *
+     * @return The buffer of content of the node.
+     */
+    char[] content() {
+        return content;
+    }
+
+    /**
+     * Returns the table of sons of the node.
+     *
+     * @return The table of sons of the node, null if the node is a leaf.
+     */
+    SonTable sons() {
+        return sons;
+    }
+
+    /**
+     * Returns true if a word of the trie ends in this node.
+     *
+     * @return True if a word of the trie ends in this node, false otherwise.
+     */
+    boolean isEndNode() {
+        return endNode;
+    }
+
+    /**
+     * Builds a new node of the same kind as the current node. Nodes carrying
+     * extra information in the end nodes override it together with
+     * {@link #moveValueTo(TrieNode)}, {@link #takeValueFrom(TrieNode)} and
+     * {@link #clearValue()}.
+     *
+     * @return A new empty node.
+     */
+    TrieNode newNode() {
+        return new TrieNode();
+    }
+
+    /**
+     * Called when the node is split: the given son takes the tail of the
+     * content, the sons and the end node flag of the current node and must also
+     * take the information attached to it. It is also called when the word
+     * ending in the node is removed, to hand its information over to the node
+     * given to {@link #remove(String, TrieNode)}.
+     *
+     * @param son Son created by the split, or node taking the information of a
+     * removed word.
+     */
+    void moveValueTo(TrieNode son) {
+    }
+
+    /**
+     * Called when the node is fused with its only son: the current node takes
+     * the content, the sons and the end node flag of the son and must also take
+     * the information attached to it.
+     *
+     * @param fusionNode Son fused into the current node.
+     */
+    void takeValueFrom(TrieNode fusionNode) {
+    }
+
+    /**
+     * Called when the word ending in the node is removed.
+     */
+    void clearValue() {
+    }
+
+    /**
+     * Called on every node of the path of a word, from the node in which the
+     * word ends up to the root, once the word has been added to the trie or
+     * removed from it. On a removal it is called before the node discards the
+     * son left without words or is fused with its only son.
+     *
+     * @param delta 1 if the word has been added, -1 if it has been removed.
+     */
+    void countWord(int delta) {
+    }
+
     /**
      * Inserts a word. This method should only be used in the root node of the
      * trie.
      *
      * @param word Word to insert in the trie.
+     * @return The end node in which the word ends, null if the word is null or
+     * it was already in the trie.
      */
-    public void insert(String word) {
+    public TrieNode insert(String word) {
+        boolean[] added = new boolean[1];
+        TrieNode node = insert(word, added);
+        return (added[0] ? node : null);
+    }
+
+    /**
+     * Inserts a word, reaching its end node in the same walk whether the word
+     * was already in the trie or not. This method should only be used in the
+     * root node of the trie.
+     *
+     * @param word Word to insert in the trie.
+     * @param added Array whose first element is set to true if the word has
+     * been added and to false if it was already in the trie.
+     * @return The end node in which the word ends, null if the word is null.
+     */
+    TrieNode insert(String word, boolean[] added) {
+        added[0] = false;
         if (word != null) {
-            insert(word.toCharArray(), 0, true);
+            return insert(word.toCharArray(), 0, true, added);
         }
+        return null;
     }
 
     /**
@@ -124,17 +691,17 @@ class TrieNode {
      * @param insertionEndNode True if the word is an final word, false if it is
      * a subset of a word (i.e. when diving an intermediate node into two
      * nodes).
+     * @param added Array whose first element is set to true if the word is
+     * added.
+     * @return The node in which the word ends.
      */
-    private void insert(char[] word, int idx, boolean insertionEndNode) {
-        if (content.length == 0 && idx < word.length && sons.isEmpty()) {
-            if (!endNode) {
-                content = (idx == 0 ? word : Arrays.copyOfRange(word, idx, word.length));
-                endNode = insertionEndNode;
-            } else {
-                TrieNode wordInsertionPoint = new TrieNode();
-                sons.put(word[idx], wordInsertionPoint);
-                wordInsertionPoint.insert(word, idx + 1, insertionEndNode);
-            }
+    private TrieNode insert(char[] word, int idx, boolean insertionEndNode, boolean[] added) {
+        if (content.length == 0 && sons == null && !endNode) {
+            content = (idx == 0 ? word : Arrays.copyOfRange(word, idx, word.length));
+            endNode = insertionEndNode;
+            added[0] = true;
+            countWord(1);
+            return this;
         }
         int i = 0;
         while (i < content.length && i + idx < word.length && content[i] == word[i + idx]) {
@@ -143,86 +710,142 @@ class TrieNode {
         idx += i;
         if (i < content.length) {
             char contentMidPoint = content[i];
-            TrieNode son = new TrieNode();
-            son.content = Arrays.copyOfRange(content, i + 1, content.length);
+            TrieNode son = newNode();
+            son.content = (i + 1 == content.length ? EMPTY_CONTENT : Arrays.copyOfRange(content, i + 1, content.length));
             son.sons = sons;
             son.endNode = endNode;
-            sons = new HashMap<Character, TrieNode>();
-            content = Arrays.copyOf(content, i);
-            sons.put(contentMidPoint, son);
-            endNode = (idx == word.length ? insertionEndNode : false);
+            moveValueTo(son);
+            sons = SonTable.of(contentMidPoint, son);
+            content = (i == 0 ? EMPTY_CONTENT : Arrays.copyOf(content, i));
+            endNode = false;
         }
         if (idx < word.length) {
             char wordMidPoint = word[idx];
-            TrieNode wordInsertionPoint = sons.get(wordMidPoint);
+            TrieNode wordInsertionPoint = (sons == null ? null : sons.get(wordMidPoint));
             if (wordInsertionPoint == null) {
-                wordInsertionPoint = new TrieNode();
-                sons.put(wordMidPoint, wordInsertionPoint);
+                wordInsertionPoint = newNode();
+                sons = (sons == null ? SonTable.of(wordMidPoint, wordInsertionPoint) : sons.put(wordMidPoint, wordInsertionPoint));
             }
-            wordInsertionPoint.insert(word, idx + 1, insertionEndNode);
+            TrieNode insertionNode = wordInsertionPoint.insert(word, idx + 1, insertionEndNode, added);
+            if (added[0]) {
+                countWord(1);
+            }
+            return insertionNode;
         }
-        if (idx == word.length) {
-            endNode = insertionEndNode;
+        if (endNode) {
+            return this;
         }
+        endNode = insertionEndNode;
+        added[0] = true;
+        countWord(1);
+        return this;
     }
-    
+
     /**
      * Removes a word. This method should only be used in the root node of the
      * trie.
      *
      * @param word Word to remove in the trie.
+     * @return True if the word was in the trie and it has been removed, false
+     * otherwise.
      */
-    public void remove(String word) {
-        if (word != null) {
-            remove(word.toCharArray(), 0, null, null);
+    public boolean remove(String word) {
+        return remove(word, null);
+    }
+
+    /**
+     * Removes a word, handing the information attached to its end node over
+     * to the given node before it is cleared. The end node itself cannot be
+     * handed out, as the same removal may fuse it with its only son, which
+     * replaces its information. This method should only be used in the root
+     * node of the trie.
+     *
+     * @param word Word to remove in the trie.
+     * @param removed Node taking the information of the end node of the word
+     * through {@link #moveValueTo(TrieNode)}, null to drop it.
+     * @return True if the word was in the trie and it has been removed, false
+     * otherwise.
+     */
+    boolean remove(String word, TrieNode removed) {
+        if (word == null || !remove(word.toCharArray(), 0, removed)) {
+            return false;
+        }
+        if (!endNode && sons == null) {
+            content = EMPTY_CONTENT;
         }
+        return true;
     }
 
     /**
      * Removes a word or a suffix of a word in the trie taking the current node
-     * as root.
+     * as root. After a removal, the nodes in the path of the word that are not
+     * the end of any word and have only one son are fused with their son, and
+     * the sons that do not lead to any word any more are discarded.
      *
      * @param word Word to remove.
      * @param idx Index pointing to the first character of the word visible for
-     * @param parent Parent of the node.
-     * @param parentKey Position of the current node in the sons map of the parent.
      * the current node.
+     * @param removed Node taking the information of the end node of the word,
+     * null to drop it.
+     * @return True if the word was in the trie and it has been removed, false
+     * otherwise.
      */
-    public void remove(char[] word, int idx, TrieNode parent, Character parentKey) {
+    private boolean remove(char[] word, int idx, TrieNode removed) {
         int i = 0;
         while (i < content.length && i + idx < word.length && content[i] == word[i + idx]) {
             i++;
         }
         idx += i;
-        if (i == content.length && idx == word.length) {
-            if (endNode) {
-                if (sons.isEmpty() && parent != null && parentKey != null) { // It is a leaf node
-                    parent.sons.remove(parentKey);
-                } else if (sons.size() == 1) { // The deleted word is a suffix of one or more longer words which match in more than one char within themselves but do not match with any other in that set
-                    char nextChar = sons.keySet().toArray(new Character[1])[0];
-                    TrieNode fusionNode = sons.get(nextChar);
-                    char[] fusionedContent = new char[content.length + 1 + fusionNode.content.length];
-                    for(int j = 0; j < fusionedContent.length; j++) {
-                        fusionedContent[j] = (j < content.length ? content[j] : (j == content.length ? nextChar : fusionNode.content[j - (content.length + 1)]));
-                    }
-                    sons.remove(nextChar);
-                    content = fusionedContent;
-                    for(Entry<Character, TrieNode> newSon : fusionNode.sons.entrySet()) {
-                        sons.put(newSon.getKey(), newSon.getValue());
-                    }
-                    endNode = fusionNode.endNode;
-                } else { // The deleted word is a suffix of many other words
-                    endNode = false;
-                }
+        if (i < content.length) {
+            return false;
+        } else if (idx == word.length) {
+            if (!endNode) {
+                return false;
+            }
+            endNode = false;
+            if (removed != null) {
+                moveValueTo(removed);
             }
-        } else if (idx < word.length) {
-            TrieNode nextNode = sons.get(word[idx]);
-            if (nextNode != null) {
-                nextNode.remove(word, idx + 1, this, word[idx]);
+            clearValue();
+            countWord(-1);
+        } else {
+            TrieNode nextNode = (sons == null ? null : sons.get(word[idx]));
+            if (nextNode == null || !nextNode.remove(word, idx + 1, removed)) {
+                return false;
+            }
+            countWord(-1);
+            if (!nextNode.endNode && nextNode.sons == null) { // The son does not lead to any word any more
+                sons = sons.remove(word[idx]);
             }
         }
+        if (!endNode && sons != null && sons.size() == 1) { // Only one way to continue, the node can be fused with its son
+            fuse();
+        }
+        return true;
     }
-    
+
+    /**
+     * Fuses the current node with its only son. The letter of the edge and the
+     * content of the son are appended to the content of the current node, which
+     * takes the sons and the end node flag of its son.
+     */
+    private void fuse() {
+        char nextChar = sons.keyAt(0);
+        TrieNode fusionNode = sons.sonAt(0);
+        for (int slot = 1; fusionNode == null; slot++) {
+            nextChar = sons.keyAt(slot);
+            fusionNode = sons.sonAt(slot);
+        }
+        char[] fusionedContent = new char[content.length + 1 + fusionNode.content.length];
+        System.arraycopy(content, 0, fusionedContent, 0, content.length);
+        fusionedContent[content.length] = nextChar;
+        System.arraycopy(fusionNode.content, 0, fusionedContent, content.length + 1, fusionNode.content.length);
+        content = fusionedContent;
+        sons = fusionNode.sons;
+        endNode = fusionNode.endNode;
+        takeValueFrom(fusionNode);
+    }
+
     /**
      * Checks whether if a word is present in the trie taking the current node
      * as root or not.
@@ -234,34 +857,44 @@ class TrieNode {
         if (word == null) {
             return false;
         }
-        return !(search(word.toCharArray(), 0) == null);
+        return !(find(word, 0, word.length()) == null);
     }
 
     /**
      * Searches the end node in which the given word ends. It will return null
-     * if the word is not part of the trie.
+     * if the word is not part of the trie. The word is the slice of the given
+     * sequence between from (inclusive) and to (exclusive). The trie is walked
+     * in a loop without recursion and without allocating any object.
      *
-     * @param word Word to search.
-     * @param idx Index pointing to the first character of the word visible for
-     * the current node.
+     * @param word Sequence containing the word to search.
+     * @param from Index pointing to the first character of the word.
+     * @param to Index pointing to the position after the last character of
+     * the word.
      * @return The end node in which the given word ends. It will return null if
      * the word is not part of the trie.
      */
-    private TrieNode search(char[] word, int idx) {
-        int i = 0;
-        while (i < content.length && i + idx < word.length && content[i] == word[i + idx]) {
-            i++;
-        }
-        idx += i;
-        if (i < content.length) {
-            return null;
-        } else if (i == content.length && idx == word.length) {
-            return (endNode ? this : null);
-        } else if (idx < word.length) {
-            TrieNode nextNode = sons.get(word[idx]);
-            return (nextNode == null ? null : nextNode.search(word, idx + 1));
-        } else {
-            return null;
+    TrieNode find(CharSequence word, int from, int to) {
+        TrieNode node = this;
+        int idx = from;
+        while (true) {
+            char[] nodeContent = node.content;
+            if (to - idx < nodeContent.length) {
+                return null;
+            }
+            for (int i = 0; i < nodeContent.length; i++) {
+                if (nodeContent[i] != word.charAt(idx + i)) {
+                    return null;
+                }
+            }
+            idx += nodeContent.length;
+            if (idx == to) {
+                return (node.endNode ? node : null);
+            }
+            node = (node.sons == null ? null : node.sons.get(word.charAt(idx)));
+            if (node == null) {
+                return null;
+            }
+            idx++;
         }
     }
 
@@ -276,31 +909,147 @@ class TrieNode {
         if (prefix == null) {
             return false;
         }
-        return startsWith(prefix.toCharArray(), 0);
+        return startsWith(prefix, 0, prefix.length());
     }
 
     /**
      * Checks whether if a word starting with the given prefix is part of the
-     * trie or not.
+     * trie or not. The prefix is the slice of the given sequence between from
+     * (inclusive) and to (exclusive). The trie is walked in a loop without
+     * recursion and without allocating any object.
      *
-     * @param prefix Prefix to be checked.
-     * @param idx Index pointing to the first character of the prefix visible
-     * for the current node.
+     * @param prefix Sequence containing the prefix to be checked.
+     * @param from Index pointing to the first character of the prefix.
+     * @param to Index pointing to the position after the last character of
+     * the prefix.
      * @return True if a word with the given prefix is found, false otherwise.
      */
-    private boolean startsWith(char[] prefix, int idx) {
-        int i = 0;
-        while (i < content.length && i + idx < prefix.length && content[i] == prefix[i + idx]) {
-            i++;
+    boolean startsWith(CharSequence prefix, int from, int to) {
+        TrieNode node = this;
+        int idx = from;
+        while (true) {
+            char[] nodeContent = node.content;
+            int length = Math.min(nodeContent.length, to - idx);
+            for (int i = 0; i < length; i++) {
+                if (nodeContent[i] != prefix.charAt(idx + i)) {
+                    return false;
+                }
+            }
+            idx += length;
+            if (idx == to) {
+                return (node.endNode || node.sons != null);
+            }
+            node = (node.sons == null ? null : node.sons.get(prefix.charAt(idx)));
+            if (node == null) {
+                return false;
+            }
+            idx++;
         }
-        idx += i;
-        if (idx == prefix.length) {
-            return true;
-        } else if (idx < prefix.length && i == content.length) {
-            TrieNode nextNode = sons.get(prefix[idx]);
-            return (nextNode == null ? false : nextNode.startsWith(prefix, idx + 1));
-        } else {
-            return false;
+    }
+
+    /**
+     * Walks the trie down to the node in which the given prefix ends, that is,
+     * the node whose content holds the last letter of the prefix (or the
+     * current node if the prefix is empty). The prefix is the slice of the
+     * given sequence between from (inclusive) and to (exclusive).
+     *
+     * @param prefix Sequence containing the prefix.
+     * @param from Index pointing to the first character of the prefix.
+     * @param to Index pointing to the position after the last character of
+     * the prefix.
+     * @return The node in which the prefix ends and the index of the sequence
+     * at which its content starts, null if no path of the trie spells the
+     * prefix.
+     */
+    PrefixEnd findPrefix(CharSequence prefix, int from, int to) {
+        TrieNode node = this;
+        int idx = from;
+        while (true) {
+            char[] nodeContent = node.content;
+            int length = Math.min(nodeContent.length, to - idx);
+            for (int i = 0; i < length; i++) {
+                if (nodeContent[i] != prefix.charAt(idx + i)) {
+                    return null;
+                }
+            }
+            if (idx + length == to) {
+                return new PrefixEnd(node, idx);
+            }
+            idx += length;
+            node = (node.sons == null ? null : node.sons.get(prefix.charAt(idx)));
+            if (node == null) {
+                return null;
+            }
+            idx++;
+        }
+    }
+
+    /**
+     * Walks the trie like {@link #find(CharSequence, int, int)} or
+     * {@link #startsWith(CharSequence, int, int)} counting the nodes visited.
+     *
+     * @param key Sequence containing the word or prefix.
+     * @param from Index pointing to the first character of the word or prefix.
+     * @param to Index pointing to the position after the last character of the
+     * word or prefix.
+     * @param prefix True to check a prefix, false to search a word.
+     * @return The number of nodes visited, negated if the word or prefix is not
+     * part of the trie.
+     */
+    int walk(CharSequence key, int from, int to, boolean prefix) {
+        TrieNode node = this;
+        int idx = from;
+        int visits = 0;
+        while (true) {
+            visits++;
+            char[] nodeContent = node.content;
+            if (!prefix && to - idx < nodeContent.length) {
+                return -visits;
+            }
+            int length = Math.min(nodeContent.length, to - idx);
+            for (int i = 0; i < length; i++) {
+                if (nodeContent[i] != key.charAt(idx + i)) {
+                    return -visits;
+                }
+            }
+            idx += length;
+            if (idx == to) {
+                boolean found = (prefix ? node.endNode || node.sons != null : node.endNode);
+                return (found ? visits : -visits);
+            }
+            node = (node.sons == null ? null : node.sons.get(key.charAt(idx)));
+            if (node == null) {
+                return -visits;
+            }
+            idx++;
+        }
+    }
+
+    /**
+     * Node in which a prefix ends, found by
+     * {@link TrieNode#findPrefix(CharSequence, int, int)}.
+     */
+    static final class PrefixEnd {
+
+        /**
+         * Node holding the last letter of the prefix.
+         */
+        final TrieNode node;
+        /**
+         * Index of the prefix at which the content of the node starts.
+         */
+        final int start;
+
+        /**
+         * PrefixEnd constructor.
+         *
+         * @param node Node holding the last letter of the prefix.
+         * @param start Index of the prefix at which the content of the node
+         * starts.
+         */
+        PrefixEnd(TrieNode node, int start) {
+            this.node = node;
+            this.start = start;
         }
     }
 }
\ No newline at end of file
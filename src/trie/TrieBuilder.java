@@ -0,0 +1,461 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builder of tries from sorted words. The words sharing a prefix are
+ * consecutive once sorted, so the node of a range of words has as content the
+ * longest common prefix of the first and the last word of the range, and its
+ * sons are the consecutive groups of words sharing the next letter. Every node
+ * is therefore built once, already in its final shape.
+ *
+ * The sequential build streams the words: it keeps open only the nodes in the
+ * path of the last word and closes each node as soon as a word leaves its
+ * range. The parallel build needs random access to split the words in ranges,
+ * so it collects them in an array first.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+final class TrieBuilder {
+
+    /**
+     * Number of words below which a range is built sequentially by the
+     * parallel builder.
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    /**
+     * TrieBuilder constructor. Not to be instantiated.
+     */
+    private TrieBuilder() {
+    }
+
+    /**
+     * Builds the trie holding the words of an iterator in a single pass,
+     * discarding null and duplicated words and checking that the words are
+     * sorted. Only the nodes in the path of the last word are kept open, so
+     * the words are never collected.
+     *
+     * @param sortedWords Iterator over the words, sorted in ascending order.
+     * @return The root node of the trie.
+     * @throws IllegalArgumentException If the words are not sorted.
+     */
+    static TrieNode build(Iterator<String> sortedWords) {
+        StreamBuilder builder = new StreamBuilder();
+        while (sortedWords.hasNext()) {
+            builder.add(sortedWords.next());
+        }
+        return builder.finish();
+    }
+
+    /**
+     * Collects the words of an iterator into an array, discarding null and
+     * duplicated words and checking that the words are sorted.
+     *
+     * @param sortedWords Iterator over the words, sorted in ascending order.
+     * @return The distinct words, sorted.
+     * @throws IllegalArgumentException If the words are not sorted.
+     */
+    static String[] collect(Iterator<String> sortedWords) {
+        List<String> words = new ArrayList<String>();
+        String previous = null;
+        while (sortedWords.hasNext()) {
+            String word = sortedWords.next();
+            if (word == null) {
+                continue;
+            }
+            int order = (previous == null ? 1 : word.compareTo(previous));
+            if (order < 0) {
+                throw new IllegalArgumentException("Words are not sorted: \"" + word + "\" after \"" + previous + "\"");
+            } else if (order > 0) {
+                words.add(word);
+                previous = word;
+            }
+        }
+        return words.toArray(new String[words.size()]);
+    }
+
+    /**
+     * Builds the trie holding the given words.
+     *
+     * @param words Distinct words, sorted in ascending order.
+     * @return The root node of the trie.
+     */
+    static TrieNode build(String[] words) {
+        return (words.length == 0 ? new TrieNode() : build(words, 0, words.length, 0));
+    }
+
+    /**
+     * Builds the trie holding the given words, building the subtries of big
+     * ranges of words in parallel.
+     *
+     * @param words Distinct words, sorted in ascending order.
+     * @param pool Pool in which the subtries are built.
+     * @return The root node of the trie.
+     */
+    static TrieNode parallelBuild(String[] words, ForkJoinPool pool) {
+        return (words.length == 0 ? new TrieNode() : pool.invoke(new BuildTask(words, 0, words.length, 0)));
+    }
+
+    /**
+     * Builds the node holding a range of words.
+     *
+     * @param words Distinct words, sorted in ascending order.
+     * @param from First word of the range (inclusive).
+     * @param to Last word of the range (exclusive).
+     * @param depth Number of letters of the words already represented by the
+     * ancestors of the node and the edge leading to it.
+     * @return The node holding the range of words.
+     */
+    static TrieNode build(String[] words, int from, int to, int depth) {
+        int end = commonPrefixEnd(words, from, to, depth);
+        boolean endNode = (words[from].length() == end);
+        int first = (endNode ? from + 1 : from);
+        if (first == to) {
+            return new TrieNode(content(words[from], depth, end), null, endNode);
+        }
+        int groups = countGroups(words, first, to, end);
+        char[] keys = new char[groups];
+        TrieNode[] sons = new TrieNode[groups];
+        for (int group = 0, start = first; group < groups; group++) {
+            int groupEnd = groupEnd(words, start, to, end);
+            keys[group] = words[start].charAt(end);
+            sons[group] = build(words, start, groupEnd, end + 1);
+            start = groupEnd;
+        }
+        return new TrieNode(content(words[from], depth, end), SonTable.of(keys, sons), endNode);
+    }
+
+    /**
+     * Returns the length of the longest common prefix of a range of words,
+     * which is the one of its first and its last word.
+     *
+     * @param words Distinct words, sorted in ascending order.
+     * @param from First word of the range (inclusive).
+     * @param to Last word of the range (exclusive).
+     * @param depth Number of letters known to be shared by the range.
+     * @return The length of the longest common prefix of the range.
+     */
+    static int commonPrefixEnd(String[] words, int from, int to, int depth) {
+        String first = words[from];
+        String last = words[to - 1];
+        int end = depth;
+        int limit = Math.min(first.length(), last.length());
+        while (end < limit && first.charAt(end) == last.charAt(end)) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Counts the groups of words of a range sharing the letter in the given
+     * position.
+     *
+     * @param words Distinct words, sorted in ascending order.
+     * @param from First word of the range (inclusive).
+     * @param to Last word of the range (exclusive).
+     * @param position Position of the letter, present in every word of the
+     * range.
+     * @return The number of groups.
+     */
+    static int countGroups(String[] words, int from, int to, int position) {
+        int groups = 0;
+        for (int start = from; start < to; start = groupEnd(words, start, to, position)) {
+            groups++;
+        }
+        return groups;
+    }
+
+    /**
+     * Finds the end of the group of words starting at the given word, using a
+     * binary search.
+     *
+     * @param words Distinct words, sorted in ascending order.
+     * @param from First word of the group.
+     * @param to Last word of the range (exclusive).
+     * @param position Position of the letter shared by the group.
+     * @return The index after the last word of the group.
+     */
+    static int groupEnd(String[] words, int from, int to, int position) {
+        char letter = words[from].charAt(position);
+        int low = from + 1;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (words[middle].charAt(position) == letter) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Copies a range of the letters of a word.
+     *
+     * @param word Word.
+     * @param from Index of the first letter (inclusive).
+     * @param to Index of the last letter (exclusive).
+     * @return The letters of the range.
+     */
+    static char[] content(String word, int from, int to) {
+        if (from == to) {
+            return TrieNode.EMPTY_CONTENT;
+        }
+        char[] content = new char[to - from];
+        word.getChars(from, to, content, 0);
+        return content;
+    }
+
+    /**
+     * Builder of a trie from a stream of sorted words. The open nodes, those
+     * in the path of the last word, are kept in a stack of frames holding the
+     * position in the word at which their content starts, their end node flag
+     * and the sons closed so far. The content of a frame ends where the next
+     * frame starts, one letter before to leave room for the letter of the
+     * edge, or at the end of the last word for the deepest frame.
+     */
+    private static final class StreamBuilder {
+
+        /**
+         * Last word added, null if no word has been added yet.
+         */
+        private String last;
+        /**
+         * Number of open frames.
+         */
+        private int depth;
+        /**
+         * Position in the last word of the first letter of the content of
+         * every frame.
+         */
+        private int[] starts = new int[8];
+        /**
+         * End node flag of every frame.
+         */
+        private boolean[] endNodes = new boolean[8];
+        /**
+         * Letters of the sons closed so far of every frame.
+         */
+        private char[][] keys = new char[8][];
+        /**
+         * Sons closed so far of every frame.
+         */
+        private TrieNode[][] sons = new TrieNode[8][];
+        /**
+         * Number of sons closed so far of every frame.
+         */
+        private int[] sizes = new int[8];
+
+        /**
+         * Adds a word, closing the nodes of the previous word that cannot get
+         * any more words and opening the ones of the new word.
+         *
+         * @param word Word to add, null words are ignored.
+         * @throws IllegalArgumentException If the word is lower than the last
+         * one.
+         */
+        void add(String word) {
+            if (word == null) {
+                return;
+            } else if (last == null) {
+                last = word;
+                push(0, true);
+                return;
+            }
+            int limit = Math.min(last.length(), word.length());
+            int common = 0;
+            while (common < limit && last.charAt(common) == word.charAt(common)) {
+                common++;
+            }
+            if (common == word.length() || (common < last.length() && word.charAt(common) < last.charAt(common))) {
+                if (common == word.length() && common == last.length()) {
+                    return;
+                }
+                throw new IllegalArgumentException("Words are not sorted: \"" + word + "\" after \"" + last + "\"");
+            }
+            int end = last.length();
+            while (starts[depth - 1] > common) {
+                int start = starts[depth - 1];
+                close(end);
+                end = start - 1;
+            }
+            int top = depth - 1;
+            if (common < end) {
+                TrieNode split = new TrieNode(content(last, common + 1, end), table(top), endNodes[top]);
+                sizes[top] = 0;
+                endNodes[top] = false;
+                addSon(top, last.charAt(common), split);
+            }
+            last = word;
+            push(common + 1, true);
+        }
+
+        /**
+         * Closes every open frame.
+         *
+         * @return The root node of the trie.
+         */
+        TrieNode finish() {
+            if (last == null) {
+                return new TrieNode();
+            }
+            int end = last.length();
+            while (depth > 1) {
+                int start = starts[depth - 1];
+                close(end);
+                end = start - 1;
+            }
+            return new TrieNode(content(last, 0, end), table(0), endNodes[0]);
+        }
+
+        /**
+         * Opens a frame on top of the stack.
+         *
+         * @param start Position of the first letter of its content.
+         * @param endNode True if a word ends in the node.
+         */
+        private void push(int start, boolean endNode) {
+            if (depth == starts.length) {
+                starts = Arrays.copyOf(starts, depth * 2);
+                endNodes = Arrays.copyOf(endNodes, depth * 2);
+                keys = Arrays.copyOf(keys, depth * 2);
+                sons = Arrays.copyOf(sons, depth * 2);
+                sizes = Arrays.copyOf(sizes, depth * 2);
+            }
+            starts[depth] = start;
+            endNodes[depth] = endNode;
+            sizes[depth] = 0;
+            depth++;
+        }
+
+        /**
+         * Closes the frame on top of the stack, which is not the root, and
+         * adds its node to the sons of its parent.
+         *
+         * @param end Position after the last letter of its content.
+         */
+        private void close(int end) {
+            int top = depth - 1;
+            int start = starts[top];
+            TrieNode node = new TrieNode(content(last, start, end), table(top), endNodes[top]);
+            depth--;
+            addSon(depth - 1, last.charAt(start - 1), node);
+        }
+
+        /**
+         * Adds a son to a frame. Sons are added in ascending order of their
+         * letters.
+         *
+         * @param frame Index of the frame.
+         * @param key Letter of the edge leading to the son.
+         * @param son Son node.
+         */
+        private void addSon(int frame, char key, TrieNode son) {
+            int size = sizes[frame];
+            if (keys[frame] == null) {
+                keys[frame] = new char[4];
+                sons[frame] = new TrieNode[4];
+            } else if (size == keys[frame].length) {
+                keys[frame] = Arrays.copyOf(keys[frame], size * 2);
+                sons[frame] = Arrays.copyOf(sons[frame], size * 2);
+            }
+            keys[frame][size] = key;
+            sons[frame][size] = son;
+            sizes[frame] = size + 1;
+        }
+
+        /**
+         * Builds the table of the sons closed so far of a frame.
+         *
+         * @param frame Index of the frame.
+         * @return The table of sons, null if the frame has no sons.
+         */
+        private SonTable table(int frame) {
+            int size = sizes[frame];
+            if (size == 0) {
+                return null;
+            }
+            TrieNode[] frameSons = Arrays.copyOf(sons[frame], size);
+            Arrays.fill(sons[frame], 0, size, null);
+            return SonTable.of(Arrays.copyOf(keys[frame], size), frameSons);
+        }
+    }
+
+    /**
+     * Task building the node of a range of words. Ranges with many words fork
+     * one task per son.
+     */
+    private static final class BuildTask extends RecursiveTask<TrieNode> {
+
+        /**
+         * Serial version UID.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Distinct words, sorted in ascending order.
+         */
+        private final String[] words;
+        /**
+         * First word of the range (inclusive).
+         */
+        private final int from;
+        /**
+         * Last word of the range (exclusive).
+         */
+        private final int to;
+        /**
+         * Number of letters of the words already represented by the ancestors
+         * of the node and the edge leading to it.
+         */
+        private final int depth;
+
+        /**
+         * BuildTask constructor.
+         *
+         * @param words Distinct words, sorted in ascending order.
+         * @param from First word of the range (inclusive).
+         * @param to Last word of the range (exclusive).
+         * @param depth Number of letters of the words already represented by
+         * the ancestors of the node and the edge leading to it.
+         */
+        BuildTask(String[] words, int from, int to, int depth) {
+            this.words = words;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+        }
+
+        @Override
+        protected TrieNode compute() {
+            if (to - from < PARALLEL_THRESHOLD) {
+                return build(words, from, to, depth);
+            }
+            int end = commonPrefixEnd(words, from, to, depth);
+            boolean endNode = (words[from].length() == end);
+            int first = (endNode ? from + 1 : from);
+            int groups = countGroups(words, first, to, end);
+            char[] keys = new char[groups];
+            BuildTask[] tasks = new BuildTask[groups];
+            for (int group = 0, start = first; group < groups; group++) {
+                int groupEnd = groupEnd(words, start, to, end);
+                keys[group] = words[start].charAt(end);
+                tasks[group] = new BuildTask(words, start, groupEnd, end + 1);
+                start = groupEnd;
+            }
+            invokeAll(tasks);
+            TrieNode[] sons = new TrieNode[groups];
+            for (int group = 0; group < groups; group++) {
+                sons[group] = tasks[group].join();
+            }
+            return new TrieNode(content(words[from], depth, end), SonTable.of(keys, sons), endNode);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package trie;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the operations run on a trie and of the nodes visited by its
+ * lookups. The counters are striped, so threads searching the same trie do not
+ * contend on them. They are only maintained while they are enabled in the
+ * trie; a trie without counters just checks a null field on every operation.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public final class TrieCounters {
+
+    /**
+     * Number of insertions.
+     */
+    private final LongAdder inserts = new LongAdder();
+    /**
+     * Number of removals.
+     */
+    private final LongAdder removes = new LongAdder();
+    /**
+     * Number of word searches.
+     */
+    private final LongAdder searches = new LongAdder();
+    /**
+     * Number of word searches that found the word.
+     */
+    private final LongAdder searchHits = new LongAdder();
+    /**
+     * Number of nodes visited by the word searches.
+     */
+    private final LongAdder searchVisits = new LongAdder();
+    /**
+     * Number of prefix checks.
+     */
+    private final LongAdder prefixChecks = new LongAdder();
+    /**
+     * Number of prefix checks that found the prefix.
+     */
+    private final LongAdder prefixHits = new LongAdder();
+    /**
+     * Number of nodes visited by the prefix checks.
+     */
+    private final LongAdder prefixVisits = new LongAdder();
+
+    /**
+     * Records an insertion.
+     */
+    void insert() {
+        inserts.increment();
+    }
+
+    /**
+     * Records a removal.
+     */
+    void remove() {
+        removes.increment();
+    }
+
+    /**
+     * Records a word search.
+     *
+     * @param found True if the word was found.
+     * @param visits Number of nodes visited.
+     */
+    void search(boolean found, int visits) {
+        searches.increment();
+        if (found) {
+            searchHits.increment();
+        }
+        searchVisits.add(visits);
+    }
+
+    /**
+     * Records a prefix check.
+     *
+     * @param found True if the prefix was found.
+     * @param visits Number of nodes visited.
+     */
+    void prefixCheck(boolean found, int visits) {
+        prefixChecks.increment();
+        if (found) {
+            prefixHits.increment();
+        }
+        prefixVisits.add(visits);
+    }
+
+    /**
+     * Returns the number of insertions.
+     *
+     * @return The number of insertions.
+     */
+    public long inserts() {
+        return inserts.sum();
+    }
+
+    /**
+     * Returns the number of removals.
+     *
+     * @return The number of removals.
+     */
+    public long removes() {
+        return removes.sum();
+    }
+
+    /**
+     * Returns the number of word searches.
+     *
+     * @return The number of word searches.
+     */
+    public long searches() {
+        return searches.sum();
+    }
+
+    /**
+     * Returns the number of word searches that found the word.
+     *
+     * @return The number of word searches that found the word.
+     */
+    public long searchHits() {
+        return searchHits.sum();
+    }
+
+    /**
+     * Returns the number of nodes visited by the word searches.
+     *
+     * @return The number of nodes visited by the word searches.
+     */
+    public long searchVisits() {
+        return searchVisits.sum();
+    }
+
+    /**
+     * Returns the number of prefix checks.
+     *
+     * @return The number of prefix checks.
+     */
+    public long prefixChecks() {
+        return prefixChecks.sum();
+    }
+
+    /**
+     * Returns the number of prefix checks that found the prefix.
+     *
+     * @return The number of prefix checks that found the prefix.
+     */
+    public long prefixHits() {
+        return prefixHits.sum();
+    }
+
+    /**
+     * Returns the number of nodes visited by the prefix checks.
+     *
+     * @return The number of nodes visited by the prefix checks.
+     */
+    public long prefixVisits() {
+        return prefixVisits.sum();
+    }
+
+    /**
+     * Sets every counter to zero. Operations running concurrently with the
+     * reset may or may not be counted.
+     */
+    public void reset() {
+        inserts.reset();
+        removes.reset();
+        searches.reset();
+        searchHits.reset();
+        searchVisits.reset();
+        prefixChecks.reset();
+        prefixHits.reset();
+        prefixVisits.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "TrieCounters[inserts=" + inserts() + ", removes=" + removes() + ", searches=" + searches()
+                + ", searchHits=" + searchHits() + ", searchVisits=" + searchVisits()
+                + ", prefixChecks=" + prefixChecks() + ", prefixHits=" + prefixHits()
+                + ", prefixVisits=" + prefixVisits() + "]";
+    }
+}
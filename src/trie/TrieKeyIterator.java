@@ -0,0 +1,214 @@
+package trie;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over the words of a trie that start with a given prefix, in
+ * lexicographic order. The nodes under the prefix are walked depth first with
+ * an explicit stack and the letters of the current path are kept in a single
+ * buffer, so every step only builds the word being returned.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+final class TrieKeyIterator implements Iterator<String> {
+
+    /**
+     * Nodes of the current path.
+     */
+    private TrieNode[] nodes;
+    /**
+     * For every node of the current path, next slot of its sons to visit.
+     */
+    private int[] slots;
+    /**
+     * For every node of the current path, length of the path once the content
+     * of the node is appended.
+     */
+    private int[] lengths;
+    /**
+     * Number of nodes in the current path.
+     */
+    private int depth;
+    /**
+     * Letters of the current path.
+     */
+    private char[] path;
+    /**
+     * Next word to return, null if it has not been looked for yet.
+     */
+    private String next;
+
+    /**
+     * TrieKeyIterator constructor. Walks the trie down to the node in which
+     * the prefix ends.
+     *
+     * @param root Root node of the trie.
+     * @param prefix Prefix of the words to iterate.
+     */
+    TrieKeyIterator(TrieNode root, CharSequence prefix) {
+        this(prefix.length());
+        TrieNode.PrefixEnd end = root.findPrefix(prefix, 0, prefix.length());
+        if (end == null) {
+            return;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            append(i, prefix.charAt(i));
+        }
+        push(end.node, end.start);
+        if (end.node.isEndNode()) {
+            next = new String(path, 0, lengths[0]);
+        }
+    }
+
+    /**
+     * TrieKeyIterator constructor for an iterator with an empty path.
+     *
+     * @param length Expected length of the words.
+     */
+    private TrieKeyIterator(int length) {
+        nodes = new TrieNode[8];
+        slots = new int[8];
+        lengths = new int[8];
+        path = new char[Math.max(16, length * 2)];
+        depth = 0;
+    }
+
+    /**
+     * Builds an iterator over the words of a trie that are greater than or
+     * equal to the given word, in lexicographic order. The trie is walked
+     * down along the word and the path is left where the walk would be after
+     * returning the greatest word below it, so the first word is found
+     * visiting the sons of the nodes of the path up to the letter of the word.
+     *
+     * @param root Root node of the trie.
+     * @param from Lowest word to return.
+     * @return An iterator over the words from the given one on.
+     */
+    static TrieKeyIterator seek(TrieNode root, CharSequence from) {
+        TrieKeyIterator iterator = new TrieKeyIterator(from.length());
+        TrieNode node = root;
+        int idx = 0;
+        int length = 0;
+        while (true) {
+            char[] content = node.content();
+            int i = 0;
+            while (i < content.length && idx + i < from.length() && content[i] == from.charAt(idx + i)) {
+                i++;
+            }
+            if (idx + i == from.length() || (i < content.length && content[i] > from.charAt(idx + i))) {
+                iterator.push(node, length);
+                if (node.isEndNode()) {
+                    iterator.next = new String(iterator.path, 0, iterator.lengths[iterator.depth - 1]);
+                }
+                return iterator;
+            } else if (i < content.length) {
+                return iterator;
+            }
+            idx += content.length;
+            char letter = from.charAt(idx);
+            iterator.push(node, length);
+            int top = iterator.depth - 1;
+            SonTable sons = node.sons();
+            TrieNode son = null;
+            while (sons != null && iterator.slots[top] < sons.slots() && sons.keyAt(iterator.slots[top]) <= letter) {
+                if (sons.keyAt(iterator.slots[top]++) == letter) {
+                    son = sons.sonAt(iterator.slots[top] - 1);
+                }
+            }
+            if (son == null) {
+                return iterator;
+            }
+            length = iterator.lengths[top];
+            iterator.append(length++, letter);
+            node = son;
+            idx++;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = advance();
+        }
+        return next != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String word = next;
+        next = null;
+        return word;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Moves the walk forward until the next end node.
+     *
+     * @return The next word in lexicographic order, null if there are no more
+     * words.
+     */
+    private String advance() {
+        while (depth > 0) {
+            int top = depth - 1;
+            SonTable sons = nodes[top].sons();
+            TrieNode son = null;
+            while (sons != null && son == null && slots[top] < sons.slots()) {
+                son = sons.sonAt(slots[top]++);
+            }
+            if (son == null) {
+                depth--;
+                continue;
+            }
+            append(lengths[top], sons.keyAt(slots[top] - 1));
+            push(son, lengths[top] + 1);
+            if (son.isEndNode()) {
+                return new String(path, 0, lengths[depth - 1]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Appends a node to the current path.
+     *
+     * @param node Node to append.
+     * @param length Length of the path before the content of the node.
+     */
+    private void push(TrieNode node, int length) {
+        if (depth == nodes.length) {
+            nodes = Arrays.copyOf(nodes, depth * 2);
+            slots = Arrays.copyOf(slots, depth * 2);
+            lengths = Arrays.copyOf(lengths, depth * 2);
+        }
+        char[] content = node.content();
+        for (int i = 0; i < content.length; i++) {
+            append(length + i, content[i]);
+        }
+        nodes[depth] = node;
+        slots[depth] = 0;
+        lengths[depth] = length + content.length;
+        depth++;
+    }
+
+    /**
+     * Sets a letter of the current path, growing the buffer if needed.
+     *
+     * @param position Position of the letter in the path.
+     * @param letter Letter.
+     */
+    private void append(int position, char letter) {
+        if (position == path.length) {
+            path = Arrays.copyOf(path, path.length * 2);
+        }
+        path[position] = letter;
+    }
+}
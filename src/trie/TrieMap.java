@@ -0,0 +1,125 @@
+package trie;
+
+/**
+ * Map from strings to values stored in a trie. The keys are stored like the
+ * words of a {@link Trie}, sharing their prefixes, and every value is kept in
+ * the node in which its key ends, so keys are not stored twice as they would be
+ * in a trie kept next to a hash map.
+ *
+ * @param <V> Type of the values.
+ * @author Alfonso Alhambra Moron
+ */
+public class TrieMap<V> extends AbstractTrieMap {
+
+    /**
+     * TrieMap constructor.
+     */
+    public TrieMap() {
+        super(new TrieMapNode<V>());
+    }
+
+    /**
+     * Associates a value with a key, replacing the previous value of the key
+     * if it was already in the map.
+     *
+     * @param key Key.
+     * @param value Value of the key, it may be null.
+     * @return The previous value of the key, null if the key was not in the
+     * map.
+     * @throws NullPointerException If the key is null.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(String key, V value) {
+        if (key == null) {
+            throw new NullPointerException("Null key");
+        }
+        TrieMapNode<V> node = (TrieMapNode<V>) insertKey(key);
+        V previous = null;
+        if (node == null) {
+            node = (TrieMapNode<V>) node(key);
+            previous = node.value;
+        }
+        node.value = value;
+        return previous;
+    }
+
+    /**
+     * Returns the value of a key.
+     *
+     * @param key Key.
+     * @return The value of the key, null if the key is not in the map.
+     */
+    public V get(String key) {
+        return getOrDefault(key, null);
+    }
+
+    /**
+     * Returns the value of a key, or the given default value if the key is not
+     * in the map.
+     *
+     * @param key Key.
+     * @param defaultValue Value returned if the key is not in the map.
+     * @return The value of the key, defaultValue if the key is not in the map.
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(String key, V defaultValue) {
+        TrieMapNode<V> node = (TrieMapNode<V>) node(key);
+        return (node == null ? defaultValue : node.value);
+    }
+
+    /**
+     * Removes a key and its value from the map.
+     *
+     * @param key Key.
+     * @return The value the key had, null if the key was not in the map.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(String key) {
+        TrieMapNode<V> node = (TrieMapNode<V>) removeKey(key);
+        if (node == null) {
+            return null;
+        }
+        V previous = node.value;
+        node.value = null;
+        return previous;
+    }
+
+}
+
+/**
+ * Node of a {@link TrieMap}, holding the value of the key ending in it.
+ *
+ * @param <V> Type of the values.
+ * @author Alfonso Alhambra Moron
+ */
+class TrieMapNode<V> extends TrieNode {
+
+    /**
+     * Value of the key ending in the node (null if the node is not an end
+     * node).
+     */
+    V value;
+
+    @Override
+    TrieNode newNode() {
+        return new TrieMapNode<V>();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void moveValueTo(TrieNode son) {
+        ((TrieMapNode<V>) son).value = value;
+        value = null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void takeValueFrom(TrieNode fusionNode) {
+        value = ((TrieMapNode<V>) fusionNode).value;
+    }
+
+    @Override
+    void clearValue() {
+        value = null;
+    }
+}
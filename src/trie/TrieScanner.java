@@ -0,0 +1,409 @@
+package trie;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Multi-pattern scanner reporting every word of a trie that occurs in a text,
+ * in a single pass over the text (Aho-Corasick automaton). The automaton is
+ * compiled from a trie: every letter of the content of the nodes and every
+ * edge becomes a state, and failure links (longest proper suffix of the state
+ * that is also a state) and output links (longest proper suffix of the state
+ * that is a word) are added on top of them.
+ *
+ * The automaton of the scanner is immutable and the scanner can be shared
+ * between threads: its only mutable part is a cache of the words already
+ * reported, whose concurrent filling is a benign race publishing equal
+ * Strings. The text is consumed through a {@link Session}, which keeps the
+ * state of the automaton between chunks, so the text can be streamed in pieces
+ * of any size and words spanning two chunks are reported as well.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public final class TrieScanner {
+
+    /**
+     * Receiver of the matches found by a scanner.
+     */
+    public interface MatchListener {
+
+        /**
+         * Called for every occurrence of a word of the trie in the text.
+         * Occurrences are reported in ascending order of their end position,
+         * and the longest word first for occurrences ending at the same
+         * position.
+         *
+         * @param start Position of the first character of the occurrence in
+         * the text (counting from the beginning of the session).
+         * @param end Position after the last character of the occurrence.
+         * @param word The word found.
+         */
+        void onMatch(long start, long end, String word);
+    }
+
+    /**
+     * State of the automaton used to scan one text.
+     */
+    public final class Session {
+
+        /**
+         * Receiver of the matches.
+         */
+        private final MatchListener listener;
+        /**
+         * Current state of the automaton.
+         */
+        private int state;
+        /**
+         * Number of characters consumed so far.
+         */
+        private long position;
+        /**
+         * Number of matches reported so far.
+         */
+        private long matches;
+
+        /**
+         * Session constructor.
+         *
+         * @param listener Receiver of the matches.
+         */
+        private Session(MatchListener listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * Consumes a chunk of text.
+         *
+         * @param text Chunk of text.
+         * @param from Index of the first character of the chunk.
+         * @param to Index after the last character of the chunk.
+         */
+        public void feed(CharSequence text, int from, int to) {
+            Trie.checkSlice(text, from, to);
+            for (int i = from; i < to; i++) {
+                consume(text.charAt(i));
+            }
+        }
+
+        /**
+         * Consumes a chunk of text.
+         *
+         * @param text Buffer holding the chunk.
+         * @param from Index of the first character of the chunk.
+         * @param to Index after the last character of the chunk.
+         */
+        public void feed(char[] text, int from, int to) {
+            if (from < 0 || to > text.length || from > to) {
+                throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + text.length);
+            }
+            for (int i = from; i < to; i++) {
+                consume(text[i]);
+            }
+        }
+
+        /**
+         * Consumes the remaining characters of a buffer, leaving its position
+         * at its limit.
+         *
+         * @param text Buffer holding the chunk.
+         */
+        public void feed(CharBuffer text) {
+            while (text.hasRemaining()) {
+                consume(text.get());
+            }
+        }
+
+        /**
+         * Returns the number of characters consumed so far.
+         *
+         * @return The number of characters consumed so far.
+         */
+        public long position() {
+            return position;
+        }
+
+        /**
+         * Returns the number of matches reported so far.
+         *
+         * @return The number of matches reported so far.
+         */
+        public long matches() {
+            return matches;
+        }
+
+        /**
+         * Consumes one character, moving the automaton and reporting the words
+         * ending in it.
+         *
+         * @param letter Character to consume.
+         */
+        private void consume(char letter) {
+            int current = state;
+            int next = son(current, letter);
+            while (next < 0 && current != 0) {
+                current = failures[current];
+                next = son(current, letter);
+            }
+            state = (next < 0 ? 0 : next);
+            position++;
+            int output = (isWord(state) ? state : outputs[state]);
+            while (output > 0) {
+                matches++;
+                listener.onMatch(position - depths[output], position, word(output));
+                output = outputs[output];
+            }
+        }
+    }
+
+    /**
+     * Letter of the edge leading to every state (the letter of the root is not
+     * used).
+     */
+    private final char[] letters;
+    /**
+     * Parent of every state.
+     */
+    private final int[] parents;
+    /**
+     * Number of letters of the path leading to every state.
+     */
+    private final int[] depths;
+    /**
+     * The sons of the state i are the states between firstSons[i] (inclusive)
+     * and lastSons[i] (exclusive), sorted by letter.
+     */
+    private final int[] firstSons;
+    /**
+     * End (exclusive) of the range of sons of every state.
+     */
+    private final int[] lastSons;
+    /**
+     * Failure link of every state.
+     */
+    private final int[] failures;
+    /**
+     * Output link of every state: the longest proper suffix of the state that
+     * is a word, 0 if there is none.
+     */
+    private final int[] outputs;
+    /**
+     * Bit set flagging the states in which a word ends.
+     */
+    private final long[] words;
+    /**
+     * Cache of the words of the states already reported, filled lazily and
+     * without synchronization.
+     */
+    private final String[] wordCache;
+
+    /**
+     * TrieScanner constructor. Compiles the automaton of the trie hanging from
+     * the given root.
+     *
+     * @param root Root node of the trie.
+     */
+    private TrieScanner(TrieNode root) {
+        int stateCount = 0;
+        Deque<TrieNode> pendingNodes = new ArrayDeque<TrieNode>();
+        pendingNodes.push(root);
+        while (!pendingNodes.isEmpty()) {
+            TrieNode node = pendingNodes.pop();
+            stateCount += 1 + node.content().length;
+            SonTable sons = node.sons();
+            for (int slot = 0; sons != null && slot < sons.slots(); slot++) {
+                if (sons.sonAt(slot) != null) {
+                    pendingNodes.push(sons.sonAt(slot));
+                }
+            }
+        }
+        letters = new char[stateCount];
+        parents = new int[stateCount];
+        depths = new int[stateCount];
+        firstSons = new int[stateCount];
+        lastSons = new int[stateCount];
+        failures = new int[stateCount];
+        outputs = new int[stateCount];
+        words = new long[(stateCount + 63) >>> 6];
+        wordCache = new String[stateCount];
+        int nextState = 1;
+        Deque<TrieNode> nodes = new ArrayDeque<TrieNode>();
+        Deque<Integer> heads = new ArrayDeque<Integer>();
+        nodes.push(root);
+        heads.push(0);
+        while (!nodes.isEmpty()) {
+            TrieNode node = nodes.pop();
+            int state = heads.pop();
+            for (char letter : node.content()) {
+                firstSons[state] = nextState;
+                lastSons[state] = nextState + 1;
+                letters[nextState] = letter;
+                parents[nextState] = state;
+                depths[nextState] = depths[state] + 1;
+                state = nextState++;
+            }
+            if (node.isEndNode()) {
+                words[state >>> 6] |= 1L << state;
+            }
+            firstSons[state] = nextState;
+            SonTable sons = node.sons();
+            for (int slot = 0; sons != null && slot < sons.slots(); slot++) {
+                if (sons.sonAt(slot) != null) {
+                    letters[nextState] = sons.keyAt(slot);
+                    parents[nextState] = state;
+                    depths[nextState] = depths[state] + 1;
+                    nodes.push(sons.sonAt(slot));
+                    heads.push(nextState++);
+                }
+            }
+            lastSons[state] = nextState;
+        }
+        int[] queue = new int[stateCount];
+        int head = 0;
+        int tail = 0;
+        for (int son = firstSons[0]; son < lastSons[0]; son++) {
+            queue[tail++] = son;
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            for (int son = firstSons[state]; son < lastSons[state]; son++) {
+                queue[tail++] = son;
+            }
+            if (parents[state] != 0) {
+                int failure = failures[parents[state]];
+                int next = son(failure, letters[state]);
+                while (next < 0 && failure != 0) {
+                    failure = failures[failure];
+                    next = son(failure, letters[state]);
+                }
+                failures[state] = (next < 0 ? 0 : next);
+            }
+            int failure = failures[state];
+            outputs[state] = (failure != 0 && isWord(failure) ? failure : outputs[failure]);
+        }
+    }
+
+    /**
+     * Compiles the scanner of the words currently in the given trie. Later
+     * changes of the trie do not affect the scanner.
+     *
+     * @param trie Trie holding the words to look for.
+     * @return The scanner of the words of the trie.
+     */
+    public static TrieScanner compile(Trie trie) {
+        return new TrieScanner(trie.root());
+    }
+
+    /**
+     * Starts the scan of a new text.
+     *
+     * @param listener Receiver of the matches.
+     * @return A session to feed the text to.
+     */
+    public Session newSession(MatchListener listener) {
+        return new Session(listener);
+    }
+
+    /**
+     * Scans a whole text.
+     *
+     * @param text Text to scan.
+     * @param listener Receiver of the matches.
+     * @return The number of matches found.
+     */
+    public long scan(CharSequence text, MatchListener listener) {
+        Session session = newSession(listener);
+        session.feed(text, 0, text.length());
+        return session.matches();
+    }
+
+    /**
+     * Scans the text read from a reader, chunk by chunk, until the end of the
+     * stream. The reader is not closed.
+     *
+     * @param text Reader of the text to scan.
+     * @param listener Receiver of the matches.
+     * @return The number of matches found.
+     * @throws IOException In case there is a problem reading the text.
+     */
+    public long scan(Reader text, MatchListener listener) throws IOException {
+        Session session = newSession(listener);
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = text.read(buffer)) >= 0) {
+            session.feed(buffer, 0, read);
+        }
+        return session.matches();
+    }
+
+    /**
+     * Returns the number of states of the automaton.
+     *
+     * @return The number of states of the automaton.
+     */
+    public int stateCount() {
+        return letters.length;
+    }
+
+    /**
+     * Returns true if a word ends in the given state.
+     *
+     * @param state State.
+     * @return True if a word ends in the given state.
+     */
+    private boolean isWord(int state) {
+        return (words[state >>> 6] & (1L << state)) != 0;
+    }
+
+    /**
+     * Searches the son of a state reached through the given letter.
+     *
+     * @param state State.
+     * @param letter Letter of the edge.
+     * @return The son, or a negative number if there is no son for the given
+     * letter.
+     */
+    private int son(int state, char letter) {
+        int low = firstSons[state];
+        int high = lastSons[state] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char middleLetter = letters[middle];
+            if (middleLetter < letter) {
+                low = middle + 1;
+            } else if (middleLetter > letter) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the word ending in a state, rebuilding it from the path of the
+     * state the first time it is needed. Sessions running in different threads
+     * may race to fill the same entry of the cache, which is benign: every
+     * thread builds an equal String, Strings are safely published even through
+     * a data race, and a thread that does not see the entry of another one just
+     * builds the word again.
+     *
+     * @param state State in which the word ends.
+     * @return The word ending in the state.
+     */
+    private String word(int state) {
+        String word = wordCache[state];
+        if (word == null) {
+            char[] path = new char[depths[state]];
+            for (int current = state; current != 0; current = parents[current]) {
+                path[depths[current] - 1] = letters[current];
+            }
+            word = new String(path);
+            wordCache[state] = word;
+        }
+        return word;
+    }
+}
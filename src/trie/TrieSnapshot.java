@@ -0,0 +1,235 @@
+package trie;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact snapshot of an immutable trie written by {@link DurableTrie}. The
+ * nodes are stored in pre-order exactly as they are in memory, so loading a
+ * snapshot rebuilds every node once without comparing or splitting any word,
+ * and the whole file is covered by a checksum so a damaged snapshot is never
+ * loaded.
+ *
+ * The file format (version 1) is, in big-endian byte order:
+ * <pre>
+ * int    magic number 0x54534E50 ("TSNP")
+ * int    version
+ * long   sequence number of the first log segment not included
+ * nodes  in pre-order, each one as:
+ *          byte    1 if a word ends in the node, 0 otherwise
+ *          varint  length of the content, followed by the content chars
+ *          varint  number of sons, followed by every son as the char of
+ *                  its edge and the son itself
+ * long   CRC-32 of all the previous bytes
+ * </pre>
+ * A snapshot is read through a single mapping, which bounds its size to
+ * 2 GiB.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+final class TrieSnapshot {
+
+    /**
+     * Magic number at the beginning of every snapshot file.
+     */
+    static final int MAGIC = 0x54534E50;
+    /**
+     * Version of the file format written by this class.
+     */
+    static final int VERSION = 1;
+    /**
+     * Size in bytes of the header of the file.
+     */
+    static final int HEADER_SIZE = 16;
+
+    /**
+     * Sequence number of the first log segment not included in the snapshot.
+     */
+    final long sequence;
+    /**
+     * Root node of the trie held by the snapshot.
+     */
+    final ImmutableTrieNode root;
+
+    /**
+     * TrieSnapshot constructor.
+     *
+     * @param sequence Sequence number of the first log segment not included in
+     * the snapshot.
+     * @param root Root node of the trie held by the snapshot.
+     */
+    private TrieSnapshot(long sequence, ImmutableTrieNode root) {
+        this.sequence = sequence;
+        this.root = root;
+    }
+
+    /**
+     * Writes a snapshot of the given trie and forces it to the storage device
+     * before returning.
+     *
+     * @param root Root node of the trie.
+     * @param sequence Sequence number of the first log segment not included in
+     * the snapshot.
+     * @param file Path of the file. It is replaced if it already exists.
+     * @throws IOException In case there is a problem writing the file.
+     */
+    static void write(ImmutableTrieNode root, long sequence, Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            CRC32 checksum = new CRC32();
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(Channels.newOutputStream(channel), checksum), 1 << 16));
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(sequence);
+            writeNode(root, output);
+            output.flush();
+            output.writeLong(checksum.getValue());
+            output.flush();
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads a snapshot, checking its checksum before rebuilding the trie.
+     *
+     * @param file Path of the file.
+     * @return The snapshot held by the file.
+     * @throws IOException If the file cannot be read or it is not a valid and
+     * complete snapshot.
+     */
+    static TrieSnapshot read(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        MappedByteBuffer buffer;
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too big to be mapped: " + channel.size() + " bytes");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            channel.close();
+        }
+        int end = buffer.capacity() - 8;
+        if (end < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a trie snapshot: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported trie snapshot version: " + buffer.getInt(4));
+        }
+        CRC32 checksum = new CRC32();
+        ByteBuffer covered = buffer.duplicate();
+        covered.limit(end);
+        checksum.update(covered);
+        if (checksum.getValue() != buffer.getLong(end)) {
+            throw new IOException("Corrupted trie snapshot: " + file);
+        }
+        long sequence = buffer.getLong(8);
+        buffer.position(HEADER_SIZE);
+        buffer.limit(end);
+        try {
+            ImmutableTrieNode root = readNode(buffer);
+            if (buffer.hasRemaining()) {
+                throw new IOException("Corrupted trie snapshot: " + file);
+            }
+            return new TrieSnapshot(sequence, root);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated trie snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * Writes a node and its subtrie in pre-order.
+     *
+     * @param node Node to write.
+     * @param output Stream in which the node is written.
+     * @throws IOException In case there is a problem writing the node.
+     */
+    private static void writeNode(ImmutableTrieNode node, DataOutputStream output) throws IOException {
+        output.writeByte(node.endNode ? 1 : 0);
+        writeVarint(node.content.length, output);
+        for (char letter : node.content) {
+            output.writeChar(letter);
+        }
+        writeVarint(node.sons.length, output);
+        for (int i = 0; i < node.sons.length; i++) {
+            output.writeChar(node.keys[i]);
+            writeNode(node.sons[i], output);
+        }
+    }
+
+    /**
+     * Reads a node and its subtrie written in pre-order.
+     *
+     * @param buffer Buffer positioned at the beginning of the node.
+     * @return The node read.
+     * @throws IOException If the node is not valid.
+     */
+    private static ImmutableTrieNode readNode(ByteBuffer buffer) throws IOException {
+        boolean endNode = (buffer.get() != 0);
+        int length = readVarint(buffer);
+        char[] content = (length == 0 ? ImmutableTrieNode.NO_LETTERS : new char[length]);
+        for (int i = 0; i < content.length; i++) {
+            content[i] = buffer.getChar();
+        }
+        int sonCount = readVarint(buffer);
+        char[] keys = (sonCount == 0 ? ImmutableTrieNode.NO_LETTERS : new char[sonCount]);
+        ImmutableTrieNode[] sons = (sonCount == 0 ? ImmutableTrieNode.NO_SONS : new ImmutableTrieNode[sonCount]);
+        for (int i = 0; i < sonCount; i++) {
+            keys[i] = buffer.getChar();
+            sons[i] = readNode(buffer);
+        }
+        if (content.length == 0 && sonCount == 0 && !endNode) {
+            return ImmutableTrieNode.EMPTY;
+        }
+        return new ImmutableTrieNode(content, keys, sons, endNode);
+    }
+
+    /**
+     * Writes a non negative number using 7 bits per byte, the highest bit of
+     * every byte telling whether more bytes follow.
+     *
+     * @param value Number to write.
+     * @param output Stream in which the number is written.
+     * @throws IOException In case there is a problem writing the number.
+     */
+    private static void writeVarint(int value, DataOutputStream output) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    /**
+     * Reads a number written by {@link #writeVarint(int, DataOutputStream)}.
+     *
+     * @param buffer Buffer positioned at the beginning of the number.
+     * @return The number read.
+     * @throws IOException If the number is negative or longer than 5 bytes.
+     */
+    private static int readVarint(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte next = buffer.get();
+            value |= (next & 0x7F) << shift;
+            if (next >= 0) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new IOException("Corrupted trie snapshot: invalid number");
+    }
+}
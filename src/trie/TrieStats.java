@@ -0,0 +1,326 @@
+package trie;
+
+import java.util.Arrays;
+
+/**
+ * Snapshot of the structure of a trie: number of nodes of every kind, depth
+ * and fan-out distributions, letters stored against letters of the words and
+ * an estimation of the heap retained by the trie. The snapshot is computed
+ * walking every node once and it is not updated by later changes of the trie.
+ *
+ * The retained heap is estimated for a 64-bit HotSpot JVM with compressed
+ * pointers (the default for heaps under 32 GB): 12 byte object headers, 16
+ * byte array headers, 4 byte references and objects aligned to 8 bytes. Only
+ * the fields of the base trie nodes are accounted for, so the payload of
+ * subclasses (scores, values) is not included.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public final class TrieStats {
+
+    /**
+     * Estimated size of a trie object (header and three references).
+     */
+    static final int TRIE_BYTES = 24;
+    /**
+     * Estimated size of a node object (header, two references and a flag).
+     */
+    static final int NODE_BYTES = 24;
+    /**
+     * Estimated size of a son table object, without its arrays.
+     */
+    static final int SON_TABLE_BYTES = 24;
+
+    /**
+     * Number of nodes.
+     */
+    private long nodes;
+    /**
+     * Number of nodes without sons.
+     */
+    private long leaves;
+    /**
+     * Number of nodes in which a word ends.
+     */
+    private long endNodes;
+    /**
+     * Number of letters stored in the contents of the nodes.
+     */
+    private long contentLetters;
+    /**
+     * Sum of the lengths of all the words.
+     */
+    private long wordLetters;
+    /**
+     * Number of sons tables using a sorted representation.
+     */
+    private long sortedSonTables;
+    /**
+     * Number of sons tables using a dense representation.
+     */
+    private long denseSonTables;
+    /**
+     * Estimated bytes of the node objects.
+     */
+    private long nodeBytes;
+    /**
+     * Estimated bytes of the content arrays.
+     */
+    private long contentBytes;
+    /**
+     * Estimated bytes of the sons tables and their arrays.
+     */
+    private long sonTableBytes;
+    /**
+     * Number of nodes at every depth (in nodes, the root is at depth 0).
+     */
+    private long[] depthHistogram;
+    /**
+     * Number of nodes with every number of sons.
+     */
+    private long[] fanOutHistogram;
+
+    /**
+     * TrieStats constructor. Walks the trie hanging from the given root.
+     *
+     * @param root Root node of the trie.
+     */
+    TrieStats(TrieNode root) {
+        depthHistogram = new long[8];
+        fanOutHistogram = new long[8];
+        int maxDepth = 0;
+        int maxFanOut = 0;
+        TrieNode[] pending = new TrieNode[16];
+        int[] depths = new int[16];
+        int[] lengths = new int[16];
+        int size = 0;
+        pending[size] = root;
+        depths[size] = 0;
+        lengths[size++] = 0;
+        while (size > 0) {
+            TrieNode node = pending[--size];
+            int depth = depths[size];
+            int length = lengths[size] + node.content().length;
+            SonTable sons = node.sons();
+            int fanOut = (sons == null ? 0 : sons.size());
+            nodes++;
+            leaves += (sons == null ? 1 : 0);
+            contentLetters += node.content().length;
+            nodeBytes += NODE_BYTES;
+            if (node.content() != TrieNode.EMPTY_CONTENT) {
+                contentBytes += arrayBytes(node.content().length, 2);
+            }
+            if (node.isEndNode()) {
+                endNodes++;
+                wordLetters += length;
+            }
+            if (depth >= depthHistogram.length) {
+                depthHistogram = Arrays.copyOf(depthHistogram, depth * 2);
+            }
+            depthHistogram[depth]++;
+            maxDepth = Math.max(maxDepth, depth);
+            if (fanOut >= fanOutHistogram.length) {
+                fanOutHistogram = Arrays.copyOf(fanOutHistogram, fanOut * 2);
+            }
+            fanOutHistogram[fanOut]++;
+            maxFanOut = Math.max(maxFanOut, fanOut);
+            if (sons == null) {
+                continue;
+            }
+            if (sons instanceof DenseSonTable) {
+                denseSonTables++;
+                sonTableBytes += SON_TABLE_BYTES + arrayBytes(sons.slots(), 4);
+            } else {
+                sortedSonTables++;
+                sonTableBytes += SON_TABLE_BYTES + arrayBytes(sons.slots(), 2) + arrayBytes(sons.slots(), 4);
+            }
+            if (size + sons.slots() > pending.length) {
+                int capacity = Math.max(pending.length * 2, size + sons.slots());
+                pending = Arrays.copyOf(pending, capacity);
+                depths = Arrays.copyOf(depths, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+            }
+            for (int slot = 0; slot < sons.slots(); slot++) {
+                if (sons.sonAt(slot) != null) {
+                    pending[size] = sons.sonAt(slot);
+                    depths[size] = depth + 1;
+                    lengths[size++] = length + 1;
+                }
+            }
+        }
+        depthHistogram = Arrays.copyOf(depthHistogram, maxDepth + 1);
+        fanOutHistogram = Arrays.copyOf(fanOutHistogram, maxFanOut + 1);
+    }
+
+    /**
+     * Estimates the size of an array.
+     *
+     * @param length Length of the array.
+     * @param elementBytes Size of every element.
+     * @return The estimated size of the array, header and padding included.
+     */
+    private static long arrayBytes(int length, int elementBytes) {
+        return (16L + (long) length * elementBytes + 7) & ~7L;
+    }
+
+    /**
+     * Returns the number of nodes of the trie, the root included.
+     *
+     * @return The number of nodes of the trie.
+     */
+    public long nodeCount() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of nodes without sons.
+     *
+     * @return The number of nodes without sons.
+     */
+    public long leafCount() {
+        return leaves;
+    }
+
+    /**
+     * Returns the number of nodes in which a word ends, which is the number of
+     * words of the trie.
+     *
+     * @return The number of nodes in which a word ends.
+     */
+    public long endNodeCount() {
+        return endNodes;
+    }
+
+    /**
+     * Returns the number of letters stored in the contents of the nodes.
+     *
+     * @return The number of letters stored in the contents of the nodes.
+     */
+    public long contentLetters() {
+        return contentLetters;
+    }
+
+    /**
+     * Returns the number of letters stored in the trie: the letters of the
+     * contents plus the letters of the edges.
+     *
+     * @return The number of letters stored in the trie.
+     */
+    public long storedLetters() {
+        return contentLetters + nodes - 1;
+    }
+
+    /**
+     * Returns the sum of the lengths of all the words of the trie.
+     *
+     * @return The sum of the lengths of all the words of the trie.
+     */
+    public long wordLetters() {
+        return wordLetters;
+    }
+
+    /**
+     * Returns the number of letters of the words per letter stored in the
+     * trie. The higher the ratio, the more letters are shared by the words.
+     *
+     * @return The number of letters of the words per letter stored, 0 if the
+     * trie stores no letter.
+     */
+    public double sharingRatio() {
+        long stored = storedLetters();
+        return (stored == 0 ? 0 : wordLetters / (double) stored);
+    }
+
+    /**
+     * Returns the depth of the deepest node, in nodes (the root is at depth
+     * 0).
+     *
+     * @return The depth of the deepest node.
+     */
+    public int maxDepth() {
+        return depthHistogram.length - 1;
+    }
+
+    /**
+     * Returns the number of nodes at every depth, in nodes (the root is at
+     * depth 0).
+     *
+     * @return An array whose position i holds the number of nodes at depth i.
+     */
+    public long[] depthHistogram() {
+        return depthHistogram.clone();
+    }
+
+    /**
+     * Returns the number of nodes with every number of sons.
+     *
+     * @return An array whose position i holds the number of nodes with i sons.
+     */
+    public long[] fanOutHistogram() {
+        return fanOutHistogram.clone();
+    }
+
+    /**
+     * Returns the number of sons tables using a sorted array of letters.
+     *
+     * @return The number of sorted sons tables.
+     */
+    public long sortedSonTableCount() {
+        return sortedSonTables;
+    }
+
+    /**
+     * Returns the number of sons tables indexed directly by letter.
+     *
+     * @return The number of dense sons tables.
+     */
+    public long denseSonTableCount() {
+        return denseSonTables;
+    }
+
+    /**
+     * Returns the estimated bytes of the node objects.
+     *
+     * @return The estimated bytes of the node objects.
+     */
+    public long nodeBytes() {
+        return nodeBytes;
+    }
+
+    /**
+     * Returns the estimated bytes of the arrays holding the contents of the
+     * nodes.
+     *
+     * @return The estimated bytes of the content arrays.
+     */
+    public long contentBytes() {
+        return contentBytes;
+    }
+
+    /**
+     * Returns the estimated bytes of the sons tables, their arrays included.
+     *
+     * @return The estimated bytes of the sons tables.
+     */
+    public long sonTableBytes() {
+        return sonTableBytes;
+    }
+
+    /**
+     * Returns the estimated heap retained by the trie: the trie object, the
+     * nodes, their contents and their sons tables.
+     *
+     * @return The estimated heap retained by the trie, in bytes.
+     */
+    public long estimatedBytes() {
+        return TRIE_BYTES + nodeBytes + contentBytes + sonTableBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "TrieStats[nodes=" + nodes + ", leaves=" + leaves + ", endNodes=" + endNodes
+                + ", storedLetters=" + storedLetters() + ", wordLetters=" + wordLetters
+                + ", maxDepth=" + maxDepth() + ", sortedSonTables=" + sortedSonTables
+                + ", denseSonTables=" + denseSonTables + ", estimatedBytes=" + estimatedBytes() + "]";
+    }
+}
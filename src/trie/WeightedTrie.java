@@ -0,0 +1,280 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Trie whose words carry a score, aimed at autocompletion. Besides the score of
+ * the word ending in it, every node caches the best score of its subtrie, so
+ * the k best scored words starting with a prefix are found visiting a number of
+ * nodes that depends on k and the length of the words instead of on the size
+ * of the subtrie under the prefix.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class WeightedTrie extends Trie {
+
+    /**
+     * WeightedTrie constructor
+     */
+    public WeightedTrie() {
+        super(new WeightedTrieNode());
+    }
+
+    /**
+     * Inserts a word into the trie with score 0. If the word is already in the
+     * trie its score is set to 0.
+     *
+     * @param word Word to insert in the trie.
+     */
+    @Override
+    public void insert(String word) {
+        insert(word, 0);
+    }
+
+    /**
+     * Inserts a word into the trie with the given score. If the word is already
+     * in the trie its score is replaced. The best scores cached in the path of
+     * the word are only recomputed if the old score was the best one of the
+     * subtrie of its end node or the new one beats it.
+     *
+     * @param word Word to insert in the trie.
+     * @param score Score of the word.
+     */
+    public void insert(String word, double score) {
+        if (word == null) {
+            return;
+        }
+        WeightedTrieNode node = (WeightedTrieNode) add(word);
+        double previous = node.score;
+        node.score = score;
+        if (previous >= node.best || score > node.best) {
+            refreshPath(word);
+        }
+    }
+
+    /**
+     * Removes a word from the trie.
+     *
+     * @param word Word to be removed from the trie.
+     */
+    @Override
+    public void remove(String word) {
+        if (word == null) {
+            return;
+        }
+        super.remove(word);
+        refreshPath(word);
+    }
+
+    /**
+     * Returns the score of a word.
+     *
+     * @param word Word to search in the trie.
+     * @return The score of the word, NaN if the word is not in the trie.
+     */
+    public double score(String word) {
+        TrieNode node = (word == null ? null : root().find(word, 0, word.length()));
+        return (node == null ? Double.NaN : ((WeightedTrieNode) node).score);
+    }
+
+    /**
+     * Returns the k words with the highest score among the words starting with
+     * the given prefix, sorted by descending score (words with the same score
+     * are sorted lexicographically). The subtries are explored best first
+     * using the best score cached in every node, so only the paths leading to
+     * the returned words and their siblings are visited.
+     *
+     * @param prefix Prefix of the words.
+     * @param k Maximum number of words to return.
+     * @return The k best scored words starting with the prefix, or less if
+     * there are not enough of them.
+     */
+    public List<String> topK(String prefix, int k) {
+        List<String> best = new ArrayList<String>(Math.max(0, Math.min(k, 1024)));
+        if (prefix == null || k <= 0) {
+            return best;
+        }
+        TrieNode.PrefixEnd end = root().findPrefix(prefix, 0, prefix.length());
+        if (end == null) {
+            return best;
+        }
+        TrieNode node = end.node;
+        if (!node.isEndNode() && node.sons() == null) {
+            return best;
+        }
+        String path = prefix.substring(0, end.start) + new String(node.content());
+        PriorityQueue<Candidate> candidates = new PriorityQueue<Candidate>(16, Candidate.ORDER);
+        candidates.add(new Candidate((WeightedTrieNode) node, path, false));
+        while (best.size() < k && !candidates.isEmpty()) {
+            Candidate candidate = candidates.poll();
+            if (candidate.word) {
+                best.add(candidate.path);
+                continue;
+            }
+            if (candidate.node.isEndNode()) {
+                candidates.add(new Candidate(candidate.node, candidate.path, true));
+            }
+            SonTable sons = candidate.node.sons();
+            for (int slot = 0; sons != null && slot < sons.slots(); slot++) {
+                TrieNode son = sons.sonAt(slot);
+                if (son != null) {
+                    String sonPath = candidate.path + sons.keyAt(slot) + new String(son.content());
+                    candidates.add(new Candidate((WeightedTrieNode) son, sonPath, false));
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Recomputes the best score of the nodes in the path of a word, from the
+     * deepest one up to the root.
+     *
+     * @param word Word whose path has changed.
+     */
+    private void refreshPath(String word) {
+        List<WeightedTrieNode> path = new ArrayList<WeightedTrieNode>();
+        TrieNode node = root();
+        int idx = 0;
+        while (node != null) {
+            path.add((WeightedTrieNode) node);
+            char[] content = node.content();
+            if (word.length() - idx <= content.length) {
+                break;
+            }
+            boolean matches = true;
+            for (int i = 0; i < content.length && matches; i++) {
+                matches = (content[i] == word.charAt(idx + i));
+            }
+            idx += content.length;
+            node = (!matches || node.sons() == null ? null : node.sons().get(word.charAt(idx)));
+            idx++;
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            path.get(i).refreshBest();
+        }
+    }
+
+    /**
+     * Entry of the best first exploration of the trie: either a node, whose
+     * priority is the best score of its subtrie, or a word, whose priority is
+     * its own score.
+     */
+    private static final class Candidate {
+
+        /**
+         * Order of the candidates: higher priority first and then lexicographic
+         * order of the path. The path of a node is a lower bound of the words
+         * in its subtrie, so words with the same score come out sorted.
+         */
+        static final Comparator<Candidate> ORDER = new Comparator<Candidate>() {
+            @Override
+            public int compare(Candidate first, Candidate second) {
+                int byPriority = Double.compare(second.priority, first.priority);
+                if (byPriority != 0) {
+                    return byPriority;
+                }
+                int byPath = first.path.compareTo(second.path);
+                if (byPath != 0) {
+                    return byPath;
+                }
+                return (first.word == second.word ? 0 : (first.word ? -1 : 1));
+            }
+        };
+
+        /**
+         * Node of the candidate.
+         */
+        final WeightedTrieNode node;
+        /**
+         * Letters of the path leading to the end of the content of the node.
+         */
+        final String path;
+        /**
+         * True if the candidate is the word ending in the node, false if it is
+         * the whole subtrie of the node.
+         */
+        final boolean word;
+        /**
+         * Priority of the candidate.
+         */
+        final double priority;
+
+        /**
+         * Candidate constructor.
+         *
+         * @param node Node of the candidate.
+         * @param path Letters of the path leading to the end of the content of
+         * the node.
+         * @param word True if the candidate is the word ending in the node,
+         * false if it is the whole subtrie of the node.
+         */
+        Candidate(WeightedTrieNode node, String path, boolean word) {
+            this.node = node;
+            this.path = path;
+            this.word = word;
+            this.priority = (word ? node.score : node.best);
+        }
+    }
+}
+
+/**
+ * Node of a weighted trie. It keeps the score of the word ending in it and the
+ * best score of its whole subtrie.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+class WeightedTrieNode extends TrieNode {
+
+    /**
+     * Score of the word ending in the node (meaningless if the node is not an
+     * end node).
+     */
+    double score;
+    /**
+     * Best score of the words in the subtrie of the node, negative infinity if
+     * there are no words.
+     */
+    double best = Double.NEGATIVE_INFINITY;
+
+    @Override
+    TrieNode newNode() {
+        return new WeightedTrieNode();
+    }
+
+    @Override
+    void moveValueTo(TrieNode son) {
+        ((WeightedTrieNode) son).score = score;
+        ((WeightedTrieNode) son).best = best;
+    }
+
+    @Override
+    void takeValueFrom(TrieNode fusionNode) {
+        score = ((WeightedTrieNode) fusionNode).score;
+        best = ((WeightedTrieNode) fusionNode).best;
+    }
+
+    @Override
+    void clearValue() {
+        score = 0;
+    }
+
+    /**
+     * Recomputes the best score of the subtrie from the score of the node and
+     * the best score of its sons.
+     */
+    void refreshBest() {
+        double newBest = (isEndNode() ? score : Double.NEGATIVE_INFINITY);
+        SonTable sons = sons();
+        for (int slot = 0; sons != null && slot < sons.slots(); slot++) {
+            TrieNode son = sons.sonAt(slot);
+            if (son != null) {
+                newBest = Math.max(newBest, ((WeightedTrieNode) son).best);
+            }
+        }
+        best = newBest;
+    }
+}
@@ -0,0 +1,117 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Test program to verify that the batch lookups of a trie give the same
+ * results as looking up every key on its own.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class BatchLookupTest {
+
+    /**
+     * Batch lookup test program.
+     *
+     * @param args The first argument, if present, is the number of words to
+     * insert in the trie (50000 by default) and the second one the seed of the
+     * random generator (1 by default).
+     */
+    public static void main(String[] args) {
+        int words = (args.length >= 1 ? Integer.parseInt(args[0]) : 50000);
+        long seed = (args.length >= 2 ? Long.parseLong(args[1]) : 1);
+        boolean passed = batchTest(words, seed);
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Fills a trie with random words and looks up batches of stored words,
+     * prefixes of them, random words, duplicates and nulls, sorted and
+     * unsorted, sequentially and in parallel, checking every result against
+     * the single lookups.
+     *
+     * @param words Number of words to insert in the trie.
+     * @param seed Seed of the random generator.
+     * @return True if the batch lookups gave the same results as the single
+     * lookups.
+     */
+    public static boolean batchTest(int words, long seed) {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Batch lookup test:");
+        System.out.println("-------------------------------------------------------");
+        Random random = new Random(seed);
+        Trie trie = new Trie();
+        List<String> inserted = new ArrayList<String>();
+        for (int i = 0; i < words; i++) {
+            String word = TestWords.skewedWord(random, random.nextInt(14), 26);
+            trie.insert(word);
+            inserted.add(word);
+        }
+        for (int i = 0; i < words / 4; i++) {
+            trie.remove(inserted.get(random.nextInt(inserted.size())));
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        int lookups = 0;
+        int mismatches = 0;
+        for (int batch = 0; batch < 20; batch++) {
+            String[] keys = new String[(batch % 5 == 0 ? 50000 : random.nextInt(2000))];
+            for (int i = 0; i < keys.length; i++) {
+                String word = inserted.get(random.nextInt(inserted.size()));
+                switch (random.nextInt(5)) {
+                    case 0:
+                        keys[i] = word;
+                        break;
+                    case 1:
+                        keys[i] = word.substring(0, random.nextInt(word.length() + 1));
+                        break;
+                    case 2:
+                        keys[i] = TestWords.skewedWord(random, random.nextInt(14), 26);
+                        break;
+                    case 3:
+                        keys[i] = (i > 0 ? keys[random.nextInt(i)] : null);
+                        break;
+                    default:
+                        keys[i] = (random.nextInt(10) == 0 ? null : word + (char) ('a' + random.nextInt(3)));
+                        break;
+                }
+            }
+            if (batch % 2 == 1) {
+                Arrays.sort(keys, 0, keys.length, new Comparator<String>() {
+                    @Override
+                    public int compare(String a, String b) {
+                        return (a == null ? (b == null ? 0 : -1) : (b == null ? 1 : a.compareTo(b)));
+                    }
+                });
+            }
+            boolean[] found = trie.searchAll(keys);
+            boolean[] prefixFound = trie.startsWithAll(keys);
+            boolean[] parallelFound = trie.searchAll(keys, pool);
+            boolean[] parallelPrefixFound = trie.startsWithAll(keys, pool);
+            for (int i = 0; i < keys.length; i++) {
+                boolean expected = trie.search(keys[i]);
+                boolean prefixExpected = trie.startsWith(keys[i]);
+                mismatches += (found[i] == expected && parallelFound[i] == expected ? 0 : 1);
+                mismatches += (prefixFound[i] == prefixExpected && parallelPrefixFound[i] == prefixExpected ? 0 : 1);
+                lookups += 4;
+            }
+        }
+        pool.shutdown();
+        Trie single = new Trie();
+        single.insert("abc");
+        mismatches += (Arrays.equals(single.searchAll(new String[]{"abcd", "ab", "abc", "", "b"}), new boolean[]{false, false, true, false, false}) ? 0 : 1);
+        mismatches += (Arrays.equals(single.startsWithAll(new String[]{"abcd", "ab", "abc", "", "b"}), new boolean[]{false, true, true, true, false}) ? 0 : 1);
+        mismatches += (new Trie().startsWithAll(new String[]{""})[0] ? 1 : 0);
+        mismatches += (new Trie().searchAll(new String[0]).length == 0 ? 0 : 1);
+        System.out.println("  Number of lookups:.........................." + lookups);
+        System.out.println("  Number of mismatches:......................." + mismatches);
+        System.out.println("  Test passed:................................" + (mismatches == 0));
+        return mismatches == 0;
+    }
+}
@@ -0,0 +1,140 @@
+package trie;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test program to verify that a byte trie fed with the UTF-8 encoding of words
+ * answers exactly like a trie fed with the words.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class ByteTrieTest {
+
+    /**
+     * Byte trie equivalence test program.
+     *
+     * @param args The first argument, if present, is the number of operations
+     * (300000 by default) and the second one the seed of the random generator
+     * (1 by default).
+     */
+    public static void main(String[] args) {
+        int operations = (args.length >= 1 ? Integer.parseInt(args[0]) : 300000);
+        long seed = (args.length >= 2 ? Long.parseLong(args[1]) : 1);
+        boolean passed = equivalenceTest(operations, seed);
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs the same random sequence of insertions, removals, searches and
+     * prefix checks on a trie and on a byte trie, passing the keys to the byte
+     * trie as slices of padded arrays, of heap buffers and of direct buffers,
+     * and checks that both tries give the same answers.
+     *
+     * @param operations Number of operations.
+     * @param seed Seed of the random generator.
+     * @return True if both tries gave the same answers.
+     */
+    public static boolean equivalenceTest(int operations, long seed) {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Byte trie equivalence test:");
+        System.out.println("-------------------------------------------------------");
+        Random random = new Random(seed);
+        Trie trie = new Trie();
+        ByteTrie byteTrie = new ByteTrie();
+        List<String> words = new ArrayList<String>();
+        ByteBuffer direct = ByteBuffer.allocateDirect(1024);
+        int mismatches = 0;
+        for (int i = 0; i < operations; i++) {
+            String word = (words.isEmpty() || random.nextBoolean() ? randomWord(random) : words.get(random.nextInt(words.size())));
+            byte[] encoded = word.getBytes(StandardCharsets.UTF_8);
+            int offset = random.nextInt(8);
+            byte[] padded = new byte[offset + encoded.length + random.nextInt(8)];
+            random.nextBytes(padded);
+            System.arraycopy(encoded, 0, padded, offset, encoded.length);
+            ByteBuffer buffer;
+            if (random.nextBoolean()) {
+                buffer = ByteBuffer.wrap(padded);
+            } else {
+                direct.clear();
+                direct.put(padded);
+                buffer = direct;
+            }
+            int position = buffer.position();
+            int length = encoded.length;
+            switch (random.nextInt(4)) {
+                case 0:
+                    trie.insert(word);
+                    words.add(word);
+                    if (random.nextBoolean()) {
+                        byteTrie.insert(padded, offset, length);
+                    } else {
+                        byteTrie.insert(buffer, offset, length);
+                    }
+                    break;
+                case 1:
+                    boolean present = trie.search(word);
+                    trie.remove(word);
+                    boolean removed = (random.nextBoolean() ? byteTrie.remove(padded, offset, length) : byteTrie.remove(buffer, offset, length));
+                    mismatches += (present == removed ? 0 : 1);
+                    break;
+                case 2:
+                    boolean found = trie.search(word);
+                    mismatches += (found == byteTrie.search(padded, offset, length) ? 0 : 1);
+                    mismatches += (found == byteTrie.search(buffer, offset, length) ? 0 : 1);
+                    mismatches += (found == byteTrie.search(word) ? 0 : 1);
+                    break;
+                default:
+                    String prefix = word.substring(0, word.offsetByCodePoints(0, random.nextInt(word.codePointCount(0, word.length()) + 1)));
+                    int prefixLength = prefix.getBytes(StandardCharsets.UTF_8).length;
+                    boolean prefixFound = trie.startsWith(prefix);
+                    mismatches += (prefixFound == byteTrie.startsWith(padded, offset, prefixLength) ? 0 : 1);
+                    mismatches += (prefixFound == byteTrie.startsWith(buffer, offset, prefixLength) ? 0 : 1);
+                    mismatches += (prefixFound == byteTrie.startsWith(prefix) ? 0 : 1);
+                    break;
+            }
+            mismatches += (buffer.position() == position ? 0 : 1);
+        }
+        for (String word : words) {
+            mismatches += (trie.search(word) == byteTrie.search(word) ? 0 : 1);
+        }
+        for (String word : words) {
+            trie.remove(word);
+            byteTrie.remove(word);
+        }
+        mismatches += (byteTrie.nodeCount() == 1 && !byteTrie.startsWith("") ? 0 : 1);
+        try {
+            byteTrie.search(new byte[4], 2, 3);
+            mismatches++;
+        } catch (IndexOutOfBoundsException e) {
+        }
+        System.out.println("  Number of operations:......................." + operations);
+        System.out.println("  Number of mismatches:......................." + mismatches);
+        System.out.println("  Test passed:................................" + (mismatches == 0));
+        return mismatches == 0;
+    }
+
+    /**
+     * Builds a random word mixing ASCII letters with letters encoded in two,
+     * three and four bytes, over a small alphabet so that the words share many
+     * prefixes.
+     *
+     * @param random Random generator.
+     * @return A random word.
+     */
+    private static String randomWord(Random random) {
+        int[] letters = {'a', 'b', 'c', 'd', 0xE9, 0xF1, 0x4E2D, 0x1F600};
+        int length = random.nextInt(8);
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            int bound = (random.nextInt(4) == 0 ? letters.length : 4);
+            word.appendCodePoint(letters[random.nextInt(bound)]);
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,954 @@
+package trie;
+
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Load harness replaying a file of trie commands, with the format of the
+ * custom test of {@link TrieTest}, on a number of worker threads. The commands
+ * and the expected outputs are streamed, so the size of the files is not
+ * bounded by the memory, and the latency of every command is recorded in a
+ * {@link LatencyHistogram} per type of command, which gives the throughput
+ * and the p50, p99 and p99.9 latencies of each type.
+ *
+ * Commands are separated by commas, line breaks or blanks, and each one is
+ * written as insert("word"), remove("word"), search("word") or
+ * startsWith("prefix"). A word ends at the first quote followed by a closing
+ * parenthesis, so words may hold commas, blanks and quotes. The expected
+ * outputs are the words true and false, separated the same way, in the order
+ * of the search and startsWith commands.
+ *
+ * The commands are grouped in blocks of consecutive reads (searches and
+ * prefix checks) or consecutive writes (insertions and removals), which the
+ * workers take in order. In ordered mode, the default, a block of writes
+ * waits for every previous block to complete and a block of reads waits for
+ * the previous block of writes, so the reads run in parallel with each other
+ * but every command sees the trie exactly as a sequential replay would, and
+ * the results are checked against the expected outputs. In unordered mode
+ * the blocks run as soon as a worker takes them on a {@link ConcurrentTrie},
+ * which measures the trie under concurrent reads and writes, and the results
+ * are not checked because they depend on the interleaving.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class CommandReplay {
+
+    /**
+     * Code of the insertions.
+     */
+    static final int INSERT = 0;
+    /**
+     * Code of the removals.
+     */
+    static final int REMOVE = 1;
+    /**
+     * Code of the searches.
+     */
+    static final int SEARCH = 2;
+    /**
+     * Code of the prefix checks.
+     */
+    static final int STARTS_WITH = 3;
+    /**
+     * Names of the commands, indexed by their code.
+     */
+    static final String[] NAMES = {"insert", "remove", "search", "startsWith"};
+    /**
+     * Maximum number of commands of a block.
+     */
+    static final int BLOCK_SIZE = 1024;
+    /**
+     * Maximum number of mismatches kept to be reported.
+     */
+    static final int MISMATCH_SAMPLES = 10;
+
+    /**
+     * Command replay program.
+     *
+     * @param args Without arguments, a random trace is generated and replayed
+     * to check the harness itself. Otherwise, the first argument is the
+     * commands file, the second one the expected outputs file ("-" if there is
+     * none), the third one the number of worker threads (1 by default) and the
+     * fourth one the mode, "ordered" (default) or "unordered".
+     * @throws IOException In case there is a problem reading the files.
+     * @throws InterruptedException If the main thread is interrupted while
+     * waiting for the workers.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            if (!selfTest(200000, 1)) {
+                System.exit(1);
+            }
+            return;
+        }
+        int workers = (args.length >= 3 ? Integer.parseInt(args[2]) : 1);
+        boolean ordered = (args.length < 4 || !args[3].equals("unordered"));
+        Reader commands = new InputStreamReader(new FileInputStream(args[0]), StandardCharsets.UTF_8);
+        Reader expected = (args.length < 2 || args[1].equals("-") ? null : new InputStreamReader(new FileInputStream(args[1]), StandardCharsets.UTF_8));
+        Report report;
+        try {
+            report = replay(commands, expected, workers, ordered);
+        } finally {
+            commands.close();
+            if (expected != null) {
+                expected.close();
+            }
+        }
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Replay of " + args[0] + " (" + workers + " workers, " + (ordered ? "ordered" : "unordered") + "):");
+        System.out.println("-------------------------------------------------------");
+        report.print();
+        if (report.mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Replays a stream of commands.
+     *
+     * @param commands Reader of the commands.
+     * @param expected Reader of the expected outputs, null if there is none.
+     * @param workers Number of worker threads.
+     * @param ordered True to replay the commands with the results of a
+     * sequential replay and check them, false to run them concurrently.
+     * @return The report of the replay.
+     * @throws IOException In case there is a problem reading the commands or
+     * the expected outputs.
+     * @throws InterruptedException If the calling thread is interrupted while
+     * waiting for the workers.
+     */
+    public static Report replay(Reader commands, Reader expected, int workers, boolean ordered) throws IOException, InterruptedException {
+        if (workers < 1) {
+            throw new IllegalArgumentException("At least one worker is needed: " + workers);
+        }
+        final Target target = (ordered ? trieTarget(new Trie()) : concurrentTarget(new ConcurrentTrie()));
+        final BlockingQueue<Block> queue = new ArrayBlockingQueue<Block>(4 * workers);
+        final Gate gate = new Gate(8 * workers + 1, ordered);
+        final Report report = new Report();
+        final Worker[] running = new Worker[workers];
+        Thread[] threads = new Thread[workers];
+        for (int i = 0; i < workers; i++) {
+            running[i] = new Worker(queue, gate, target, ordered && expected != null);
+            threads[i] = new Thread(running[i], "replay-worker-" + i);
+            threads[i].start();
+        }
+        CommandReader reader = new CommandReader(commands);
+        CommandReader outputs = (expected == null ? null : new CommandReader(expected));
+        long start = System.nanoTime();
+        try {
+            long sequence = 0;
+            long lastWrite = -1;
+            long index = 0;
+            Block block = null;
+            while (reader.next()) {
+                if (reader.operation < 0) {
+                    report.misunderstood++;
+                    index++;
+                    continue;
+                }
+                boolean write = (reader.operation <= REMOVE);
+                if (block != null && (block.write != write || block.size == BLOCK_SIZE)) {
+                    gate.awaitWindow(block.sequence);
+                    queue.put(block);
+                    if (block.write) {
+                        lastWrite = block.sequence;
+                    }
+                    block = null;
+                }
+                if (block == null) {
+                    block = new Block(sequence++, write, lastWrite, index);
+                }
+                byte expectedResult = -1;
+                if (!write && outputs != null) {
+                    expectedResult = outputs.nextBoolean();
+                    report.missingExpected += (expectedResult < 0 ? 1 : 0);
+                }
+                block.add(reader.operation, reader.word, expectedResult);
+                index++;
+            }
+            if (block != null) {
+                gate.awaitWindow(block.sequence);
+                queue.put(block);
+            }
+            report.commands = index;
+            report.extraExpected = (outputs == null ? 0 : outputs.countRemaining());
+        } finally {
+            for (int i = 0; i < workers; i++) {
+                queue.put(Block.END);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        report.elapsed = System.nanoTime() - start;
+        report.checked = (ordered && expected != null);
+        for (Worker worker : running) {
+            for (int i = 0; i < NAMES.length; i++) {
+                report.latencies[i].add(worker.latencies[i]);
+            }
+            report.mismatches += worker.mismatches;
+            for (String sample : worker.samples) {
+                if (report.samples.size() < MISMATCH_SAMPLES) {
+                    report.samples.add(sample);
+                }
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Generates a random trace with its expected outputs, computed with a
+     * sorted set, and checks that the ordered replay with one and several
+     * workers reproduces every expected output, that a wrong expected output
+     * is detected and that the unordered replay runs every command.
+     *
+     * @param commands Number of commands of the trace.
+     * @param seed Seed of the random generator.
+     * @return True if every check passed.
+     * @throws IOException In case there is a problem with the files of the
+     * trace.
+     * @throws InterruptedException If the thread is interrupted while waiting
+     * for the workers.
+     */
+    public static boolean selfTest(int commands, long seed) throws IOException, InterruptedException {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Command replay test:");
+        System.out.println("-------------------------------------------------------");
+        Random random = new Random(seed);
+        Path commandsFile = Files.createTempFile("commands", ".txt");
+        Path expectedFile = Files.createTempFile("expected", ".txt");
+        Path wrongFile = Files.createTempFile("wrong", ".txt");
+        try {
+            TreeSet<String> words = new TreeSet<String>();
+            List<String> vocabulary = new ArrayList<String>();
+            for (int i = 0; i < commands / 20; i++) {
+                vocabulary.add(TestWords.randomWord(random));
+            }
+            vocabulary.add("with \"quotes\", commas and (blanks)");
+            int reads = 0;
+            Writer commandsWriter = Files.newBufferedWriter(commandsFile, StandardCharsets.UTF_8);
+            BufferedWriter expectedWriter = Files.newBufferedWriter(expectedFile, StandardCharsets.UTF_8);
+            try {
+                for (int i = 0; i < commands; i++) {
+                    String word = vocabulary.get(random.nextInt(vocabulary.size()));
+                    int kind = random.nextInt(10);
+                    if (kind < 3) {
+                        words.add(word);
+                        commandsWriter.write("insert(\"" + word + "\")");
+                    } else if (kind < 4) {
+                        words.remove(word);
+                        commandsWriter.write("remove(\"" + word + "\")");
+                    } else if (kind < 8) {
+                        commandsWriter.write("search(\"" + word + "\")");
+                        expectedWriter.write((reads++ == 0 ? "" : ",") + words.contains(word));
+                    } else {
+                        String prefix = word.substring(0, random.nextInt(word.length() + 1));
+                        String ceiling = words.ceiling(prefix);
+                        commandsWriter.write("startsWith(\"" + prefix + "\")");
+                        expectedWriter.write((reads++ == 0 ? "" : ",") + (ceiling != null && ceiling.startsWith(prefix)));
+                    }
+                    commandsWriter.write(i % 1000 == 999 ? "\n" : ",");
+                }
+                commandsWriter.write("lookup(\"unknown\")");
+            } finally {
+                commandsWriter.close();
+                expectedWriter.close();
+            }
+            String wrong = new String(Files.readAllBytes(expectedFile), StandardCharsets.UTF_8);
+            wrong = (wrong.startsWith("true") ? "false" + wrong.substring(4) : "true" + wrong.substring(5));
+            Files.write(wrongFile, wrong.getBytes(StandardCharsets.UTF_8));
+            Report sequential = replay(commandsFile, expectedFile, 1, true);
+            Report parallel = replay(commandsFile, expectedFile, 4, true);
+            Report detected = replay(commandsFile, wrongFile, 4, true);
+            Report unordered = replay(commandsFile, null, 4, false);
+            parallel.print();
+            boolean passed = sequential.mismatches == 0 && parallel.mismatches == 0 && detected.mismatches == 1
+                    && sequential.misunderstood == 1 && parallel.missingExpected == 0 && parallel.extraExpected == 0
+                    && unordered.commands == commands + 1 && count(unordered) == commands && count(parallel) == commands;
+            System.out.println("  Number of reads checked:...................." + reads);
+            System.out.println("  Mismatches with 1 worker:..................." + sequential.mismatches);
+            System.out.println("  Mismatches with 4 workers:.................." + parallel.mismatches);
+            System.out.println("  Wrong expected outputs detected:............" + detected.mismatches);
+            System.out.println("  Commands run unordered:....................." + count(unordered));
+            System.out.println("  Test passed:................................" + passed);
+            return passed;
+        } finally {
+            Files.deleteIfExists(commandsFile);
+            Files.deleteIfExists(expectedFile);
+            Files.deleteIfExists(wrongFile);
+        }
+    }
+
+    /**
+     * Replays the commands of a file.
+     *
+     * @param commands Path of the commands file.
+     * @param expected Path of the expected outputs file, null if there is
+     * none.
+     * @param workers Number of worker threads.
+     * @param ordered True for an ordered replay, false for an unordered one.
+     * @return The report of the replay.
+     * @throws IOException In case there is a problem reading the files.
+     * @throws InterruptedException If the thread is interrupted while waiting
+     * for the workers.
+     */
+    private static Report replay(Path commands, Path expected, int workers, boolean ordered) throws IOException, InterruptedException {
+        Reader commandsReader = Files.newBufferedReader(commands, StandardCharsets.UTF_8);
+        Reader expectedReader = (expected == null ? null : Files.newBufferedReader(expected, StandardCharsets.UTF_8));
+        try {
+            return replay(commandsReader, expectedReader, workers, ordered);
+        } finally {
+            commandsReader.close();
+            if (expectedReader != null) {
+                expectedReader.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of commands run in a replay.
+     *
+     * @param report Report of the replay.
+     * @return The number of commands run.
+     */
+    private static long count(Report report) {
+        long count = 0;
+        for (LatencyHistogram latency : report.latencies) {
+            count += latency.count();
+        }
+        return count;
+    }
+
+    /**
+     * Builds the target of an ordered replay.
+     *
+     * @param trie Trie receiving the commands.
+     * @return A target running the commands on the trie.
+     */
+    private static Target trieTarget(final Trie trie) {
+        return new Target() {
+            @Override
+            public boolean run(int operation, String word) {
+                switch (operation) {
+                    case INSERT:
+                        trie.insert(word);
+                        return false;
+                    case REMOVE:
+                        trie.remove(word);
+                        return false;
+                    case SEARCH:
+                        return trie.search(word);
+                    default:
+                        return trie.startsWith(word);
+                }
+            }
+        };
+    }
+
+    /**
+     * Builds the target of an unordered replay.
+     *
+     * @param trie Concurrent trie receiving the commands.
+     * @return A target running the commands on the concurrent trie.
+     */
+    private static Target concurrentTarget(final ConcurrentTrie trie) {
+        return new Target() {
+            @Override
+            public boolean run(int operation, String word) {
+                switch (operation) {
+                    case INSERT:
+                        trie.insert(word);
+                        return false;
+                    case REMOVE:
+                        trie.remove(word);
+                        return false;
+                    case SEARCH:
+                        return trie.search(word);
+                    default:
+                        return trie.startsWith(word);
+                }
+            }
+        };
+    }
+
+    /**
+     * Structure receiving the replayed commands.
+     */
+    interface Target {
+
+        /**
+         * Runs a command.
+         *
+         * @param operation Code of the command.
+         * @param word Word or prefix of the command.
+         * @return The result of a search or a prefix check, false for the
+         * insertions and removals.
+         */
+        boolean run(int operation, String word);
+    }
+
+    /**
+     * Consecutive commands of the same kind, reads or writes.
+     */
+    static final class Block {
+
+        /**
+         * Block telling a worker that there are no more blocks.
+         */
+        static final Block END = new Block(-1, false, -1, -1);
+
+        /**
+         * Position of the block in the replay.
+         */
+        final long sequence;
+        /**
+         * True if the block holds insertions and removals, false if it holds
+         * searches and prefix checks.
+         */
+        final boolean write;
+        /**
+         * Sequence number of the last block of writes before this one, -1 if
+         * there is none.
+         */
+        final long lastWrite;
+        /**
+         * Position in the trace of the first command of the block.
+         */
+        final long first;
+        /**
+         * Codes of the commands.
+         */
+        final int[] operations = new int[BLOCK_SIZE];
+        /**
+         * Words of the commands.
+         */
+        final String[] words = new String[BLOCK_SIZE];
+        /**
+         * Expected results of the commands: 1 for true, 0 for false and -1 if
+         * there is no expected result.
+         */
+        final byte[] expected = new byte[BLOCK_SIZE];
+        /**
+         * Number of commands of the block.
+         */
+        int size;
+
+        /**
+         * Block constructor.
+         *
+         * @param sequence Position of the block in the replay.
+         * @param write True for a block of writes, false for a block of reads.
+         * @param lastWrite Sequence number of the last block of writes before
+         * this one.
+         * @param first Position in the trace of the first command.
+         */
+        Block(long sequence, boolean write, long lastWrite, long first) {
+            this.sequence = sequence;
+            this.write = write;
+            this.lastWrite = lastWrite;
+            this.first = first;
+        }
+
+        /**
+         * Adds a command at the end of the block.
+         *
+         * @param operation Code of the command.
+         * @param word Word or prefix of the command.
+         * @param expectedResult Expected result of the command.
+         */
+        void add(int operation, String word, byte expectedResult) {
+            operations[size] = operation;
+            words[size] = word;
+            expected[size] = expectedResult;
+            size++;
+        }
+    }
+
+    /**
+     * Keeps track of the blocks completed, in order to let a block start only
+     * when the blocks it depends on are completed and to bound the number of
+     * blocks in flight.
+     */
+    static final class Gate {
+
+        /**
+         * Completion flags of the blocks in flight, indexed by their sequence
+         * number modulo the length of the array.
+         */
+        private final boolean[] completed;
+        /**
+         * True if the blocks have to wait for the blocks they depend on.
+         */
+        private final boolean ordered;
+        /**
+         * Number of blocks completed from the first one without gaps.
+         */
+        private long watermark;
+
+        /**
+         * Gate constructor.
+         *
+         * @param window Maximum number of blocks after the first block not
+         * completed.
+         * @param ordered True if the blocks have to wait for the blocks they
+         * depend on.
+         */
+        Gate(int window, boolean ordered) {
+            this.completed = new boolean[window];
+            this.ordered = ordered;
+        }
+
+        /**
+         * Waits until a block can be dispatched without exceeding the window.
+         *
+         * @param sequence Sequence number of the block.
+         * @throws InterruptedException If the thread is interrupted while
+         * waiting.
+         */
+        synchronized void awaitWindow(long sequence) throws InterruptedException {
+            while (sequence - watermark >= completed.length) {
+                wait();
+            }
+        }
+
+        /**
+         * Waits until the blocks a block depends on are completed: every
+         * previous block for a block of writes, the last block of writes
+         * before it for a block of reads.
+         *
+         * @param block Block about to start.
+         * @throws InterruptedException If the thread is interrupted while
+         * waiting.
+         */
+        synchronized void awaitStart(Block block) throws InterruptedException {
+            if (!ordered) {
+                return;
+            }
+            long required = (block.write ? block.sequence : block.lastWrite + 1);
+            while (watermark < required) {
+                wait();
+            }
+        }
+
+        /**
+         * Marks a block as completed.
+         *
+         * @param block Completed block.
+         */
+        synchronized void complete(Block block) {
+            completed[(int) (block.sequence % completed.length)] = true;
+            int slot = (int) (watermark % completed.length);
+            if (completed[slot]) {
+                while (completed[slot]) {
+                    completed[slot] = false;
+                    watermark++;
+                    slot = (int) (watermark % completed.length);
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Worker thread running blocks of commands and recording their latencies.
+     */
+    static final class Worker implements Runnable {
+
+        /**
+         * Queue of blocks to run.
+         */
+        private final BlockingQueue<Block> queue;
+        /**
+         * Gate ordering the blocks.
+         */
+        private final Gate gate;
+        /**
+         * Structure receiving the commands.
+         */
+        private final Target target;
+        /**
+         * True if the results are checked against the expected outputs.
+         */
+        private final boolean check;
+        /**
+         * Latencies of the commands, one histogram per type of command.
+         */
+        final LatencyHistogram[] latencies = new LatencyHistogram[NAMES.length];
+        /**
+         * Number of results different from the expected ones.
+         */
+        long mismatches;
+        /**
+         * Description of the first mismatches.
+         */
+        final List<String> samples = new ArrayList<String>();
+
+        /**
+         * Worker constructor.
+         *
+         * @param queue Queue of blocks to run.
+         * @param gate Gate ordering the blocks.
+         * @param target Structure receiving the commands.
+         * @param check True if the results are checked against the expected
+         * outputs.
+         */
+        Worker(BlockingQueue<Block> queue, Gate gate, Target target, boolean check) {
+            this.queue = queue;
+            this.gate = gate;
+            this.target = target;
+            this.check = check;
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Block block = queue.take();
+                    if (block == Block.END) {
+                        return;
+                    }
+                    gate.awaitStart(block);
+                    for (int i = 0; i < block.size; i++) {
+                        int operation = block.operations[i];
+                        long start = System.nanoTime();
+                        boolean result = target.run(operation, block.words[i]);
+                        long end = System.nanoTime();
+                        latencies[operation].record(end - start);
+                        if (check && block.expected[i] >= 0 && result != (block.expected[i] == 1)) {
+                            mismatches++;
+                            if (samples.size() < MISMATCH_SAMPLES) {
+                                samples.add("command " + (block.first + i) + ": " + NAMES[operation] + "(\"" + block.words[i] + "\") returned " + result);
+                            }
+                        }
+                    }
+                    gate.complete(block);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Streaming reader of commands and expected outputs. It reads the input
+     * through its own buffer and never holds more than one token.
+     */
+    static final class CommandReader {
+
+        /**
+         * Reader of the input.
+         */
+        private final Reader reader;
+        /**
+         * Buffer of the input.
+         */
+        private final char[] buffer = new char[1 << 16];
+        /**
+         * Position of the next character in the buffer.
+         */
+        private int position;
+        /**
+         * Number of characters in the buffer.
+         */
+        private int limit;
+        /**
+         * Builder of the current token.
+         */
+        private final StringBuilder token = new StringBuilder();
+        /**
+         * Code of the last command read, -1 if it was not understood.
+         */
+        int operation;
+        /**
+         * Word or prefix of the last command read.
+         */
+        String word;
+
+        /**
+         * CommandReader constructor.
+         *
+         * @param reader Reader of the input.
+         */
+        CommandReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Reads the next command.
+         *
+         * @return False if the input is over, true otherwise.
+         * @throws IOException In case there is a problem reading the input.
+         */
+        boolean next() throws IOException {
+            int letter = skipSeparators();
+            if (letter < 0) {
+                return false;
+            }
+            token.setLength(0);
+            while (letter >= 0 && letter != '(' && !isSeparator(letter)) {
+                token.append((char) letter);
+                letter = read();
+            }
+            operation = operationOf(token);
+            word = null;
+            if (letter != '(' || peek() != '"') {
+                return misunderstood(letter);
+            }
+            read();
+            token.setLength(0);
+            while (true) {
+                letter = read();
+                if (letter < 0) {
+                    return misunderstood(letter);
+                } else if (letter == '"' && peek() == ')') {
+                    read();
+                    break;
+                }
+                token.append((char) letter);
+            }
+            word = token.toString();
+            letter = peek();
+            return (letter < 0 || isSeparator(letter) ? true : misunderstood(read()));
+        }
+
+        /**
+         * Reads the next expected output.
+         *
+         * @return 1 if it is true, 0 if it is anything else, -1 if the input
+         * is over.
+         * @throws IOException In case there is a problem reading the input.
+         */
+        byte nextBoolean() throws IOException {
+            int letter = skipSeparators();
+            if (letter < 0) {
+                return -1;
+            }
+            token.setLength(0);
+            while (letter >= 0 && !isSeparator(letter)) {
+                token.append((char) letter);
+                letter = read();
+            }
+            return (byte) (token.length() == 4 && token.toString().equals("true") ? 1 : 0);
+        }
+
+        /**
+         * Counts the expected outputs left in the input.
+         *
+         * @return The number of expected outputs left.
+         * @throws IOException In case there is a problem reading the input.
+         */
+        long countRemaining() throws IOException {
+            long count = 0;
+            while (nextBoolean() >= 0) {
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * Marks the current command as not understood and skips the rest of
+         * it.
+         *
+         * @param letter Last character read.
+         * @return True, since a command was read even if not understood.
+         * @throws IOException In case there is a problem reading the input.
+         */
+        private boolean misunderstood(int letter) throws IOException {
+            operation = -1;
+            while (letter >= 0 && !isSeparator(letter)) {
+                letter = read();
+            }
+            return true;
+        }
+
+        /**
+         * Skips the separators before the next token.
+         *
+         * @return The first character of the token, -1 if the input is over.
+         * @throws IOException In case there is a problem reading the input.
+         */
+        private int skipSeparators() throws IOException {
+            int letter = read();
+            while (letter >= 0 && isSeparator(letter)) {
+                letter = read();
+            }
+            return letter;
+        }
+
+        /**
+         * Reads the next character.
+         *
+         * @return The next character, -1 if the input is over.
+         * @throws IOException In case there is a problem reading the input.
+         */
+        private int read() throws IOException {
+            int letter = peek();
+            position++;
+            return letter;
+        }
+
+        /**
+         * Returns the next character without consuming it.
+         *
+         * @return The next character, -1 if the input is over.
+         * @throws IOException In case there is a problem reading the input.
+         */
+        private int peek() throws IOException {
+            if (position >= limit) {
+                position = 0;
+                limit = Math.max(reader.read(buffer), 0);
+                if (limit == 0) {
+                    return -1;
+                }
+            }
+            return buffer[position];
+        }
+
+        /**
+         * Returns true if a character separates tokens.
+         *
+         * @param letter Character.
+         * @return True for commas, line breaks, spaces and tabs.
+         */
+        private static boolean isSeparator(int letter) {
+            return letter == ',' || letter == '\n' || letter == '\r' || letter == ' ' || letter == '\t';
+        }
+
+        /**
+         * Returns the code of a command name.
+         *
+         * @param name Command name.
+         * @return The code of the command, -1 if the name is not a command.
+         */
+        private static int operationOf(CharSequence name) {
+            for (int i = 0; i < NAMES.length; i++) {
+                if (NAMES[i].contentEquals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Results of a replay.
+     */
+    public static final class Report {
+
+        /**
+         * Latencies of the commands, one histogram per type of command.
+         */
+        final LatencyHistogram[] latencies = new LatencyHistogram[NAMES.length];
+        /**
+         * Number of commands read, understood or not.
+         */
+        long commands;
+        /**
+         * Number of commands not understood.
+         */
+        long misunderstood;
+        /**
+         * True if the results were checked against expected outputs.
+         */
+        boolean checked;
+        /**
+         * Number of results different from the expected ones.
+         */
+        long mismatches;
+        /**
+         * Number of reads without expected output.
+         */
+        long missingExpected;
+        /**
+         * Number of expected outputs left after the last read.
+         */
+        long extraExpected;
+        /**
+         * Wall clock time of the replay in nanoseconds.
+         */
+        long elapsed;
+        /**
+         * Description of the first mismatches.
+         */
+        final List<String> samples = new ArrayList<String>();
+
+        /**
+         * Report constructor.
+         */
+        Report() {
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+
+        /**
+         * Prints the report on the standard output.
+         */
+        public void print() {
+            double seconds = Math.max(elapsed, 1) / 1e9;
+            System.out.println("  Number of commands:........................." + commands);
+            System.out.println("  Number of misunderstood commands:..........." + misunderstood);
+            System.out.println("  Elapsed time (s):..........................." + String.format("%.3f", seconds));
+            System.out.println("  Throughput (commands/s):...................." + (long) ((commands - misunderstood) / seconds));
+            for (int i = 0; i < NAMES.length; i++) {
+                LatencyHistogram latency = latencies[i];
+                if (latency.count() == 0) {
+                    continue;
+                }
+                System.out.println(label(NAMES[i] + " commands (ops/s):") + latency.count() + " (" + (long) (latency.count() / seconds) + ")");
+                System.out.println(label(NAMES[i] + " p50/p99/p99.9/max (us):") + micros(latency.percentile(50)) + " / "
+                        + micros(latency.percentile(99)) + " / " + micros(latency.percentile(99.9)) + " / " + micros(latency.max()));
+            }
+            if (checked) {
+                System.out.println("  Number of mismatches:......................." + mismatches);
+                System.out.println("  Reads without expected output:.............." + missingExpected);
+                System.out.println("  Expected outputs left over:................." + extraExpected);
+                for (String sample : samples) {
+                    System.out.println("    Mismatch at " + sample);
+                }
+            } else {
+                System.out.println("  Results checked:............................false");
+            }
+        }
+
+        /**
+         * Pads a label with dots up to the column of the values.
+         *
+         * @param label Label.
+         * @return The padded label.
+         */
+        private static String label(String label) {
+            StringBuilder padded = new StringBuilder("  ").append(label);
+            while (padded.length() < 46) {
+                padded.append('.');
+            }
+            return padded.toString();
+        }
+
+        /**
+         * Formats a number of nanoseconds as microseconds.
+         *
+         * @param nanos Number of nanoseconds.
+         * @return The number of microseconds with two decimals.
+         */
+        private static String micros(long nanos) {
+            return String.format("%.2f", nanos / 1000.0);
+        }
+    }
+}
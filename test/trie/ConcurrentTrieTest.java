@@ -0,0 +1,197 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multi-threaded stress test of the concurrent trie. Writer threads insert and
+ * remove words concurrently while reader threads search and check prefixes.
+ * Every writer owns a disjoint subset of the words, so the expected result of
+ * a search of one of its own words right after writing it is known (a
+ * linearizable trie must return the last written value). Besides, a set of
+ * stable words inserted before the test and a set of absent words never
+ * inserted are checked continuously by the readers, and the final content of
+ * the trie is compared against a reference set.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class ConcurrentTrieTest {
+
+    /**
+     * Concurrent trie stress test program.
+     *
+     * @param args The first argument, if present, is the number of writer
+     * threads (4 by default), the second one the number of reader threads (4
+     * by default) and the third one the number of operations per writer
+     * (200000 by default).
+     * @throws InterruptedException If the main thread is interrupted while
+     * waiting for the test threads.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int writers = (args.length >= 1 ? Integer.parseInt(args[0]) : 4);
+        int readers = (args.length >= 2 ? Integer.parseInt(args[1]) : 4);
+        int operations = (args.length >= 3 ? Integer.parseInt(args[2]) : 200000);
+        if (!stressTest(writers, readers, operations, 1)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs the stress test.
+     *
+     * @param writers Number of writer threads.
+     * @param readers Number of reader threads.
+     * @param operations Number of operations of every writer.
+     * @param seed Seed of the random generator.
+     * @return True if no violation was detected.
+     * @throws InterruptedException If the main thread is interrupted while
+     * waiting for the test threads.
+     */
+    public static boolean stressTest(final int writers, int readers, final int operations, long seed) throws InterruptedException {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Concurrent trie stress test:");
+        System.out.println("-------------------------------------------------------");
+        Random random = new Random(seed);
+        final List<String> stable = new ArrayList<String>();
+        final List<String> absent = new ArrayList<String>();
+        final List<List<String>> owned = new ArrayList<List<String>>();
+        for (int i = 0; i < writers; i++) {
+            owned.add(new ArrayList<String>());
+        }
+        Set<String> universe = new HashSet<String>();
+        while (universe.size() < 5000) {
+            String word = TestWords.uniformWord(random, random.nextInt(10), 4);
+            if (universe.add(word)) {
+                int kind = random.nextInt(10);
+                if (kind == 0) {
+                    stable.add(word);
+                } else if (kind == 1) {
+                    absent.add(word);
+                } else {
+                    owned.get(random.nextInt(writers)).add(word);
+                }
+            }
+        }
+        final ConcurrentTrie trie = new ConcurrentTrie();
+        for (String word : stable) {
+            trie.insert(word);
+        }
+        final List<Set<String>> expected = new ArrayList<Set<String>>();
+        final AtomicLong violations = new AtomicLong();
+        final AtomicLong reads = new AtomicLong();
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch writersDone = new CountDownLatch(writers);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int w = 0; w < writers; w++) {
+            final List<String> words = owned.get(w);
+            final Set<String> present = new HashSet<String>();
+            final long writerSeed = random.nextLong();
+            expected.add(present);
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Random writerRandom = new Random(writerSeed);
+                    awaitQuietly(start);
+                    for (int op = 0; op < operations; op++) {
+                        String word = words.get(writerRandom.nextInt(words.size()));
+                        if (writerRandom.nextBoolean()) {
+                            trie.insert(word);
+                            present.add(word);
+                        } else {
+                            trie.remove(word);
+                            present.remove(word);
+                        }
+                        if (trie.search(word) != present.contains(word)) {
+                            violations.incrementAndGet();
+                        }
+                        String other = words.get(writerRandom.nextInt(words.size()));
+                        if (trie.search(other) != present.contains(other)) {
+                            violations.incrementAndGet();
+                        }
+                    }
+                    writersDone.countDown();
+                }
+            }));
+        }
+        for (int r = 0; r < readers; r++) {
+            final long readerSeed = random.nextLong();
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Random readerRandom = new Random(readerSeed);
+                    awaitQuietly(start);
+                    long performed = 0;
+                    while (writing.get()) {
+                        String word = stable.get(readerRandom.nextInt(stable.size()));
+                        String prefix = word.substring(0, readerRandom.nextInt(word.length() + 1));
+                        String missing = absent.get(readerRandom.nextInt(absent.size()));
+                        if (!trie.search(word) || !trie.startsWith(prefix) || trie.search(missing)) {
+                            violations.incrementAndGet();
+                        }
+                        performed += 3;
+                    }
+                    reads.addAndGet(performed);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        long startTime = System.nanoTime();
+        start.countDown();
+        writersDone.await();
+        long elapsed = System.nanoTime() - startTime;
+        writing.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        TreeSet<String> reference = new TreeSet<String>(stable);
+        for (Set<String> present : expected) {
+            reference.addAll(present);
+        }
+        long finalMismatches = 0;
+        for (String word : universe) {
+            if (trie.search(word) != reference.contains(word)) {
+                finalMismatches++;
+            }
+            for (int end = 0; end <= word.length(); end++) {
+                String prefix = word.substring(0, end);
+                String ceiling = reference.ceiling(prefix);
+                if (trie.startsWith(prefix) != (ceiling != null && ceiling.startsWith(prefix))) {
+                    finalMismatches++;
+                }
+            }
+        }
+        boolean passed = violations.get() == 0 && finalMismatches == 0;
+        System.out.println("  Writer threads:............................." + writers);
+        System.out.println("  Reader threads:............................." + readers);
+        System.out.println("  Writes:....................................." + (long) writers * operations);
+        System.out.println("  Concurrent reads:..........................." + reads.get());
+        System.out.println("  Elapsed time (ms):.........................." + elapsed / 1000000);
+        System.out.println("  Violations during the run:.................." + violations.get());
+        System.out.println("  Mismatches in the final state:.............." + finalMismatches);
+        System.out.println("  Test passed:................................" + passed);
+        return passed;
+    }
+
+    /**
+     * Waits for the given latch ignoring interruptions.
+     *
+     * @param latch Latch to wait for.
+     */
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Test program to verify that the word counts of a counting trie stay right
+ * through random insertions and removals, and that the prefix counts, ranks,
+ * selections and ranges built on them match a sorted set.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class CountingTrieTest {
+
+    /**
+     * Counting trie test program.
+     *
+     * @param args The first argument, if present, is the number of operations
+     * (200000 by default) and the second one the seed of the random generator
+     * (1 by default).
+     */
+    public static void main(String[] args) {
+        int operations = (args.length >= 1 ? Integer.parseInt(args[0]) : 200000);
+        long seed = (args.length >= 2 ? Long.parseLong(args[1]) : 1);
+        if (!countingTest(operations, seed)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Applies random insertions and removals to a counting trie and to a
+     * reference set, checking every now and then the size, and checks at the
+     * end the prefix counts, ranks, selections and ranges of the trie against
+     * the set.
+     *
+     * @param operations Number of insertions and removals.
+     * @param seed Seed of the random generator.
+     * @return True if the trie matched the reference set.
+     */
+    public static boolean countingTest(int operations, long seed) {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Counting trie test:");
+        System.out.println("-------------------------------------------------------");
+        Random random = new Random(seed);
+        CountingTrie trie = new CountingTrie();
+        TreeSet<String> expected = new TreeSet<String>();
+        List<String> inserted = new ArrayList<String>();
+        int mismatches = 0;
+        for (int i = 0; i < operations; i++) {
+            if (inserted.isEmpty() || random.nextInt(3) > 0) {
+                String word = TestWords.randomWord(random);
+                trie.insert(word);
+                expected.add(word);
+                inserted.add(word);
+            } else {
+                String word = inserted.get(random.nextInt(inserted.size()));
+                trie.remove(word);
+                expected.remove(word);
+            }
+            if (i % 1000 == 0) {
+                mismatches += (trie.size() == expected.size() ? 0 : 1);
+            }
+        }
+        List<String> sorted = new ArrayList<String>(expected);
+        for (int i = 0; i < sorted.size(); i++) {
+            mismatches += (trie.select(i).equals(sorted.get(i)) ? 0 : 1);
+        }
+        int ranges = 0;
+        for (int i = 0; i < inserted.size(); i += 10) {
+            String word = inserted.get(i);
+            String prefix = word.substring(0, word.length() / 2);
+            mismatches += (trie.rank(word) == rank(sorted, word) ? 0 : 1);
+            mismatches += (trie.rank(prefix + "~") == rank(sorted, prefix + "~") ? 0 : 1);
+            mismatches += (trie.countWithPrefix(prefix) == rank(sorted, prefix + Character.MAX_VALUE) - rank(sorted, prefix) ? 0 : 1);
+            if (i % 1000 == 0) {
+                String from = TestWords.randomWord(random);
+                String to = from + TestWords.randomWord(random);
+                mismatches += compare(trie.range(from, to), expected.subSet(from, to).iterator());
+                mismatches += compare(trie.range(null, prefix), expected.headSet(prefix).iterator());
+                mismatches += compare(trie.range(word, null), expected.tailSet(word).iterator());
+                ranges += 3;
+            }
+        }
+        Trie plain = new Trie();
+        for (String word : expected) {
+            plain.insert(word);
+        }
+        mismatches += compare(plain.range(null, null), expected.iterator());
+        mismatches += (trie.countWithPrefix("") == expected.size() && trie.rank(null) == 0 && trie.countWithPrefix(null) == 0 ? 0 : 1);
+        for (String word : inserted) {
+            trie.remove(word);
+        }
+        mismatches += (trie.size() == 0 && trie.countWithPrefix("") == 0 && !trie.range(null, null).hasNext() ? 0 : 1);
+        System.out.println("  Number of operations:......................." + operations);
+        System.out.println("  Number of words:............................" + expected.size());
+        System.out.println("  Number of ranges checked:..................." + ranges);
+        System.out.println("  Number of mismatches:......................." + mismatches);
+        System.out.println("  Test passed:................................" + (mismatches == 0));
+        return mismatches == 0;
+    }
+
+    /**
+     * Returns the number of words of a sorted list lower than a word.
+     *
+     * @param sorted Sorted list of words.
+     * @param word Word.
+     * @return The number of words of the list lower than the word.
+     */
+    private static int rank(List<String> sorted, String word) {
+        int position = Collections.binarySearch(sorted, word);
+        return (position >= 0 ? position : -position - 1);
+    }
+
+    /**
+     * Compares the words of a range with the expected ones.
+     *
+     * @param range Iterator over the range.
+     * @param expected Iterator over the expected words.
+     * @return 0 if both iterators return the same words, 1 otherwise.
+     */
+    private static int compare(Iterator<String> range, Iterator<String> expected) {
+        while (range.hasNext() && expected.hasNext()) {
+            if (!range.next().equals(expected.next())) {
+                return 1;
+            }
+        }
+        return (range.hasNext() || expected.hasNext() ? 1 : 0);
+    }
+}
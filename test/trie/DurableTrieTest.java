@@ -0,0 +1,323 @@
+package trie;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Test program to verify that a durable trie recovers exactly the words
+ * acknowledged before it was closed or before the process crashed, that the
+ * recovery only replays the log written after the last snapshot, and that
+ * concurrent writers share the fsyncs of the log.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class DurableTrieTest {
+
+    /**
+     * Durable trie test program.
+     *
+     * @param args The first argument, if present, is the number of operations
+     * of every test (100000 by default) and the second one the seed of the
+     * random generator (1 by default).
+     * @throws Exception In case there is a problem with the files of the test
+     * or a writer thread is interrupted.
+     */
+    public static void main(String[] args) throws Exception {
+        int operations = (args.length >= 1 ? Integer.parseInt(args[0]) : 100000);
+        long seed = (args.length >= 2 ? Long.parseLong(args[1]) : 1);
+        boolean passed = recoveryTest(operations, seed);
+        passed &= crashTest(operations / 10, seed);
+        passed &= groupCommitTest(operations / 10, seed);
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Inserts and removes random words with automatic snapshots, reopens the
+     * trie and checks that it holds the same words as a reference set and
+     * that only the records written after the last snapshot were replayed.
+     *
+     * @param operations Number of insertions and removals.
+     * @param seed Seed of the random generator.
+     * @return True if the recovered trie matched the reference set.
+     * @throws IOException In case there is a problem with the files of the
+     * test.
+     */
+    public static boolean recoveryTest(int operations, long seed) throws IOException {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Durable trie recovery test:");
+        System.out.println("-------------------------------------------------------");
+        Random random = new Random(seed);
+        Path directory = Files.createTempDirectory("trie");
+        try {
+            long threshold = operations / 8;
+            DurableTrie.Options options = new DurableTrie.Options().waitForSync(false).snapshotThreshold(threshold);
+            TreeSet<String> expected = new TreeSet<String>();
+            List<String> inserted = new ArrayList<String>();
+            DurableTrie trie = DurableTrie.open(directory, options);
+            for (int i = 0; i < operations; i++) {
+                if (inserted.isEmpty() || random.nextInt(4) > 0) {
+                    String word = TestWords.randomWord(random);
+                    trie.insert(word);
+                    expected.add(word);
+                    inserted.add(word);
+                } else {
+                    String word = inserted.get(random.nextInt(inserted.size()));
+                    trie.remove(word);
+                    expected.remove(word);
+                }
+            }
+            trie.close();
+            long started = System.nanoTime();
+            trie = DurableTrie.open(directory, options);
+            long recoveryTime = System.nanoTime() - started;
+            int mismatches = compare(trie, expected, inserted, random);
+            long replayed = trie.replayedRecords();
+            int files = countFiles(directory);
+            trie.snapshot();
+            trie.close();
+            trie = DurableTrie.open(directory, options);
+            mismatches += compare(trie, expected, inserted, random);
+            long replayedAfterSnapshot = trie.replayedRecords();
+            trie.close();
+            boolean passed = (mismatches == 0 && replayed <= 2 * threshold && replayedAfterSnapshot == 0);
+            System.out.println("  Number of operations:......................." + operations);
+            System.out.println("  Number of words:............................" + expected.size());
+            System.out.println("  Snapshot threshold (records):..............." + threshold);
+            System.out.println("  Records replayed on recovery:..............." + replayed);
+            System.out.println("  Recovery time (ms):........................." + recoveryTime / 1000000);
+            System.out.println("  Files in the directory:....................." + files);
+            System.out.println("  Records replayed after a snapshot:.........." + replayedAfterSnapshot);
+            System.out.println("  Number of mismatches:......................." + mismatches);
+            System.out.println("  Test passed:................................" + passed);
+            return passed;
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Copies the files of an open trie, as a crash would leave them, appends
+     * a torn record to the last segment of the copy and checks that the copy
+     * recovers every acknowledged word, discards the torn record and keeps
+     * working after the recovery.
+     *
+     * @param operations Number of insertions and removals.
+     * @param seed Seed of the random generator.
+     * @return True if the copy recovered the acknowledged words.
+     * @throws IOException In case there is a problem with the files of the
+     * test.
+     */
+    public static boolean crashTest(int operations, long seed) throws IOException {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Durable trie crash test:");
+        System.out.println("-------------------------------------------------------");
+        Random random = new Random(seed);
+        Path directory = Files.createTempDirectory("trie");
+        Path crashed = Files.createTempDirectory("trie");
+        try {
+            DurableTrie.Options options = new DurableTrie.Options().snapshotThreshold(operations / 3);
+            TreeSet<String> expected = new TreeSet<String>();
+            List<String> inserted = new ArrayList<String>();
+            DurableTrie trie = DurableTrie.open(directory, options);
+            for (int i = 0; i < operations; i++) {
+                String word = TestWords.randomWord(random);
+                trie.insert(word);
+                expected.add(word);
+                inserted.add(word);
+                if (random.nextInt(5) == 0) {
+                    word = inserted.get(random.nextInt(inserted.size()));
+                    trie.remove(word);
+                    expected.remove(word);
+                }
+            }
+            trie.snapshot();
+            int tail = 0;
+            for (int i = 0; i < operations / 10; i++) {
+                String word = TestWords.randomWord(random);
+                trie.insert(word);
+                tail += (expected.add(word) ? 1 : 0);
+                inserted.add(word);
+            }
+            Path lastSegment = null;
+            DirectoryStream<Path> files = Files.newDirectoryStream(directory);
+            try {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    if (!name.equals(DurableTrie.LOCK_FILE)) {
+                        Files.copy(file, crashed.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    if (name.endsWith(DurableTrie.LOG_SUFFIX) && (lastSegment == null || name.compareTo(lastSegment.getFileName().toString()) > 0)) {
+                        lastSegment = crashed.resolve(name);
+                    }
+                }
+            } finally {
+                files.close();
+            }
+            trie.close();
+            long segmentSize = Files.size(lastSegment);
+            byte[] torn = new byte[]{DurableTrie.INSERT, 0, 0, 0, 3, 0, 'x', 0};
+            Files.write(lastSegment, torn, StandardOpenOption.APPEND);
+            DurableTrie recovered = DurableTrie.open(crashed, options);
+            int mismatches = compare(recovered, expected, inserted, random);
+            boolean truncated = (Files.size(lastSegment) == segmentSize);
+            recovered.insert("after crash");
+            recovered.close();
+            recovered = DurableTrie.open(crashed, options);
+            boolean reusable = recovered.search("after crash") && recovered.replayedRecords() == tail + 1;
+            mismatches += compare(recovered, expected, inserted, random);
+            recovered.close();
+            boolean passed = (mismatches == 0 && truncated && reusable);
+            System.out.println("  Number of words:............................" + expected.size());
+            System.out.println("  Torn record discarded:......................" + truncated);
+            System.out.println("  Log usable after recovery:.................." + reusable);
+            System.out.println("  Number of mismatches:......................." + mismatches);
+            System.out.println("  Test passed:................................" + passed);
+            return passed;
+        } finally {
+            deleteDirectory(directory);
+            deleteDirectory(crashed);
+        }
+    }
+
+    /**
+     * Inserts words from several threads that wait for their records to be
+     * synced and checks that the threads share the fsyncs of the log and
+     * that every word survives reopening the trie.
+     *
+     * @param operations Number of insertions of every writer thread.
+     * @param seed Seed of the random generator.
+     * @return True if there were less fsyncs than records and every word was
+     * recovered.
+     * @throws Exception In case there is a problem with the files of the test
+     * or a writer thread is interrupted.
+     */
+    public static boolean groupCommitTest(final int operations, long seed) throws Exception {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Durable trie group commit test:");
+        System.out.println("-------------------------------------------------------");
+        Path directory = Files.createTempDirectory("trie");
+        try {
+            int writers = 4;
+            DurableTrie.Options options = new DurableTrie.Options().syncDelay(2).syncBatch(writers).snapshotThreshold(0);
+            final DurableTrie trie = DurableTrie.open(directory, options);
+            final AtomicReference<Exception> error = new AtomicReference<Exception>();
+            Thread[] threads = new Thread[writers];
+            long started = System.nanoTime();
+            for (int i = 0; i < writers; i++) {
+                final int writer = i;
+                threads[i] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int j = 0; j < operations; j++) {
+                                trie.insert(writer + ":" + j);
+                            }
+                        } catch (Exception e) {
+                            error.set(e);
+                        }
+                    }
+                });
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long elapsed = System.nanoTime() - started;
+            long records = (long) writers * operations;
+            long syncs = trie.syncs();
+            trie.close();
+            DurableTrie recovered = DurableTrie.open(directory, options);
+            int missing = 0;
+            for (int i = 0; i < writers; i++) {
+                for (int j = 0; j < operations; j++) {
+                    missing += (recovered.search(i + ":" + j) ? 0 : 1);
+                }
+            }
+            recovered.close();
+            boolean passed = (error.get() == null && missing == 0 && syncs < records);
+            System.out.println("  Number of writers:.........................." + writers);
+            System.out.println("  Number of records:.........................." + records);
+            System.out.println("  Number of fsyncs:..........................." + syncs);
+            System.out.println("  Records per second:........................." + records * 1000000000L / Math.max(elapsed, 1));
+            System.out.println("  Missing words:.............................." + missing);
+            System.out.println("  Test passed:................................" + passed);
+            return passed;
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Compares a durable trie with a reference set through the inserted
+     * words, their prefixes and a set of random words.
+     *
+     * @param trie Trie to check.
+     * @param expected Words expected in the trie.
+     * @param inserted Every word inserted, removed or not.
+     * @param random Random generator.
+     * @return Number of mismatches.
+     */
+    private static int compare(DurableTrie trie, TreeSet<String> expected, List<String> inserted, Random random) {
+        int mismatches = 0;
+        for (String word : inserted) {
+            mismatches += (trie.search(word) == expected.contains(word) ? 0 : 1);
+            String prefix = word.substring(0, word.length() / 2);
+            String ceiling = expected.ceiling(prefix);
+            mismatches += (trie.startsWith(prefix) == (ceiling != null && ceiling.startsWith(prefix)) ? 0 : 1);
+        }
+        for (int i = 0; i < 1000; i++) {
+            String word = TestWords.randomWord(random);
+            mismatches += (trie.search(word) == expected.contains(word) ? 0 : 1);
+        }
+        return mismatches;
+    }
+
+    /**
+     * Counts the files in a directory.
+     *
+     * @param directory Directory.
+     * @return Number of files in the directory.
+     * @throws IOException In case there is a problem listing the directory.
+     */
+    private static int countFiles(Path directory) throws IOException {
+        int count = 0;
+        DirectoryStream<Path> files = Files.newDirectoryStream(directory);
+        try {
+            for (Path file : files) {
+                count++;
+            }
+        } finally {
+            files.close();
+        }
+        return count;
+    }
+
+    /**
+     * Deletes a directory and the files in it.
+     *
+     * @param directory Directory to delete.
+     * @throws IOException In case there is a problem deleting the files.
+     */
+    private static void deleteDirectory(Path directory) throws IOException {
+        DirectoryStream<Path> files = Files.newDirectoryStream(directory);
+        try {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        } finally {
+            files.close();
+        }
+        Files.delete(directory);
+    }
+}
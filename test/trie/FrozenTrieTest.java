@@ -0,0 +1,89 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test program to verify that a frozen trie answers exactly like the mutable
+ * trie it was built from.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class FrozenTrieTest {
+
+    /**
+     * Frozen trie equivalence test program.
+     *
+     * @param args The first argument, if present, is the number of words to
+     * insert in the trie (100000 by default) and the second one the seed of the
+     * random generator (1 by default).
+     */
+    public static void main(String[] args) {
+        int words = (args.length >= 1 ? Integer.parseInt(args[0]) : 100000);
+        long seed = (args.length >= 2 ? Long.parseLong(args[1]) : 1);
+        boolean passed = equivalenceTest(words, seed);
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Fills a trie with random words, removes some of them, freezes the trie
+     * and checks that the frozen trie gives the same result as the mutable trie
+     * for every stored word, every prefix of them and a set of random words.
+     *
+     * @param words Number of words to insert in the trie.
+     * @param seed Seed of the random generator.
+     * @return True if both tries gave the same result for all the checks.
+     */
+    public static boolean equivalenceTest(int words, long seed) {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Frozen trie equivalence test:");
+        System.out.println("-------------------------------------------------------");
+        Random random = new Random(seed);
+        Trie trie = new Trie();
+        List<String> inserted = new ArrayList<String>();
+        trie.insert("");
+        for (int i = 0; i < words; i++) {
+            String word = TestWords.randomWord(random);
+            trie.insert(word);
+            inserted.add(word);
+        }
+        for (int i = 0; i < words / 4; i++) {
+            trie.remove(inserted.get(random.nextInt(inserted.size())));
+        }
+        FrozenTrie frozen = trie.freeze();
+        int checks = 0;
+        int mismatches = 0;
+        for (String word : inserted) {
+            for (int end = 0; end <= word.length(); end++) {
+                String prefix = word.substring(0, end);
+                mismatches += (trie.search(prefix) == frozen.search(prefix) ? 0 : 1);
+                mismatches += (trie.startsWith(prefix) == frozen.startsWith(prefix) ? 0 : 1);
+                checks += 2;
+            }
+            String longer = word + (char) ('a' + random.nextInt(4));
+            mismatches += (trie.search(longer) == frozen.search(longer) ? 0 : 1);
+            mismatches += (trie.startsWith(longer) == frozen.startsWith(longer) ? 0 : 1);
+            checks += 2;
+        }
+        for (int i = 0; i < words; i++) {
+            String word = TestWords.randomWord(random);
+            mismatches += (trie.search(word) == frozen.search(word) ? 0 : 1);
+            mismatches += (trie.startsWith(word) == frozen.startsWith(word) ? 0 : 1);
+            String padded = "##" + word + "##";
+            mismatches += (trie.search(padded, 2, padded.length() - 2) == frozen.search(padded, 2, padded.length() - 2) ? 0 : 1);
+            mismatches += (trie.startsWith(padded, 2, padded.length() - 2) == frozen.startsWith(padded, 2, padded.length() - 2) ? 0 : 1);
+            checks += 4;
+        }
+        trie.insert("not frozen");
+        mismatches += (frozen.search("not frozen") ? 1 : 0);
+        checks++;
+        System.out.println("  Number of nodes of the frozen trie:........." + frozen.nodeCount());
+        System.out.println("  Number of checks:..........................." + checks);
+        System.out.println("  Number of mismatches:......................." + mismatches);
+        System.out.println("  Test passed:................................" + (mismatches == 0));
+        return mismatches == 0;
+    }
+}
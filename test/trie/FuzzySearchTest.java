@@ -0,0 +1,155 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Test program to verify that the fuzzy search of a trie finds exactly the
+ * stored words within the requested edit distance.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class FuzzySearchTest {
+
+    /**
+     * Fuzzy search test program.
+     *
+     * @param args The first argument, if present, is the number of words to
+     * insert in the trie (20000 by default) and the second one the seed of the
+     * random generator (1 by default).
+     */
+    public static void main(String[] args) {
+        int words = (args.length >= 1 ? Integer.parseInt(args[0]) : 20000);
+        long seed = (args.length >= 2 ? Long.parseLong(args[1]) : 1);
+        boolean passed = fuzzySearchTest(words, seed);
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Fills a trie with random words, removes some of them and checks the
+     * fuzzy search of stored words, misspelled stored words and random words at
+     * distances 0 to 3 against the distance to every stored word.
+     *
+     * @param words Number of words to insert in the trie.
+     * @param seed Seed of the random generator.
+     * @return True if every search found exactly the expected words.
+     */
+    public static boolean fuzzySearchTest(int words, long seed) {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Fuzzy search test:");
+        System.out.println("-------------------------------------------------------");
+        Random random = new Random(seed);
+        Trie trie = new Trie();
+        TreeSet<String> stored = new TreeSet<String>();
+        List<String> inserted = new ArrayList<String>();
+        trie.insert("");
+        stored.add("");
+        for (int i = 0; i < words; i++) {
+            String word = TestWords.uniformWord(random, random.nextInt(10), 6);
+            trie.insert(word);
+            stored.add(word);
+            inserted.add(word);
+        }
+        for (int i = 0; i < words / 4; i++) {
+            String word = inserted.get(random.nextInt(inserted.size()));
+            trie.remove(word);
+            stored.remove(word);
+        }
+        int searches = 0;
+        int found = 0;
+        int mismatches = 0;
+        for (int i = 0; i < 200; i++) {
+            String word;
+            switch (i % 3) {
+                case 0:
+                    word = inserted.get(random.nextInt(inserted.size()));
+                    break;
+                case 1:
+                    word = misspell(inserted.get(random.nextInt(inserted.size())), random);
+                    break;
+                default:
+                    word = TestWords.uniformWord(random, random.nextInt(10), 6);
+                    break;
+            }
+            for (int distance = 0; distance <= 3; distance++) {
+                List<String> expected = new ArrayList<String>();
+                for (String candidate : stored) {
+                    if (levenshtein(word, candidate) <= distance) {
+                        expected.add(candidate);
+                    }
+                }
+                List<String> result = trie.fuzzySearch(word, distance);
+                mismatches += (expected.equals(result) ? 0 : 1);
+                found += result.size();
+                searches++;
+            }
+        }
+        try {
+            trie.fuzzySearch("a", -1);
+            mismatches++;
+        } catch (IllegalArgumentException e) {
+        }
+        mismatches += (new Trie().fuzzySearch("abc", 2).isEmpty() ? 0 : 1);
+        System.out.println("  Number of searches:........................." + searches);
+        System.out.println("  Number of words found:......................" + found);
+        System.out.println("  Number of mismatches:......................." + mismatches);
+        System.out.println("  Test passed:................................" + (mismatches == 0));
+        return mismatches == 0;
+    }
+
+    /**
+     * Computes the Levenshtein distance between two words with the classic
+     * dynamic programming table.
+     *
+     * @param a First word.
+     * @param b Second word.
+     * @return The edit distance between the words.
+     */
+    private static int levenshtein(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * Applies one or two random insertions, removals or substitutions to a
+     * word.
+     *
+     * @param word Word to misspell.
+     * @param random Random generator.
+     * @return The misspelled word.
+     */
+    private static String misspell(String word, Random random) {
+        StringBuilder misspelled = new StringBuilder(word);
+        int edits = 1 + random.nextInt(2);
+        for (int i = 0; i < edits; i++) {
+            int position = random.nextInt(misspelled.length() + 1);
+            char letter = (char) ('a' + random.nextInt(6));
+            if (position == misspelled.length() || random.nextBoolean()) {
+                misspelled.insert(position, letter);
+            } else if (random.nextBoolean()) {
+                misspelled.deleteCharAt(position);
+            } else {
+                misspelled.setCharAt(position, letter);
+            }
+        }
+        return misspelled.toString();
+    }
+}
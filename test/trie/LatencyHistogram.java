@@ -0,0 +1,161 @@
+package trie;
+
+/**
+ * Histogram of latencies in nanoseconds with a bounded relative error, in the
+ * style of HdrHistogram. Values below 128 have a bucket each, and every power
+ * of two above is split in 128 buckets of the same width, so a recorded value
+ * is known with an error below 1% whatever its magnitude, and the whole range
+ * of positive longs takes a fixed array of 7296 counters. Recording is a few
+ * shifts and an increment, and it is not thread safe: every thread records
+ * into its own histogram and they are added together at the end.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class LatencyHistogram {
+
+    /**
+     * Number of bits of the values kept exactly in every power of two.
+     */
+    static final int SUB_BUCKET_BITS = 7;
+    /**
+     * Number of buckets in every power of two.
+     */
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * Number of buckets of the histogram.
+     */
+    static final int BUCKETS = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    /**
+     * Number of values recorded in every bucket.
+     */
+    private final long[] counts = new long[BUCKETS];
+    /**
+     * Number of values recorded.
+     */
+    private long count;
+    /**
+     * Sum of the values recorded.
+     */
+    private long sum;
+    /**
+     * Greatest value recorded.
+     */
+    private long max;
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     *
+     * @param value Value to record.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts[bucket(value)]++;
+        count++;
+        sum += value;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Adds the values recorded by another histogram to this one.
+     *
+     * @param other Histogram to add.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Returns the number of values recorded.
+     *
+     * @return The number of values recorded.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the mean of the values recorded.
+     *
+     * @return The mean of the values recorded, 0 if none was recorded.
+     */
+    public double mean() {
+        return (count == 0 ? 0 : (double) sum / count);
+    }
+
+    /**
+     * Returns the greatest value recorded.
+     *
+     * @return The greatest value recorded, 0 if none was recorded.
+     */
+    public long max() {
+        return max;
+    }
+
+    /**
+     * Returns the value below or at which the given percentage of the
+     * recorded values fall. The value returned is the upper bound of the
+     * bucket of that value, so it is never below the exact percentile and it
+     * exceeds it by less than 1%.
+     *
+     * @param percentile Percentage, between 0 and 100.
+     * @return The value at the given percentile, 0 if no value was recorded.
+     * @throws IllegalArgumentException If the percentage is out of range.
+     */
+    public long percentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile out of range: " + percentile);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the bucket of a value.
+     *
+     * @param value Non negative value.
+     * @return The bucket of the value.
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Returns the greatest value that falls in a bucket.
+     *
+     * @param bucket Bucket.
+     * @return The greatest value of the bucket.
+     */
+    static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
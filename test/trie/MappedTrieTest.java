@@ -0,0 +1,104 @@
+package trie;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test program to verify that a trie written to a file and opened as a memory
+ * mapped trie answers exactly like the original trie.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class MappedTrieTest {
+
+    /**
+     * Mapped trie test program.
+     *
+     * @param args The first argument, if present, is the number of words to
+     * insert in the trie (100000 by default) and the second one the seed of the
+     * random generator (1 by default).
+     * @throws IOException In case there is a problem writing or mapping the
+     * trie file.
+     */
+    public static void main(String[] args) throws IOException {
+        int words = (args.length >= 1 ? Integer.parseInt(args[0]) : 100000);
+        long seed = (args.length >= 2 ? Long.parseLong(args[1]) : 1);
+        boolean passed = equivalenceTest(words, seed);
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Fills a trie with random words, writes it to a temporary file, maps the
+     * file and checks that the mapped trie gives the same result as the
+     * original trie for every stored word, every prefix of them and a set of
+     * random words.
+     *
+     * @param words Number of words to insert in the trie.
+     * @param seed Seed of the random generator.
+     * @return True if both tries gave the same result for all the checks.
+     * @throws IOException In case there is a problem writing or mapping the
+     * trie file.
+     */
+    public static boolean equivalenceTest(int words, long seed) throws IOException {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Mapped trie equivalence test:");
+        System.out.println("-------------------------------------------------------");
+        Random random = new Random(seed);
+        Trie trie = new Trie();
+        List<String> inserted = new ArrayList<String>();
+        for (int i = 0; i < words; i++) {
+            String word = TestWords.randomWord(random);
+            trie.insert(word);
+            inserted.add(word);
+        }
+        for (int i = 0; i < words / 4; i++) {
+            trie.remove(inserted.get(random.nextInt(inserted.size())));
+        }
+        Path file = Files.createTempFile("trie", ".bin");
+        try {
+            MappedTrie.write(trie, file);
+            MappedTrie mapped = MappedTrie.open(file);
+            int checks = 0;
+            int mismatches = 0;
+            for (String word : inserted) {
+                for (int end = 0; end <= word.length(); end++) {
+                    String prefix = word.substring(0, end);
+                    mismatches += (trie.search(prefix) == mapped.search(prefix) ? 0 : 1);
+                    mismatches += (trie.startsWith(prefix) == mapped.startsWith(prefix) ? 0 : 1);
+                    checks += 2;
+                }
+            }
+            for (int i = 0; i < words; i++) {
+                String word = TestWords.randomWord(random);
+                String padded = "##" + word + "##";
+                mismatches += (trie.search(word) == mapped.search(word) ? 0 : 1);
+                mismatches += (trie.startsWith(word) == mapped.startsWith(word) ? 0 : 1);
+                mismatches += (trie.search(padded, 2, padded.length() - 2) == mapped.search(padded, 2, padded.length() - 2) ? 0 : 1);
+                checks += 3;
+            }
+            long fileSize = Files.size(file);
+            boolean corruptionDetected = false;
+            Files.write(file, new byte[]{'T', 'R', 'I', 'E'});
+            try {
+                MappedTrie.open(file);
+            } catch (IOException e) {
+                corruptionDetected = true;
+            }
+            System.out.println("  Number of nodes of the mapped trie:........." + mapped.nodeCount());
+            System.out.println("  Size of the trie file (bytes):.............." + fileSize);
+            System.out.println("  Number of checks:..........................." + checks);
+            System.out.println("  Number of mismatches:......................." + mismatches);
+            System.out.println("  Corrupted file rejected:...................." + corruptionDetected);
+            System.out.println("  Test passed:................................" + (mismatches == 0 && corruptionDetected));
+            return mismatches == 0 && corruptionDetected;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test program to verify that a persistent trie behaves like a trie, that its
+ * snapshots keep answering as the trie was when they were taken however many
+ * changes follow, and that readers of the snapshots published by a writer
+ * always see complete batches of changes.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class PersistentTrieTest {
+
+    /**
+     * Persistent trie test program.
+     *
+     * @param args The first argument, if present, is the number of operations
+     * (200000 by default) and the second one the seed of the random generator
+     * (1 by default).
+     * @throws InterruptedException If the main thread is interrupted while
+     * waiting for the reader threads.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int operations = (args.length >= 1 ? Integer.parseInt(args[0]) : 200000);
+        long seed = (args.length >= 2 ? Long.parseLong(args[1]) : 1);
+        boolean passed = isolationTest(operations, seed);
+        passed &= concurrentReadersTest(operations / 1000, 2, seed);
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Applies random insertions and removals to a persistent trie and to a
+     * reference set, taking snapshots of both every now and then and
+     * restoring an old snapshot once, and checks at the end that the trie
+     * matches the reference set and that every snapshot still matches the
+     * copy of the set taken with it.
+     *
+     * @param operations Number of insertions and removals.
+     * @param seed Seed of the random generator.
+     * @return True if the trie and every snapshot matched their reference.
+     */
+    public static boolean isolationTest(int operations, long seed) {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Persistent trie isolation test:");
+        System.out.println("-------------------------------------------------------");
+        Random random = new Random(seed);
+        PersistentTrie trie = new PersistentTrie();
+        TreeSet<String> expected = new TreeSet<String>();
+        List<String> inserted = new ArrayList<String>();
+        List<PersistentTrie.Snapshot> snapshots = new ArrayList<PersistentTrie.Snapshot>();
+        List<TreeSet<String>> snapshotWords = new ArrayList<TreeSet<String>>();
+        int mismatches = 0;
+        for (int i = 0; i < operations; i++) {
+            if (inserted.isEmpty() || random.nextInt(3) > 0) {
+                String word = TestWords.randomWord(random);
+                trie.insert(word);
+                expected.add(word);
+                inserted.add(word);
+            } else {
+                String word = inserted.get(random.nextInt(inserted.size()));
+                trie.remove(word);
+                expected.remove(word);
+            }
+            if (random.nextInt(operations / 20) == 0) {
+                snapshots.add(trie.snapshot());
+                snapshotWords.add(new TreeSet<String>(expected));
+            }
+            if (i == operations / 2 && !snapshots.isEmpty()) {
+                int restored = random.nextInt(snapshots.size());
+                trie.restore(snapshots.get(restored));
+                expected = new TreeSet<String>(snapshotWords.get(restored));
+                mismatches += compare(trie.snapshot(), expected, inserted);
+            }
+        }
+        mismatches += compare(trie.snapshot(), expected, inserted);
+        for (int i = 0; i < snapshots.size(); i++) {
+            mismatches += compare(snapshots.get(i), snapshotWords.get(i), inserted);
+        }
+        for (String word : inserted) {
+            mismatches += (trie.search(word) == expected.contains(word) ? 0 : 1);
+            String padded = "##" + word + "##";
+            mismatches += (trie.search(padded, 2, padded.length() - 2) == expected.contains(word) ? 0 : 1);
+        }
+        trie.insert("");
+        mismatches += (trie.search("") && trie.startsWith("") ? 0 : 1);
+        PersistentTrie.Snapshot withEmpty = trie.snapshot();
+        trie.remove("");
+        mismatches += (withEmpty.search("") && !trie.search("") ? 0 : 1);
+        System.out.println("  Number of operations:......................." + operations);
+        System.out.println("  Number of words:............................" + expected.size());
+        System.out.println("  Number of snapshots checked:................" + snapshots.size());
+        System.out.println("  Number of mismatches:......................." + mismatches);
+        System.out.println("  Test passed:................................" + (mismatches == 0));
+        return mismatches == 0;
+    }
+
+    /**
+     * Runs a writer applying batches of changes and publishing a snapshot
+     * after each one while reader threads check the published snapshots.
+     * Batch number b inserts the words "b:0" to "b:(size - 1)" and removes the
+     * words of batch b - 2, so a snapshot published after batch b must hold
+     * the words of batches b and b - 1 and no word of batches b - 2 or b + 1.
+     *
+     * @param batches Number of batches.
+     * @param readers Number of reader threads.
+     * @param seed Seed of the random generator.
+     * @return True if no reader saw an incomplete batch.
+     * @throws InterruptedException If the main thread is interrupted while
+     * waiting for the reader threads.
+     */
+    public static boolean concurrentReadersTest(final int batches, int readers, long seed) throws InterruptedException {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Persistent trie concurrent readers test:");
+        System.out.println("-------------------------------------------------------");
+        final int size = 2000;
+        final Object[] published = new Object[2];
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicLong checks = new AtomicLong();
+        final AtomicLong violations = new AtomicLong();
+        Thread[] threads = new Thread[readers];
+        for (int r = 0; r < readers; r++) {
+            final Random random = new Random(seed + r);
+            threads[r] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (!done.get()) {
+                        PersistentTrie.Snapshot snapshot;
+                        int batch;
+                        synchronized (published) {
+                            if (published[0] == null) {
+                                continue;
+                            }
+                            snapshot = (PersistentTrie.Snapshot) published[0];
+                            batch = (Integer) published[1];
+                        }
+                        int word = random.nextInt(size);
+                        boolean consistent = snapshot.search(batch + ":" + word)
+                                && snapshot.search((batch - 1) + ":" + word) == (batch > 0)
+                                && !snapshot.search((batch - 2) + ":" + word)
+                                && !snapshot.search((batch + 1) + ":" + word)
+                                && snapshot.startsWith(batch + ":");
+                        checks.incrementAndGet();
+                        if (!consistent) {
+                            violations.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[r].start();
+        }
+        PersistentTrie trie = new PersistentTrie();
+        for (int batch = 0; batch < batches; batch++) {
+            for (int word = 0; word < size; word++) {
+                trie.insert(batch + ":" + word);
+                trie.remove((batch - 2) + ":" + word);
+            }
+            PersistentTrie.Snapshot snapshot = trie.snapshot();
+            synchronized (published) {
+                published[0] = snapshot;
+                published[1] = batch;
+            }
+        }
+        done.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        System.out.println("  Number of batches:.........................." + batches);
+        System.out.println("  Number of reader checks:...................." + checks.get());
+        System.out.println("  Number of violations:......................." + violations.get());
+        System.out.println("  Test passed:................................" + (violations.get() == 0));
+        return violations.get() == 0;
+    }
+
+    /**
+     * Compares a snapshot with a reference set through the inserted words and
+     * their prefixes.
+     *
+     * @param snapshot Snapshot to check.
+     * @param expected Words expected in the snapshot.
+     * @param inserted Every word inserted, removed or not.
+     * @return Number of mismatches.
+     */
+    private static int compare(PersistentTrie.Snapshot snapshot, TreeSet<String> expected, List<String> inserted) {
+        int mismatches = 0;
+        for (String word : inserted) {
+            mismatches += (snapshot.search(word) == expected.contains(word) ? 0 : 1);
+            String prefix = word.substring(0, word.length() / 2);
+            String ceiling = expected.ceiling(prefix);
+            mismatches += (snapshot.startsWith(prefix) == (ceiling != null && ceiling.startsWith(prefix)) ? 0 : 1);
+        }
+        return mismatches;
+    }
+}
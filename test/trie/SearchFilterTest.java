@@ -0,0 +1,153 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Test program to verify that the filter in front of the searches of a trie
+ * never rejects a word of the trie, whatever the insertions and removals, and
+ * that it rejects absent words at about the false positive rate it estimates.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class SearchFilterTest {
+
+    /**
+     * Search filter test program.
+     *
+     * @param args The first argument, if present, is the number of operations
+     * (200000 by default) and the second one the seed of the random generator
+     * (1 by default).
+     */
+    public static void main(String[] args) {
+        int operations = (args.length >= 1 ? Integer.parseInt(args[0]) : 200000);
+        long seed = (args.length >= 2 ? Long.parseLong(args[1]) : 1);
+        boolean passed = filterTest(operations, seed);
+        passed &= saturationTest(operations / 10, seed);
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Applies random insertions and removals to a trie with a filter and to a
+     * reference set, enabling the filter half way, and checks that every
+     * search matches the set and that the share of absent words let through
+     * by the filter is close to its estimated false positive rate.
+     *
+     * @param operations Number of insertions and removals.
+     * @param seed Seed of the random generator.
+     * @return True if the searches matched the set and the false positive
+     * rate was as estimated.
+     */
+    public static boolean filterTest(int operations, long seed) {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Search filter test:");
+        System.out.println("-------------------------------------------------------");
+        Random random = new Random(seed);
+        Trie trie = new Trie();
+        WeightedTrie weighted = new WeightedTrie();
+        TreeSet<String> expected = new TreeSet<String>();
+        List<String> inserted = new ArrayList<String>();
+        int mismatches = 0;
+        for (int i = 0; i < operations; i++) {
+            if (i == operations / 2) {
+                trie.enableFilter(operations / 4, 0.01);
+                weighted.enableFilter(operations / 4, 0.01);
+            }
+            if (inserted.isEmpty() || random.nextInt(3) > 0) {
+                String word = TestWords.randomWord(random);
+                trie.insert(word);
+                weighted.insert(word, i);
+                expected.add(word);
+                inserted.add(word);
+            } else {
+                String word = inserted.get(random.nextInt(inserted.size()));
+                trie.remove(word);
+                weighted.remove(word);
+                expected.remove(word);
+            }
+        }
+        TrieCounters counters = trie.enableCounters();
+        for (String word : inserted) {
+            mismatches += (trie.search(word) == expected.contains(word) ? 0 : 1);
+            mismatches += (weighted.search(word) == expected.contains(word) ? 0 : 1);
+            String padded = "##" + word + "##";
+            mismatches += (trie.search(padded, 2, padded.length() - 2) == expected.contains(word) ? 0 : 1);
+        }
+        long absent = 0;
+        long passedThrough = 0;
+        for (int i = 0; i < operations; i++) {
+            String word = TestWords.randomWord(random) + "#";
+            if (!trie.filter().mightContain(word, 0, word.length())) {
+                mismatches += (trie.search(word) ? 1 : 0);
+            } else {
+                passedThrough++;
+            }
+            absent++;
+        }
+        SearchFilter filter = trie.filter();
+        double measured = (double) passedThrough / absent;
+        boolean rateAsEstimated = Math.abs(measured - filter.falsePositiveRate()) < 0.5 * filter.falsePositiveRate() + 0.002;
+        mismatches += (filter.words() == expected.size() && weighted.filter().words() == expected.size() ? 0 : 1);
+        mismatches += (counters.searches() == 2 * inserted.size() + absent - passedThrough ? 0 : 1);
+        trie.disableFilter();
+        mismatches += (trie.filter() == null && trie.search(inserted.get(0)) == expected.contains(inserted.get(0)) ? 0 : 1);
+        System.out.println("  Number of operations:......................." + operations);
+        System.out.println("  Number of words:............................" + expected.size());
+        System.out.println("  Filter memory (bytes):......................" + filter.memoryBytes());
+        System.out.println("  Number of hashes:..........................." + filter.hashes());
+        System.out.println("  Estimated false positive rate:.............." + String.format("%.4f", filter.falsePositiveRate()));
+        System.out.println("  Measured false positive rate:..............." + String.format("%.4f", measured));
+        System.out.println("  Number of mismatches:......................." + mismatches);
+        System.out.println("  Test passed:................................" + (mismatches == 0 && rateAsEstimated));
+        return mismatches == 0 && rateAsEstimated;
+    }
+
+    /**
+     * Fills a trie whose filter is far too small, so that its counters
+     * saturate, removes most of the words and checks that no remaining word is
+     * rejected and that the filter of an empty trie rejects every word once
+     * resized.
+     *
+     * @param words Number of words inserted.
+     * @param seed Seed of the random generator.
+     * @return True if no word of the trie was rejected.
+     */
+    public static boolean saturationTest(int words, long seed) {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Search filter saturation test:");
+        System.out.println("-------------------------------------------------------");
+        Random random = new Random(seed);
+        Trie trie = new Trie();
+        trie.enableFilter(16, 0.01);
+        List<String> inserted = new ArrayList<String>();
+        for (int i = 0; i < words; i++) {
+            String word = Integer.toString(i, 36) + "#" + TestWords.randomWord(random);
+            trie.insert(word);
+            inserted.add(word);
+        }
+        double saturatedRate = trie.filter().falsePositiveRate();
+        int mismatches = 0;
+        for (int i = 0; i < inserted.size(); i++) {
+            if (i % 10 != 0) {
+                trie.remove(inserted.get(i));
+            }
+        }
+        for (int i = 0; i < inserted.size(); i++) {
+            mismatches += (trie.search(inserted.get(i)) == (i % 10 == 0) ? 0 : 1);
+        }
+        for (int i = 0; i < inserted.size(); i += 10) {
+            trie.remove(inserted.get(i));
+        }
+        SearchFilter resized = trie.enableFilter(words, 0.01);
+        mismatches += (resized.words() == 0 && resized.falsePositiveRate() == 0 && !trie.search(inserted.get(0)) ? 0 : 1);
+        System.out.println("  Number of words:............................" + words);
+        System.out.println("  Saturated false positive rate:.............." + String.format("%.4f", saturatedRate));
+        System.out.println("  Number of mismatches:......................." + mismatches);
+        System.out.println("  Test passed:................................" + (mismatches == 0));
+        return mismatches == 0;
+    }
+}
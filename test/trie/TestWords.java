@@ -0,0 +1,63 @@
+package trie;
+
+import java.util.Random;
+
+/**
+ * Generators of the random words used by the test programs.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+final class TestWords {
+
+    /**
+     * TestWords constructor. Not to be instantiated.
+     */
+    private TestWords() {
+    }
+
+    /**
+     * Builds a random word of up to 11 letters over a skewed alphabet of 26
+     * letters, so that the words share many prefixes.
+     *
+     * @param random Random generator.
+     * @return A random word.
+     */
+    static String randomWord(Random random) {
+        return skewedWord(random, random.nextInt(12), 26);
+    }
+
+    /**
+     * Builds a random word whose letters are skewed towards the first letters
+     * of the alphabet, so that the words share many prefixes while some nodes
+     * still get a wide fan-out.
+     *
+     * @param random Random generator.
+     * @param length Length of the word.
+     * @param letters Number of letters of the alphabet, from 'a' on.
+     * @return A random word.
+     */
+    static String skewedWord(Random random, int length, int letters) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(random.nextInt(letters) + 1)));
+        }
+        return word.toString();
+    }
+
+    /**
+     * Builds a random word whose letters are drawn uniformly from a small
+     * alphabet.
+     *
+     * @param random Random generator.
+     * @param length Length of the word.
+     * @param letters Number of letters of the alphabet, from 'a' on.
+     * @return A random word.
+     */
+    static String uniformWord(Random random, int length, int letters) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(letters)));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,195 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Test program to verify that the sequential and parallel bulk loaders build
+ * the same trie as repeated insertions, that they skip null and duplicated
+ * words and that they reject words that are not sorted.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class TrieBuilderTest {
+
+    /**
+     * Bulk loader test program.
+     *
+     * @param args The first argument, if present, is the number of words
+     * (100000 by default) and the second one the seed of the random generator
+     * (1 by default).
+     */
+    public static void main(String[] args) {
+        int words = (args.length >= 1 ? Integer.parseInt(args[0]) : 100000);
+        long seed = (args.length >= 2 ? Long.parseLong(args[1]) : 1);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        boolean passed;
+        try {
+            passed = equivalenceTest(words, seed, pool);
+            passed &= unsortedTest(pool);
+        } finally {
+            pool.shutdown();
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Builds tries of different sizes with both loaders from sorted words
+     * mixed with null and duplicated words, and checks that they hold the
+     * same words, answer the same lookups and have the same shape as a trie
+     * built by repeated insertions, and that they keep working after later
+     * insertions and removals.
+     *
+     * @param words Number of words of the biggest trie.
+     * @param seed Seed of the random generator.
+     * @param pool Pool used by the parallel loader.
+     * @return True if every trie matched the one built by insertions.
+     */
+    public static boolean equivalenceTest(int words, long seed, ForkJoinPool pool) {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Bulk load equivalence test:");
+        System.out.println("-------------------------------------------------------");
+        Random random = new Random(seed);
+        int mismatches = 0;
+        int tries = 0;
+        for (int size : new int[]{0, 1, 2, 10, 1000, words}) {
+            TreeSet<String> distinct = new TreeSet<String>();
+            List<String> input = new ArrayList<String>();
+            for (int i = 0; i < size; i++) {
+                String word = TestWords.randomWord(random);
+                distinct.add(word);
+                input.add(word);
+                if (random.nextInt(10) == 0) {
+                    input.add(word);
+                }
+            }
+            Collections.sort(input);
+            for (int i = 0; i < size / 10; i++) {
+                input.add(random.nextInt(input.size() + 1), null);
+            }
+            Trie inserted = new Trie();
+            for (String word : input) {
+                inserted.insert(word);
+            }
+            Trie bulk = Trie.bulkLoad(input.iterator());
+            Trie parallel = Trie.parallelBulkLoad(input.iterator(), pool);
+            mismatches += compare(bulk, inserted, distinct, random);
+            mismatches += compare(parallel, inserted, distinct, random);
+            for (int i = 0; i < size / 10; i++) {
+                String word = TestWords.randomWord(random);
+                if (random.nextBoolean()) {
+                    bulk.insert(word);
+                    parallel.insert(word);
+                    inserted.insert(word);
+                    distinct.add(word);
+                } else {
+                    bulk.remove(word);
+                    parallel.remove(word);
+                    inserted.remove(word);
+                    distinct.remove(word);
+                }
+            }
+            mismatches += compare(bulk, inserted, distinct, random);
+            mismatches += compare(parallel, inserted, distinct, random);
+            tries += 2;
+        }
+        System.out.println("  Number of tries built:......................" + tries);
+        System.out.println("  Number of mismatches:......................." + mismatches);
+        System.out.println("  Test passed:................................" + (mismatches == 0));
+        return mismatches == 0;
+    }
+
+    /**
+     * Checks that both loaders reject words that are not sorted, even when
+     * the disorder is only found after many sorted words.
+     *
+     * @param pool Pool used by the parallel loader.
+     * @return True if every unsorted input was rejected.
+     */
+    public static boolean unsortedTest(ForkJoinPool pool) {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Bulk load unsorted input test:");
+        System.out.println("-------------------------------------------------------");
+        List<List<String>> inputs = new ArrayList<List<String>>();
+        inputs.add(Arrays.asList("b", "a"));
+        inputs.add(Arrays.asList("a", "ab", "abc", "ab"));
+        inputs.add(Arrays.asList("a", null, "c", null, "b"));
+        List<String> late = new ArrayList<String>();
+        for (int i = 0; i < 10000; i++) {
+            late.add(String.format("%05d", i));
+        }
+        late.add("00000");
+        inputs.add(late);
+        int rejected = 0;
+        for (List<String> input : inputs) {
+            rejected += (rejects(input, null) ? 1 : 0);
+            rejected += (rejects(input, pool) ? 1 : 0);
+        }
+        boolean passed = (rejected == 2 * inputs.size());
+        System.out.println("  Number of unsorted inputs:.................." + 2 * inputs.size());
+        System.out.println("  Number of inputs rejected:.................." + rejected);
+        System.out.println("  Test passed:................................" + passed);
+        return passed;
+    }
+
+    /**
+     * Returns true if a loader rejects the given words with an
+     * IllegalArgumentException.
+     *
+     * @param input Words to load.
+     * @param pool Pool of the parallel loader, null to use the sequential one.
+     * @return True if the words were rejected.
+     */
+    private static boolean rejects(List<String> input, ForkJoinPool pool) {
+        try {
+            if (pool == null) {
+                Trie.bulkLoad(input.iterator());
+            } else {
+                Trie.parallelBulkLoad(input.iterator(), pool);
+            }
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Compares a bulk loaded trie with a trie built by insertions and with
+     * the set of its words: the words enumerated, the searches and prefix
+     * checks of every word and of random words, and the shape of the trie.
+     *
+     * @param loaded Bulk loaded trie.
+     * @param inserted Trie built by insertions.
+     * @param words Words expected in both tries.
+     * @param random Random generator.
+     * @return Number of mismatches.
+     */
+    private static int compare(Trie loaded, Trie inserted, TreeSet<String> words, Random random) {
+        int mismatches = 0;
+        Iterator<String> keys = loaded.keysWithPrefix("");
+        for (String word : words) {
+            mismatches += (keys.hasNext() && keys.next().equals(word) ? 0 : 1);
+            mismatches += (loaded.search(word) && loaded.startsWith(word) ? 0 : 1);
+        }
+        mismatches += (keys.hasNext() ? 1 : 0);
+        for (int i = 0; i < 1000; i++) {
+            String word = TestWords.randomWord(random);
+            mismatches += (loaded.search(word) == inserted.search(word) ? 0 : 1);
+            mismatches += (loaded.startsWith(word) == inserted.startsWith(word) ? 0 : 1);
+        }
+        TrieStats loadedStats = loaded.stats();
+        TrieStats insertedStats = inserted.stats();
+        mismatches += (loadedStats.nodeCount() == insertedStats.nodeCount()
+                && loadedStats.endNodeCount() == insertedStats.endNodeCount()
+                && loadedStats.storedLetters() == insertedStats.storedLetters() ? 0 : 1);
+        return mismatches;
+    }
+}
@@ -0,0 +1,125 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Test program to verify that the trie maps behave like a hash map under a
+ * random sequence of operations.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class TrieMapTest {
+
+    /**
+     * Trie map test program.
+     *
+     * @param args The first argument, if present, is the number of operations
+     * (500000 by default) and the second one the seed of the random generator
+     * (1 by default).
+     */
+    public static void main(String[] args) {
+        int operations = (args.length >= 1 ? Integer.parseInt(args[0]) : 500000);
+        long seed = (args.length >= 2 ? Long.parseLong(args[1]) : 1);
+        boolean passed = mapTest(operations, seed);
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs the same random sequence of puts, gets and removals on a generic, an
+     * int and a long trie map and on a hash map, checking every result, and
+     * checks the keys of the trie maps at the end.
+     *
+     * @param operations Number of operations.
+     * @param seed Seed of the random generator.
+     * @return True if all the maps gave the same results.
+     */
+    public static boolean mapTest(int operations, long seed) {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Trie map test:");
+        System.out.println("-------------------------------------------------------");
+        Random random = new Random(seed);
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        TrieMap<Integer> map = new TrieMap<Integer>();
+        IntTrieMap intMap = new IntTrieMap(-1);
+        LongTrieMap longMap = new LongTrieMap(Long.MIN_VALUE);
+        List<String> keys = new ArrayList<String>();
+        int mismatches = 0;
+        for (int i = 0; i < operations; i++) {
+            String key = (keys.isEmpty() || random.nextInt(3) == 0 ? TestWords.uniformWord(random, random.nextInt(8), 4) : keys.get(random.nextInt(keys.size())));
+            int operation = random.nextInt(10);
+            if (operation < 4) {
+                int value = random.nextInt(1000000);
+                keys.add(key);
+                Integer previous = expected.put(key, value);
+                mismatches += (equal(previous, map.put(key, value)) ? 0 : 1);
+                mismatches += (intMap.put(key, value) == (previous == null ? -1 : previous) ? 0 : 1);
+                mismatches += (longMap.put(key, value + (1L << 40)) == (previous == null ? Long.MIN_VALUE : previous + (1L << 40)) ? 0 : 1);
+            } else if (operation < 7) {
+                Integer value = expected.get(key);
+                mismatches += (equal(value, map.get(key)) ? 0 : 1);
+                mismatches += (equal(value == null ? -2 : value, map.getOrDefault(key, -2)) ? 0 : 1);
+                mismatches += (intMap.get(key) == (value == null ? -1 : value) ? 0 : 1);
+                mismatches += (intMap.getOrDefault(key, -2) == (value == null ? -2 : value) ? 0 : 1);
+                mismatches += (longMap.get(key) == (value == null ? Long.MIN_VALUE : value + (1L << 40)) ? 0 : 1);
+                mismatches += (map.containsKey(key) == (value != null) && intMap.containsKey(key) == (value != null) ? 0 : 1);
+            } else {
+                Integer previous = expected.remove(key);
+                mismatches += (equal(previous, map.remove(key)) ? 0 : 1);
+                mismatches += (intMap.remove(key) == (previous == null ? -1 : previous) ? 0 : 1);
+                mismatches += (longMap.remove(key) == (previous == null ? Long.MIN_VALUE : previous + (1L << 40)) ? 0 : 1);
+            }
+            mismatches += (map.size() == expected.size() && intMap.size() == expected.size() && longMap.size() == expected.size() ? 0 : 1);
+        }
+        TreeSet<String> sorted = new TreeSet<String>(expected.keySet());
+        mismatches += (sorted.equals(toSet(map.keysWithPrefix(""))) ? 0 : 1);
+        mismatches += (sorted.equals(toSet(intMap.keysWithPrefix(""))) ? 0 : 1);
+        mismatches += (sorted.equals(toSet(longMap.keysWithPrefix(""))) ? 0 : 1);
+        mismatches += (map.stats().endNodeCount() == expected.size() ? 0 : 1);
+        mismatches += (map.get(null) == null && intMap.remove(null) == -1 && !longMap.containsKey(null) ? 0 : 1);
+        try {
+            map.put(null, 1);
+            mismatches++;
+        } catch (NullPointerException e) {
+        }
+        map.put("", null);
+        mismatches += (map.containsKey("") && map.get("") == null && map.getOrDefault("", 3) == null ? 0 : 1);
+        System.out.println("  Number of operations:......................." + operations);
+        System.out.println("  Number of keys at the end:.................." + expected.size());
+        System.out.println("  Number of mismatches:......................." + mismatches);
+        System.out.println("  Test passed:................................" + (mismatches == 0));
+        return mismatches == 0;
+    }
+
+    /**
+     * Compares two values that may be null.
+     *
+     * @param a First value.
+     * @param b Second value.
+     * @return True if both are null or equal.
+     */
+    private static boolean equal(Integer a, Integer b) {
+        return (a == null ? b == null : a.equals(b));
+    }
+
+    /**
+     * Collects the keys returned by an iterator.
+     *
+     * @param keys Iterator over the keys.
+     * @return A sorted set with the keys.
+     */
+    private static TreeSet<String> toSet(Iterator<String> keys) {
+        TreeSet<String> set = new TreeSet<String>();
+        while (keys.hasNext()) {
+            set.add(keys.next());
+        }
+        return set;
+    }
+}
@@ -0,0 +1,227 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Test program to verify the insertions and removals of the trie against a
+ * sorted set: node splits and fusions under random operations, the switches
+ * of the son tables between their sorted and dense representations in both
+ * directions, and the corner cases of the empty word and the empty trie.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class TrieRandomTest {
+
+    /**
+     * Random trie test program.
+     *
+     * @param args The first argument, if present, is the number of operations
+     * (200000 by default) and the second one the seed of the random generator
+     * (1 by default).
+     */
+    public static void main(String[] args) {
+        int operations = (args.length >= 1 ? Integer.parseInt(args[0]) : 200000);
+        long seed = (args.length >= 2 ? Long.parseLong(args[1]) : 1);
+        boolean passed = randomTest(operations, seed);
+        passed &= sonTableTest(seed);
+        passed &= cornerCaseTest();
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Applies random insertions and removals to a trie and to a sorted set,
+     * checking every now and then that the trie holds the words of the set,
+     * that its prefix checks match the set and that its shape is the one of
+     * a trie bulk loaded with the same words, so no node that should have
+     * been fused or discarded is left behind.
+     *
+     * @param operations Number of insertions and removals.
+     * @param seed Seed of the random generator.
+     * @return True if the trie matched the set.
+     */
+    public static boolean randomTest(int operations, long seed) {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Random insertions and removals test:");
+        System.out.println("-------------------------------------------------------");
+        Random random = new Random(seed);
+        Trie trie = new Trie();
+        TreeSet<String> expected = new TreeSet<String>();
+        List<String> inserted = new ArrayList<String>();
+        int mismatches = 0;
+        int checks = 0;
+        for (int i = 0; i < operations; i++) {
+            if (inserted.isEmpty() || random.nextInt(5) < 3) {
+                String word = TestWords.skewedWord(random, random.nextInt(8), 40);
+                trie.insert(word);
+                expected.add(word);
+                inserted.add(word);
+            } else {
+                String word = inserted.get(random.nextInt(inserted.size()));
+                trie.remove(word);
+                expected.remove(word);
+            }
+            if (i % (operations / 10) == operations / 10 - 1) {
+                mismatches += compare(trie, expected, inserted);
+                checks++;
+            }
+        }
+        for (String word : inserted) {
+            trie.remove(word);
+            expected.remove(word);
+            if (expected.size() % (inserted.size() / 10 + 1) == 0) {
+                mismatches += compare(trie, expected, inserted);
+                checks++;
+            }
+        }
+        System.out.println("  Number of operations:......................." + operations);
+        System.out.println("  Number of full checks:......................" + checks);
+        System.out.println("  Number of mismatches:......................." + mismatches);
+        System.out.println("  Test passed:................................" + (mismatches == 0));
+        return mismatches == 0;
+    }
+
+    /**
+     * Grows and shrinks the sons of a node across the size at which a sorted
+     * table becomes dense (more than 16 sons) and the size at which a dense
+     * table becomes sorted again (less than 8 sons), several times, checking
+     * the representation and the lookups at every step. Sons whose letters
+     * span too much to be kept dense are also checked.
+     *
+     * @param seed Seed of the random generator.
+     * @return True if the tables switched at the expected sizes and the
+     * lookups matched the set.
+     */
+    public static boolean sonTableTest(long seed) {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Son table switch test:");
+        System.out.println("-------------------------------------------------------");
+        Random random = new Random(seed);
+        Trie trie = new Trie();
+        TreeSet<String> expected = new TreeSet<String>();
+        List<String> inserted = new ArrayList<String>();
+        int mismatches = 0;
+        int switches = 0;
+        boolean dense = false;
+        for (int round = 0; round < 3; round++) {
+            List<Character> letters = new ArrayList<Character>();
+            for (char letter = 'A'; letter < 'A' + 40; letter++) {
+                letters.add(letter);
+            }
+            Collections.shuffle(letters, random);
+            for (char letter : letters) {
+                String word = "x" + letter + TestWords.randomWord(random);
+                trie.insert(word);
+                expected.add(word);
+                inserted.add(word);
+                int sons = expected.size();
+                boolean nowDense = (trie.stats().denseSonTableCount() > 0);
+                mismatches += (nowDense == (dense ? sons >= 8 : sons > 16) ? 0 : 1);
+                switches += (nowDense != dense ? 1 : 0);
+                dense = nowDense;
+                mismatches += compare(trie, expected, inserted);
+            }
+            Collections.shuffle(inserted, random);
+            for (String word : inserted) {
+                trie.remove(word);
+                expected.remove(word);
+                int sons = expected.size();
+                boolean nowDense = (trie.stats().denseSonTableCount() > 0);
+                mismatches += (nowDense == (dense ? sons >= 8 : sons > 16) ? 0 : 1);
+                switches += (nowDense != dense ? 1 : 0);
+                dense = nowDense;
+                mismatches += compare(trie, expected, inserted);
+            }
+            inserted.clear();
+        }
+        for (int i = 0; i < 40; i++) {
+            String word = "y" + (char) (i % 2 == 0 ? 'a' + i : 0x4E00 + i);
+            trie.insert(word);
+            expected.add(word);
+            inserted.add(word);
+        }
+        mismatches += (trie.stats().denseSonTableCount() == 0 ? 0 : 1);
+        mismatches += compare(trie, expected, inserted);
+        System.out.println("  Number of table switches:..................." + switches);
+        System.out.println("  Number of mismatches:......................." + mismatches);
+        System.out.println("  Test passed:................................" + (mismatches == 0 && switches == 6));
+        return mismatches == 0 && switches == 6;
+    }
+
+    /**
+     * Checks the empty word, the prefix checks of an empty trie and of a
+     * trie emptied by removals, and removals of words that only share a part
+     * of the path of other words.
+     *
+     * @return True if every check passed.
+     */
+    public static boolean cornerCaseTest() {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Corner cases test:");
+        System.out.println("-------------------------------------------------------");
+        int failures = 0;
+        Trie trie = new Trie();
+        failures += (!trie.startsWith("") && !trie.search("") ? 0 : 1);
+        trie.insert("");
+        failures += (trie.startsWith("") && trie.search("") && !trie.startsWith("a") ? 0 : 1);
+        trie.remove("");
+        failures += (!trie.startsWith("") && !trie.search("") ? 0 : 1);
+        trie.insert("abc");
+        trie.remove("abc");
+        failures += (!trie.startsWith("") && !trie.startsWith("a") && !trie.search("abc") ? 0 : 1);
+        trie.insert("abc");
+        trie.insert("abd");
+        trie.remove("ac");
+        trie.remove("ab");
+        trie.remove("abcd");
+        failures += (trie.search("abc") && trie.search("abd") && trie.startsWith("ab") ? 0 : 1);
+        trie.remove("abd");
+        failures += (trie.search("abc") && !trie.startsWith("abd") && trie.stats().nodeCount() == 1 ? 0 : 1);
+        trie.insert("ab");
+        trie.remove("abc");
+        failures += (trie.search("ab") && !trie.startsWith("abc") && trie.stats().nodeCount() == 1 ? 0 : 1);
+        trie.insert(null);
+        trie.remove(null);
+        failures += (!trie.search(null) && !trie.startsWith(null) && trie.search("ab") ? 0 : 1);
+        System.out.println("  Number of failures:........................." + failures);
+        System.out.println("  Test passed:................................" + (failures == 0));
+        return failures == 0;
+    }
+
+    /**
+     * Compares a trie with the set of its words: every word inserted at some
+     * point is searched and its prefixes checked, the words of the trie are
+     * enumerated, and its shape is compared with a bulk loaded trie.
+     *
+     * @param trie Trie to check.
+     * @param expected Words expected in the trie.
+     * @param inserted Every word inserted, removed or not.
+     * @return Number of mismatches.
+     */
+    private static int compare(Trie trie, TreeSet<String> expected, List<String> inserted) {
+        int mismatches = 0;
+        for (String word : inserted) {
+            mismatches += (trie.search(word) == expected.contains(word) ? 0 : 1);
+            for (int length = 0; length <= word.length(); length += 2) {
+                String prefix = word.substring(0, length);
+                String ceiling = expected.ceiling(prefix);
+                mismatches += (trie.startsWith(prefix) == (ceiling != null && ceiling.startsWith(prefix)) ? 0 : 1);
+            }
+        }
+        Iterator<String> words = trie.keysWithPrefix("");
+        for (String word : expected) {
+            mismatches += (words.hasNext() && words.next().equals(word) ? 0 : 1);
+        }
+        mismatches += (words.hasNext() ? 1 : 0);
+        TrieStats stats = trie.stats();
+        TrieStats canonical = Trie.bulkLoad(expected.iterator()).stats();
+        mismatches += (stats.nodeCount() == canonical.nodeCount() && stats.storedLetters() == canonical.storedLetters() ? 0 : 1);
+        return mismatches;
+    }
+}
@@ -0,0 +1,151 @@
+package trie;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Test program to verify that a trie scanner reports exactly the occurrences
+ * found by a naive scan of the text, whatever the size of the chunks the text
+ * is fed in.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class TrieScannerTest {
+
+    /**
+     * Trie scanner test program.
+     *
+     * @param args The first argument, if present, is the number of words of
+     * the dictionary (2000 by default) and the second one the seed of the random
+     * generator (1 by default).
+     * @throws IOException Never, the text is read from memory.
+     */
+    public static void main(String[] args) throws IOException {
+        int words = (args.length >= 1 ? Integer.parseInt(args[0]) : 2000);
+        long seed = (args.length >= 2 ? Long.parseLong(args[1]) : 1);
+        boolean passed = scanTest(words, seed);
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Builds a dictionary of random words, scans a random text with it in
+     * several ways (whole text, random chunks through every feed method and a
+     * reader) and checks the matches against a naive scan.
+     *
+     * @param words Number of words of the dictionary.
+     * @param seed Seed of the random generator.
+     * @return True if every scan reported exactly the expected matches.
+     * @throws IOException Never, the text is read from memory.
+     */
+    public static boolean scanTest(int words, long seed) throws IOException {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Trie scanner test:");
+        System.out.println("-------------------------------------------------------");
+        Random random = new Random(seed);
+        Trie trie = new Trie();
+        Set<String> dictionary = new HashSet<String>();
+        List<String> inserted = new ArrayList<String>();
+        trie.insert("");
+        for (int i = 0; i < words; i++) {
+            String word = TestWords.uniformWord(random, 1 + random.nextInt(8), 4);
+            trie.insert(word);
+            dictionary.add(word);
+            inserted.add(word);
+        }
+        for (int i = 0; i < words / 4; i++) {
+            String word = inserted.get(random.nextInt(inserted.size()));
+            trie.remove(word);
+            dictionary.remove(word);
+        }
+        TrieScanner scanner = TrieScanner.compile(trie);
+        trie.insert("xyz");
+        String text = TestWords.uniformWord(random, 100000, 4);
+        List<String> expected = naiveScan(dictionary, text);
+        int mismatches = 0;
+        List<String> found = new ArrayList<String>();
+        scanner.scan(text, collector(found));
+        mismatches += (expected.equals(found) ? 0 : 1);
+        found.clear();
+        TrieScanner.Session session = scanner.newSession(collector(found));
+        char[] letters = text.toCharArray();
+        int position = 0;
+        while (position < text.length()) {
+            int end = Math.min(text.length(), position + random.nextInt(16));
+            switch (random.nextInt(3)) {
+                case 0:
+                    session.feed(text, position, end);
+                    break;
+                case 1:
+                    session.feed(letters, position, end);
+                    break;
+                default:
+                    session.feed(CharBuffer.wrap(text, position, end));
+                    break;
+            }
+            position = end;
+        }
+        mismatches += (expected.equals(found) ? 0 : 1);
+        mismatches += (session.position() == text.length() && session.matches() == expected.size() ? 0 : 1);
+        found.clear();
+        long matches = scanner.scan(new StringReader(text), collector(found));
+        mismatches += (expected.equals(found) && matches == expected.size() ? 0 : 1);
+        found.clear();
+        scanner.scan("xyz", collector(found));
+        mismatches += (found.isEmpty() ? 0 : 1);
+        System.out.println("  Number of states of the scanner:............" + scanner.stateCount());
+        System.out.println("  Number of matches:.........................." + expected.size());
+        System.out.println("  Number of mismatches:......................." + mismatches);
+        System.out.println("  Test passed:................................" + (mismatches == 0));
+        return mismatches == 0;
+    }
+
+    /**
+     * Finds the occurrences of the words of a dictionary in a text checking
+     * every substring, in the order a scanner reports them: ascending end and
+     * the longest word first.
+     *
+     * @param dictionary Words to look for.
+     * @param text Text to scan.
+     * @return The occurrences, formatted as start:end:word.
+     */
+    private static List<String> naiveScan(Set<String> dictionary, String text) {
+        int longest = 0;
+        for (String word : dictionary) {
+            longest = Math.max(longest, word.length());
+        }
+        List<String> matches = new ArrayList<String>();
+        for (int end = 1; end <= text.length(); end++) {
+            for (int start = Math.max(0, end - longest); start < end; start++) {
+                String word = text.substring(start, end);
+                if (dictionary.contains(word)) {
+                    matches.add(start + ":" + end + ":" + word);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Creates a listener that adds every match to a list, formatted as
+     * start:end:word.
+     *
+     * @param found List receiving the matches.
+     * @return The listener.
+     */
+    private static TrieScanner.MatchListener collector(final List<String> found) {
+        return new TrieScanner.MatchListener() {
+            @Override
+            public void onMatch(long start, long end, String word) {
+                found.add(start + ":" + end + ":" + word);
+            }
+        };
+    }
+}
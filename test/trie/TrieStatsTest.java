@@ -0,0 +1,175 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Test program to verify the structural statistics of a trie and the counters
+ * of its operations.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class TrieStatsTest {
+
+    /**
+     * Trie statistics test program.
+     *
+     * @param args The first argument, if present, is the number of words to
+     * insert in the trie (100000 by default) and the second one the seed of the
+     * random generator (1 by default).
+     */
+    public static void main(String[] args) {
+        int words = (args.length >= 1 ? Integer.parseInt(args[0]) : 100000);
+        long seed = (args.length >= 2 ? Long.parseLong(args[1]) : 1);
+        boolean passed = statsTest(words, seed);
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Fills a trie with random words, removes some of them and checks its
+     * statistics against a recursive count of the nodes. Then enables the
+     * counters, runs searches and prefix checks and checks the counters and
+     * that the results are the same as without counters.
+     *
+     * @param words Number of words to insert in the trie.
+     * @param seed Seed of the random generator.
+     * @return True if all the checks passed.
+     */
+    public static boolean statsTest(int words, long seed) {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Trie statistics and counters test:");
+        System.out.println("-------------------------------------------------------");
+        Random random = new Random(seed);
+        Trie trie = new Trie();
+        Set<String> stored = new HashSet<String>();
+        List<String> inserted = new ArrayList<String>();
+        for (int i = 0; i < words; i++) {
+            String word = TestWords.skewedWord(random, 1 + random.nextInt(12), 40);
+            trie.insert(word);
+            stored.add(word);
+            inserted.add(word);
+        }
+        for (int i = 0; i < words / 4; i++) {
+            String word = inserted.get(random.nextInt(inserted.size()));
+            trie.remove(word);
+            stored.remove(word);
+        }
+        int mismatches = 0;
+        TrieStats stats = trie.stats();
+        long[] expected = new long[5];
+        count(trie.root(), 0, expected);
+        long wordLetters = 0;
+        for (String word : stored) {
+            wordLetters += word.length();
+        }
+        mismatches += (stats.nodeCount() == expected[0] ? 0 : 1);
+        mismatches += (stats.leafCount() == expected[1] ? 0 : 1);
+        mismatches += (stats.endNodeCount() == stored.size() ? 0 : 1);
+        mismatches += (stats.contentLetters() == expected[2] ? 0 : 1);
+        mismatches += (stats.wordLetters() == wordLetters ? 0 : 1);
+        mismatches += (stats.maxDepth() == expected[3] ? 0 : 1);
+        mismatches += (stats.sortedSonTableCount() + stats.denseSonTableCount() == expected[0] - expected[1] ? 0 : 1);
+        mismatches += (sum(stats.depthHistogram()) == expected[0] ? 0 : 1);
+        mismatches += (sum(stats.fanOutHistogram()) == expected[0] ? 0 : 1);
+        mismatches += (weightedSum(stats.fanOutHistogram()) == expected[0] - 1 ? 0 : 1);
+        mismatches += (stats.estimatedBytes() > stats.nodeCount() * TrieStats.NODE_BYTES ? 0 : 1);
+        mismatches += (trie.counters() == null ? 0 : 1);
+        FrozenTrie frozen = trie.freeze();
+        TrieCounters counters = trie.enableCounters();
+        mismatches += (trie.enableCounters() == counters ? 0 : 1);
+        int hits = 0;
+        int prefixHits = 0;
+        for (int i = 0; i < words; i++) {
+            String word = (i % 2 == 0 ? inserted.get(random.nextInt(inserted.size())) : TestWords.skewedWord(random, 1 + random.nextInt(12), 40));
+            boolean found = trie.search(word);
+            hits += (found ? 1 : 0);
+            mismatches += (found == stored.contains(word) ? 0 : 1);
+            String prefix = word.substring(0, word.length() / 2);
+            boolean prefixFound = trie.startsWith(prefix);
+            prefixHits += (prefixFound ? 1 : 0);
+            mismatches += (prefixFound == frozen.startsWith(prefix) ? 0 : 1);
+            String padded = "#" + word + "#";
+            mismatches += (trie.search(padded, 1, padded.length() - 1) == found ? 0 : 1);
+            mismatches += (trie.startsWith(padded, 1, 1 + prefix.length()) == prefixFound ? 0 : 1);
+        }
+        trie.insert("counted");
+        trie.remove("counted");
+        mismatches += (counters.searches() == 2L * words && counters.searchHits() == 2L * hits ? 0 : 1);
+        mismatches += (counters.prefixChecks() == 2L * words && counters.prefixHits() == 2L * prefixHits ? 0 : 1);
+        mismatches += (counters.searchVisits() >= counters.searches() ? 0 : 1);
+        mismatches += (counters.prefixVisits() >= counters.prefixChecks() ? 0 : 1);
+        mismatches += (counters.inserts() == 1 && counters.removes() == 1 ? 0 : 1);
+        Trie chain = new Trie();
+        chain.insert("ab");
+        chain.insert("abcd");
+        chain.insert("abce");
+        TrieCounters chainCounters = chain.enableCounters();
+        chain.search("abcd");
+        chain.search("abx");
+        chain.startsWith("abc");
+        mismatches += (chainCounters.searchVisits() == 3 + 1 && chainCounters.prefixVisits() == 2 ? 0 : 1);
+        counters.reset();
+        mismatches += (counters.searches() == 0 && counters.searchVisits() == 0 ? 0 : 1);
+        trie.disableCounters();
+        mismatches += (trie.counters() == null ? 0 : 1);
+        System.out.println("  " + stats);
+        System.out.println("  Sharing ratio:.............................." + String.format("%.2f", stats.sharingRatio()));
+        System.out.println("  Number of mismatches:......................." + mismatches);
+        System.out.println("  Test passed:................................" + (mismatches == 0));
+        return mismatches == 0;
+    }
+
+    /**
+     * Counts recursively the nodes of a subtrie.
+     *
+     * @param node Root of the subtrie.
+     * @param depth Depth of the root of the subtrie.
+     * @param counts Array accumulating the number of nodes, leaves and content
+     * letters and the maximum depth.
+     */
+    private static void count(TrieNode node, int depth, long[] counts) {
+        counts[0]++;
+        counts[1] += (node.sons() == null ? 1 : 0);
+        counts[2] += node.content().length;
+        counts[3] = Math.max(counts[3], depth);
+        SonTable sons = node.sons();
+        for (int slot = 0; sons != null && slot < sons.slots(); slot++) {
+            if (sons.sonAt(slot) != null) {
+                count(sons.sonAt(slot), depth + 1, counts);
+            }
+        }
+    }
+
+    /**
+     * Adds the values of a histogram.
+     *
+     * @param histogram Histogram.
+     * @return The sum of the values.
+     */
+    private static long sum(long[] histogram) {
+        long sum = 0;
+        for (long value : histogram) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    /**
+     * Adds the values of a histogram weighted by their position.
+     *
+     * @param histogram Histogram.
+     * @return The sum of every value multiplied by its position.
+     */
+    private static long weightedSum(long[] histogram) {
+        long sum = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            sum += i * histogram[i];
+        }
+        return sum;
+    }
+}
@@ -31,9 +31,13 @@ public class TrieTest {
      */
     public static void main(String[] args) throws FileNotFoundException, IOException {
         hardcodedTest();
+        boolean passed = sliceTest();
         if (args.length >= 3) {
             customTest(args[0], args[1], args[2]);
         }
+        if (!passed) {
+            System.exit(1);
+        }
     }
 
     /**
@@ -96,6 +100,78 @@ public class TrieTest {
         System.out.println("StartsWith \"hu\":....." + trie.startsWith("hu"));
     }
 
+    /**
+     * Checks the searches and prefix checks over slices of a sequence: slices
+     * in the middle of a longer sequence, empty slices, and the rejection of
+     * slices out of the bounds of the sequence, on a plain trie, on a trie
+     * with counters and on a trie with a search filter.
+     *
+     * @return True if every check passed.
+     */
+    public static boolean sliceTest() {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Slice test:");
+        System.out.println("-------------------------------------------------------");
+        int failures = 0;
+        Trie empty = new Trie();
+        failures += (!empty.search("??", 1, 1) && !empty.startsWith("??", 1, 1) && !empty.startsWith("", 0, 0) ? 0 : 1);
+        for (int variant = 0; variant < 3; variant++) {
+            Trie trie = new Trie();
+            if (variant == 1) {
+                trie.enableCounters();
+            } else if (variant == 2) {
+                trie.enableFilter(100, 0.01);
+            }
+            trie.insert("hola");
+            trie.insert("bu");
+            trie.insert("bubu");
+            CharSequence sequence = new StringBuilder("??bubu??");
+            failures += (trie.search(sequence, 2, 6) && trie.search(sequence, 2, 4) ? 0 : 1);
+            failures += (!trie.search(sequence, 2, 5) && !trie.search(sequence, 1, 6) && !trie.search(sequence, 2, 8) ? 0 : 1);
+            failures += (trie.startsWith(sequence, 2, 5) && trie.startsWith(sequence, 4, 5) ? 0 : 1);
+            failures += (!trie.startsWith(sequence, 2, 7) && !trie.startsWith(sequence, 0, 1) ? 0 : 1);
+            failures += (!trie.search(sequence, 3, 3) && !trie.search(sequence, 8, 8) ? 0 : 1);
+            failures += (trie.startsWith(sequence, 3, 3) && trie.startsWith(sequence, 0, 0) && trie.startsWith(sequence, 8, 8) ? 0 : 1);
+            trie.insert("");
+            failures += (trie.search(sequence, 3, 3) && trie.search(sequence, 8, 8) ? 0 : 1);
+            failures += (!trie.search(null, -1, 9) && !trie.startsWith(null, -1, 9) ? 0 : 1);
+            int rejected = 0;
+            int[][] slices = {{-1, 2}, {2, 9}, {5, 4}, {9, 9}, {-1, -1}};
+            for (int[] slice : slices) {
+                rejected += (rejects(trie, sequence, slice[0], slice[1], false) ? 1 : 0);
+                rejected += (rejects(trie, sequence, slice[0], slice[1], true) ? 1 : 0);
+            }
+            failures += 2 * slices.length - rejected;
+        }
+        System.out.println("  Number of failures:........................." + failures);
+        System.out.println("  Test passed:................................" + (failures == 0));
+        return failures == 0;
+    }
+
+    /**
+     * Returns true if a search or prefix check over a slice of a sequence
+     * throws an IndexOutOfBoundsException.
+     *
+     * @param trie Trie to query.
+     * @param sequence Sequence containing the slice.
+     * @param from Index of the first character of the slice.
+     * @param to Index after the last character of the slice.
+     * @param prefix True to check the prefix, false to search the word.
+     * @return True if the slice was rejected.
+     */
+    private static boolean rejects(Trie trie, CharSequence sequence, int from, int to, boolean prefix) {
+        try {
+            if (prefix) {
+                trie.startsWith(sequence, from, to);
+            } else {
+                trie.search(sequence, from, to);
+            }
+            return false;
+        } catch (IndexOutOfBoundsException e) {
+            return true;
+        }
+    }
+
     /**
      * Custom test to test the trie against a series of commands and expected
      * outputs read from the specified input files. This test stores the results
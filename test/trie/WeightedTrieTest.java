@@ -0,0 +1,117 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Test program to verify prefix enumeration and top-k autocompletion against a
+ * sorted map holding the same words and scores.
+ *
+ * @author Alfonso Alhambra Moron
+ */
+public class WeightedTrieTest {
+
+    /**
+     * Weighted trie test program.
+     *
+     * @param args The first argument, if present, is the number of operations
+     * (100000 by default) and the second one the seed of the random generator
+     * (1 by default).
+     */
+    public static void main(String[] args) {
+        int operations = (args.length >= 1 ? Integer.parseInt(args[0]) : 100000);
+        long seed = (args.length >= 2 ? Long.parseLong(args[1]) : 1);
+        if (!autocompletionTest(operations, seed)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Inserts, rescores and removes random words and then checks, for a set of
+     * random prefixes, that the words enumerated with the prefix and the k
+     * best scored ones match the reference map.
+     *
+     * @param operations Number of insertions and removals.
+     * @param seed Seed of the random generator.
+     * @return True if every check passed.
+     */
+    public static boolean autocompletionTest(int operations, long seed) {
+        System.out.println("-------------------------------------------------------");
+        System.out.println("Prefix enumeration and top-k test:");
+        System.out.println("-------------------------------------------------------");
+        Random random = new Random(seed);
+        WeightedTrie trie = new WeightedTrie();
+        TreeMap<String, Double> reference = new TreeMap<String, Double>();
+        for (int i = 0; i < operations; i++) {
+            String word = TestWords.uniformWord(random, random.nextInt(10), 6);
+            if (random.nextInt(4) > 0) {
+                double score = random.nextInt(10000);
+                trie.insert(word, score);
+                reference.put(word, score);
+            } else {
+                trie.remove(word);
+                reference.remove(word);
+            }
+        }
+        int checks = 0;
+        int mismatches = 0;
+        for (int i = 0; i < 2000; i++) {
+            String prefix = TestWords.uniformWord(random, random.nextInt(10), 6);
+            prefix = prefix.substring(0, Math.min(prefix.length(), random.nextInt(4)));
+            List<Entry<String, Double>> expected = new ArrayList<Entry<String, Double>>();
+            for (Entry<String, Double> entry : reference.tailMap(prefix).entrySet()) {
+                if (!entry.getKey().startsWith(prefix)) {
+                    break;
+                }
+                expected.add(entry);
+            }
+            List<String> enumerated = new ArrayList<String>();
+            Iterator<String> keys = trie.keysWithPrefix(prefix);
+            while (keys.hasNext()) {
+                enumerated.add(keys.next());
+            }
+            mismatches += (enumerated.equals(keysOf(expected)) ? 0 : 1);
+            Collections.sort(expected, new Comparator<Entry<String, Double>>() {
+                @Override
+                public int compare(Entry<String, Double> first, Entry<String, Double> second) {
+                    int byScore = Double.compare(second.getValue(), first.getValue());
+                    return (byScore != 0 ? byScore : first.getKey().compareTo(second.getKey()));
+                }
+            });
+            int k = 1 + random.nextInt(20);
+            List<String> best = keysOf(expected.subList(0, Math.min(k, expected.size())));
+            mismatches += (trie.topK(prefix, k).equals(best) ? 0 : 1);
+            checks += 2;
+        }
+        for (Map.Entry<String, Double> entry : reference.entrySet()) {
+            mismatches += (trie.score(entry.getKey()) == entry.getValue() ? 0 : 1);
+            checks++;
+        }
+        System.out.println("  Number of words:............................" + reference.size());
+        System.out.println("  Number of checks:..........................." + checks);
+        System.out.println("  Number of mismatches:......................." + mismatches);
+        System.out.println("  Test passed:................................" + (mismatches == 0));
+        return mismatches == 0;
+    }
+
+    /**
+     * Extracts the keys of a list of entries.
+     *
+     * @param entries Entries.
+     * @return The keys of the entries, in the same order.
+     */
+    private static List<String> keysOf(List<Entry<String, Double>> entries) {
+        List<String> keys = new ArrayList<String>(entries.size());
+        for (Entry<String, Double> entry : entries) {
+            keys.add(entry.getKey());
+        }
+        return keys;
+    }
+}